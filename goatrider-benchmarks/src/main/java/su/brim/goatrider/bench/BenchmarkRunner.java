@@ -0,0 +1,34 @@
+package su.brim.goatrider.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запуск всех бенчмарков на нескольких числах потоков - потоков регионов Folia, которые одновременно
+ * читают общую карту сессий. Число наездников задаёт {@code @Param riders} (1, 100, 10000).
+ * <p>
+ * Аргументы - обычные аргументы JMH (фильтр бенчмарков, {@code -p riders=100}, {@code -prof gc} и т. д.).
+ * Потоки - {@code -Dgoatrider.bench.threads} через запятую (1,2,4,8); {@code -t} в аргументах отключает перебор.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.getThreads().hasValue()) {
+            new Runner(options).run();
+            return;
+        }
+        for (String threads : System.getProperty("goatrider.bench.threads", "1,2,4,8").split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package su.brim.goatrider.bench;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import su.brim.goatrider.manager.ConfigManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование сообщений наезднику (посадка, высадка, очередь): legacy-коды с префиксом в Component.
+ * ConfigManager общий для всех потоков, как на сервере.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Messages {
+
+        ConfigManager config;
+        String[] messages;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            config = StandInPlugin.configManager();
+            messages = new String[] {
+                    config.getMountSuccess(),
+                    config.getDismountSuccess(),
+                    config.getCapacityFull(),
+                    config.getCapacityQueued()
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+    }
+
+    @Benchmark
+    public Component formatMessage(Messages messages, Cursor cursor) {
+        String message = messages.messages[cursor.next++ & 3];
+        return messages.config.formatMessage(message);
+    }
+}
@@ -0,0 +1,56 @@
+package su.brim.goatrider.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+import su.brim.goatrider.core.RiderState;
+
+import java.util.UUID;
+
+/**
+ * Поток региона: обходит своих наездников по кругу, находя сессию в общей карте.
+ * Полный круг - один тик региона: часы наездников идут, как тики жизни козла.
+ */
+@State(Scope.Thread)
+public class Region {
+
+    // Целей тарана рядом с наездником: по ним крутятся кулдауны
+    private static final int RAM_TARGETS = 16;
+
+    private Riders riders;
+    private UUID[] own;
+    private int cursor;
+
+    final UUID[] ramTargets = new UUID[RAM_TARGETS];
+    long tick;
+    int step;
+
+    @Setup(Level.Trial)
+    public void setup(Riders riders, ThreadParams thread) {
+        this.riders = riders;
+        this.own = riders.ids[thread.getThreadIndex()];
+        for (int i = 0; i < ramTargets.length; i++) {
+            ramTargets[i] = UUID.randomUUID();
+        }
+    }
+
+    /**
+     * Сессия следующего наездника региона с часами текущего тика.
+     */
+    RiderState next() {
+        if (cursor == own.length) {
+            cursor = 0;
+            tick++;
+        }
+        step++;
+        RiderState state = riders.sessions.get(own[cursor++]);
+        state.advanceTick(tick);
+        return state;
+    }
+
+    UUID ramTarget() {
+        return ramTargets[step & (RAM_TARGETS - 1)];
+    }
+}
@@ -0,0 +1,53 @@
+package su.brim.goatrider.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import su.brim.goatrider.core.RideParams;
+import su.brim.goatrider.core.RiderState;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Наездники сервера: общая карта сессий, как в RidingManager, которую читают все потоки регионов.
+ * У каждого потока бенчмарка свои {@link #riders} наездников - как у региона Folia, чьи козлы
+ * ведёт только его поток; общая между потоками только карта.
+ */
+@State(Scope.Benchmark)
+public class Riders {
+
+    /**
+     * Наездников на поток региона.
+     */
+    @Param({"1", "100", "10000"})
+    public int riders;
+
+    // Скорость, прыжки и спринт - по умолчанию из config.yml. Выносливость там выключена
+    // (stamina.enabled: false); здесь она включена с параметрами из config.yml намеренно,
+    // чтобы updateSprint считал и её
+    final RideParams params = RideParams.of(0.25, 0.8, true, 1, 1.3, 300)
+            .withStamina(10.0, 5.0, 1.0, 0.25);
+
+    final Map<UUID, RiderState> sessions = new ConcurrentHashMap<>();
+
+    // Игроки по потокам: ids[thread][i]
+    UUID[][] ids;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams benchmark) {
+        int threads = benchmark.getThreads();
+        ids = new UUID[threads][riders];
+        for (int thread = 0; thread < threads; thread++) {
+            for (int i = 0; i < riders; i++) {
+                UUID id = UUID.randomUUID();
+                ids[thread][i] = id;
+                sessions.put(id, new RiderState(params.extraJumps()));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package su.brim.goatrider.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import su.brim.goatrider.core.RiderInput;
+import su.brim.goatrider.core.RiderState;
+import su.brim.goatrider.core.RidingRules;
+import su.brim.goatrider.util.MovementMath;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Правила езды из тика управления: одна операция - один наездник, найденный в общей карте сессий.
+ * Ввод меняется по шагу потока, чтобы ветви правил не сворачивались в константу.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RidingRulesBenchmark {
+
+    /**
+     * Спринт: W держится 15 шагов из 16, отпускание и новое нажатие дают double-tap.
+     */
+    @Benchmark
+    public boolean updateSprint(Riders riders, Region region) {
+        RiderState state = region.next();
+        boolean forward = (region.step & 15) != 0;
+        return RidingRules.updateSprint(state, riders.params, forward, (region.step & 64) != 0);
+    }
+
+    /**
+     * Кулдаун тарана по целям рядом с наездником.
+     */
+    @Benchmark
+    public boolean canRamDamage(Region region) {
+        return RidingRules.canRamDamage(region.next(), region.ramTarget());
+    }
+
+    /**
+     * Прыжок и сброс прыжков: козёл то на земле, то в воздухе.
+     */
+    @Benchmark
+    public boolean tryJumpAndReset(Riders riders, Region region) {
+        RiderState state = region.next();
+        boolean onGround = (region.step & 3) == 0;
+        boolean jumped = RidingRules.tryJump(state, riders.params, onGround);
+        if (onGround) {
+            RidingRules.resetJumps(state, riders.params);
+        }
+        return jumped;
+    }
+
+    /**
+     * Движение по вводу и взгляду наездника.
+     */
+    @Benchmark
+    public double computeMotion(Riders riders, Region region) {
+        RiderState state = region.next();
+        int input = RiderInput.FORWARD | ((region.step & 8) != 0 ? RiderInput.LEFT : RiderInput.RIGHT);
+        RidingRules.computeMotion(state, riders.params, region.step * 1.7F, input, state.isSprinting());
+        return state.getMotionX() + state.getMotionZ();
+    }
+
+    /**
+     * Сама математика движения - таблица sin/cos без сессии и карты, от числа наездников не зависит.
+     */
+    @Benchmark
+    public double movementMath(Look look) {
+        float yaw = ++look.step * 1.7F;
+        return MovementMath.motionX(yaw, 0.25, 0.175) + MovementMath.motionZ(yaw, 0.25, 0.175);
+    }
+
+    @State(Scope.Thread)
+    public static class Look {
+
+        int step;
+    }
+}
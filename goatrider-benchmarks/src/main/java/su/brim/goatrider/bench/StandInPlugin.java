@@ -0,0 +1,57 @@
+package su.brim.goatrider.bench;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.objenesis.ObjenesisStd;
+import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.manager.ConfigManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Плагин без сервера: экземпляр GoatRiderPlugin создаётся в обход конструктора JavaPlugin
+ * (тот требует загрузчик плагинов сервера), а конфиг и логгер ставятся в его поля.
+ * Достаточно для частей плагина, которые читают только конфиг, - {@link ConfigManager}.
+ */
+final class StandInPlugin {
+
+    private StandInPlugin() {
+    }
+
+    /**
+     * ConfigManager на config.yml из jar плагина.
+     */
+    static ConfigManager configManager() {
+        GoatRiderPlugin plugin = new ObjenesisStd().newInstance(GoatRiderPlugin.class);
+        setField(plugin, "newConfig", loadConfig());
+        setField(plugin, "logger", Logger.getLogger("GoatRider"));
+        return new ConfigManager(plugin);
+    }
+
+    private static YamlConfiguration loadConfig() {
+        try (InputStream resource = GoatRiderPlugin.class.getResourceAsStream("/config.yml")) {
+            if (resource == null) {
+                throw new IllegalStateException("В jar плагина нет config.yml");
+            }
+            return YamlConfiguration.loadConfiguration(new InputStreamReader(resource, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = JavaPlugin.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Нет поля JavaPlugin." + name, e);
+        }
+    }
+}
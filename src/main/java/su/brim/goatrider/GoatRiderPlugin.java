@@ -2,16 +2,31 @@ package su.brim.goatrider;
 
 import org.bukkit.plugin.java.JavaPlugin;
 import su.brim.goatrider.command.GoatRiderCommand;
+import su.brim.goatrider.listener.BlockChangeListener;
 import su.brim.goatrider.listener.GoatMountListener;
 import su.brim.goatrider.listener.GoatControlListener;
+import su.brim.goatrider.listener.RidingListeners;
+import su.brim.goatrider.manager.CollisionCache;
 import su.brim.goatrider.manager.ConfigManager;
 import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.manager.TaskRegistry;
+import su.brim.goatrider.riderstats.RiderStatsStore;
+import su.brim.goatrider.stats.PerformanceStats;
+import su.brim.goatrider.stats.PrometheusExporter;
+import su.brim.goatrider.trace.TraceRecorder;
 
 public class GoatRiderPlugin extends JavaPlugin {
 
     private static GoatRiderPlugin instance;
     private ConfigManager configManager;
     private RidingManager ridingManager;
+    private TaskRegistry taskRegistry;
+    private PerformanceStats stats;
+    private PrometheusExporter prometheusExporter;
+    private TraceRecorder traceRecorder;
+    private RiderStatsStore riderStats;
+    private CollisionCache collisionCache;
+    private RidingListeners ridingListeners;
 
     @Override
     public void onEnable() {
@@ -21,12 +36,23 @@ public class GoatRiderPlugin extends JavaPlugin {
         saveDefaultConfig();
         
         // Инициализация менеджеров
+        stats = new PerformanceStats();
         configManager = new ConfigManager(this);
+        taskRegistry = new TaskRegistry(this);
         ridingManager = new RidingManager(this);
+        collisionCache = new CollisionCache(this);
+        taskRegistry.startSweeper(configManager.getSettings().taskSweepInterval());
+        stats.setTimingEnabled(configManager.isStatsTimingEnabled());
+        prometheusExporter = new PrometheusExporter(this);
+        prometheusExporter.start();
+        traceRecorder = new TraceRecorder(this);
+        traceRecorder.start();
+        riderStats = new RiderStatsStore(this);
+        riderStats.start();
         
-        // Регистрация слушателей
+        // Регистрация слушателей: посадка - постоянно, события езды - пока есть наездники
         getServer().getPluginManager().registerEvents(new GoatMountListener(this), this);
-        getServer().getPluginManager().registerEvents(new GoatControlListener(this), this);
+        ridingListeners = new RidingListeners(this, new GoatControlListener(this), new BlockChangeListener(this));
         
         // Регистрация команд
         GoatRiderCommand command = new GoatRiderCommand(this);
@@ -38,11 +64,30 @@ public class GoatRiderPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (prometheusExporter != null) {
+            prometheusExporter.stop();
+        }
+        
         // Высаживаем всех игроков с козлов
         if (ridingManager != null) {
             ridingManager.dismountAll();
         }
         
+        // Дописываем трассу ввода после остановки задач управления
+        if (traceRecorder != null) {
+            traceRecorder.stop();
+        }
+        
+        // Дописываем статистику наездников
+        if (riderStats != null) {
+            riderStats.stop();
+        }
+        
+        // Отменяем оставшиеся задачи плагина
+        if (taskRegistry != null) {
+            taskRegistry.cancelAll();
+        }
+        
         getLogger().info("GoatRider выключен.");
     }
 
@@ -54,12 +99,47 @@ public class GoatRiderPlugin extends JavaPlugin {
         return configManager;
     }
 
+    public RidingListeners getRidingListeners() {
+        return ridingListeners;
+    }
+
+    public CollisionCache getCollisionCache() {
+        return collisionCache;
+    }
+
     public RidingManager getRidingManager() {
         return ridingManager;
     }
 
+    public TaskRegistry getTaskRegistry() {
+        return taskRegistry;
+    }
+
+    public PerformanceStats getStats() {
+        return stats;
+    }
+
+    public PrometheusExporter getPrometheusExporter() {
+        return prometheusExporter;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    public RiderStatsStore getRiderStats() {
+        return riderStats;
+    }
+
     public void reload() {
         reloadConfig();
         configManager.reload();
+        stats.setTimingEnabled(configManager.isStatsTimingEnabled());
+        prometheusExporter.start();
+        traceRecorder.start();
+        riderStats.start();
+        // Лимиты мест могли вырасти - пропускаем очередь
+        ridingManager.getCapacity().signal();
+        taskRegistry.startSweeper(configManager.getSettings().taskSweepInterval());
     }
 }
@@ -4,13 +4,29 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Goat;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import su.brim.goatrider.GoatRiderPlugin;
 import su.brim.goatrider.manager.ConfigManager;
+import su.brim.goatrider.manager.LoadStage;
+import su.brim.goatrider.manager.RiderCapacity;
+import su.brim.goatrider.manager.RiderSession;
+import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.manager.Settings;
+import su.brim.goatrider.manager.TaskRegistry;
+import su.brim.goatrider.riderstats.RiderStats;
+import su.brim.goatrider.riderstats.RiderStatsStore;
+import su.brim.goatrider.stats.PerformanceStats;
+import su.brim.goatrider.stats.PhaseHistogram;
+import su.brim.goatrider.stats.TickPhase;
+import su.brim.goatrider.trace.TraceRecorder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Обработчик команд плагина GoatRider.
@@ -39,6 +55,9 @@ public class GoatRiderCommand implements CommandExecutor, TabCompleter {
         switch (subCommand) {
             case "reload" -> handleReload(sender);
             case "info" -> handleInfo(sender);
+            case "stats" -> handleStats(sender, args);
+            case "top" -> handleTop(sender, args);
+            case "caravan" -> handleCaravan(sender, args);
             case "help" -> sendHelp(sender);
             default -> {
                 sender.sendMessage(config.formatMessage("&cНеизвестная команда. Используйте /gr help"));
@@ -65,15 +84,270 @@ public class GoatRiderCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(config.formatRawMessage("&7Требуется седло: &f" + (config.isRequireSaddle() ? "Да" : "Нет")));
         sender.sendMessage(config.formatRawMessage("&7Скорость: &f" + config.getSpeed()));
         sender.sendMessage(config.formatRawMessage("&7Множитель спринта: &f" + config.getSprintMultiplier() + "x"));
+        sender.sendMessage(config.formatRawMessage("&7Выносливость спринта: &f" + (config.isSprintStaminaEnabled()
+                ? config.getStaminaDuration() + " с &7(восстановление &f" + config.getStaminaRechargeTime()
+                        + " с&7, пауза &f" + config.getStaminaRechargeDelay() + " с&7)"
+                : "Без ограничения")));
         sender.sendMessage(config.formatRawMessage("&7Сила прыжка: &f" + config.getJumpStrength()));
         sender.sendMessage(config.formatRawMessage("&7Мульти-прыжок: &f" + (config.isMultiJump() ? "Да (" + config.getExtraJumps() + " доп.)" : "Нет")));
+        sender.sendMessage(config.formatRawMessage("&7Защита от падения: &f" + config.getFallProtectionDistance()
+                + " &7(" + config.getFallProtectionMode().name().toLowerCase(Locale.ROOT) + ")"));
+        sender.sendMessage(config.formatRawMessage("&7ИИ козла при езде: &f" + (config.isSuspendAi() ? "Выключен" : "Включён")));
         sender.sendMessage(config.formatRawMessage("&7Урон тарана: &f" + (config.isRamEnabled() ? config.getRamDamage() : "Выключен")));
+        sender.sendMessage(config.formatRawMessage("&7Разгрузка регионов: &f" + formatLoadStages()));
+    }
+
+    private String formatLoadStages() {
+        if (!config.isLoadSheddingEnabled()) {
+            return "Выключена";
+        }
+        
+        // Сколько наездников сейчас на каждой ступени
+        int[] counts = plugin.getRidingManager().getLoadStageCounts();
+        StringBuilder builder = new StringBuilder("полная частота: ").append(counts[0]);
+        List<LoadStage> stages = config.getLoadStages();
+        for (int i = 1; i < counts.length; i++) {
+            LoadStage stage = stages.get(i - 1);
+            builder.append(", ступень ").append(i)
+                    .append(" (TPS < ").append(stage.tpsBelow()).append("): ").append(counts[i]);
+        }
+        return builder.toString();
+    }
+
+    private void handleStats(CommandSender sender, String[] args) {
+        // /gr stats player <игрок> - статистика наездника, остальное - статистика производительности
+        if (args.length > 1 && args[1].equalsIgnoreCase("player")) {
+            if (args.length < 3) {
+                sender.sendMessage(config.formatMessage("&cИспользование: /gr stats player <игрок>"));
+                return;
+            }
+            handleRiderStats(sender, args[2]);
+            return;
+        }
+        if (!sender.hasPermission("goatrider.admin")) {
+            sender.sendMessage(config.formatMessage(config.getNoAdminPermission()));
+            return;
+        }
+
+        PerformanceStats stats = plugin.getStats();
+        if (args.length > 1) {
+            switch (args[1].toLowerCase()) {
+                case "reset" -> {
+                    stats.reset();
+                    sender.sendMessage(config.formatMessage("&aСтатистика сброшена."));
+                }
+                case "dump" -> {
+                    plugin.getPrometheusExporter().dumpAsync();
+                    sender.sendMessage(config.formatMessage("&aСтатистика записывается в &f"
+                            + plugin.getPrometheusExporter().getFile().getFileName()));
+                }
+            }
+            return;
+        }
+
+        sender.sendMessage(config.formatRawMessage("&6&l=== GoatRider Stats ==="));
+        if (!stats.isTimingEnabled()) {
+            sender.sendMessage(config.formatRawMessage("&7Замер фаз выключен (stats.timing)"));
+        } else {
+            sender.sendMessage(config.formatRawMessage("&7Фаза: &fp50 / p99 / max &7(мкс), замеров"));
+            for (TickPhase phase : TickPhase.values()) {
+                PhaseHistogram histogram = stats.getHistogram(phase);
+                sender.sendMessage(config.formatRawMessage("&7" + phase.getDisplayName() + ": &f"
+                        + micros(histogram.getPercentile(50)) + " / "
+                        + micros(histogram.getPercentile(99)) + " / "
+                        + micros(histogram.getMax()) + " &7(" + histogram.getCount() + ")"));
+            }
+        }
+
+        StringBuilder counters = new StringBuilder("&7");
+        for (PerformanceStats.Counter counter : PerformanceStats.Counter.values()) {
+            if (counters.length() > 2) {
+                counters.append(", ");
+            }
+            counters.append(counter.getDisplayName()).append(": &f").append(stats.get(counter)).append("&7");
+        }
+        sender.sendMessage(config.formatRawMessage(counters.toString()));
+
+        TaskRegistry tasks = plugin.getTaskRegistry();
+        StringBuilder live = new StringBuilder();
+        for (Map.Entry<TaskRegistry.Kind, Integer> entry : tasks.getLiveCounts().entrySet()) {
+            if (live.length() > 0) {
+                live.append(", ");
+            }
+            live.append(entry.getKey().name().toLowerCase(Locale.ROOT)).append(' ').append(entry.getValue());
+        }
+        sender.sendMessage(config.formatRawMessage("&7Задачи: &f" + live
+                + "&7; утечек: &f" + tasks.getLeakedCount() + "&7, retired: &f" + tasks.getRetiredCount()));
+
+        if (config.isIdleParkingEnabled()) {
+            sender.sendMessage(config.formatRawMessage("&7Припаркованы: &f" + plugin.getRidingManager().getParkedCount()
+                    + " &7из &f" + plugin.getRidingManager().getRiderCount() + " &7наездников"));
+        }
+
+        sender.sendMessage(config.formatRawMessage("&7Слушатели езды: &f"
+                + (plugin.getRidingListeners().isRegistered() ? "зарегистрированы" : "сняты (нет наездников)")));
+
+        TraceRecorder traceRecorder = plugin.getTraceRecorder();
+        if (traceRecorder.isRecording()) {
+            sender.sendMessage(config.formatRawMessage("&7Запись ввода: &f" + traceRecorder.getWrittenCount()
+                    + " &7записей, потеряно: &f" + traceRecorder.getDroppedCount()));
+        }
+
+        Settings.Capacity limits = config.getSettings().capacity();
+        RiderCapacity capacity = plugin.getRidingManager().getCapacity();
+        StringBuilder worlds = new StringBuilder();
+        for (Map.Entry<String, Integer> world : capacity.getWorldCounts().entrySet()) {
+            if (worlds.length() > 0) {
+                worlds.append("&7, &f");
+            }
+            worlds.append(world.getKey()).append(' ').append(world.getValue()).append(limit(limits.maxPerWorld()));
+        }
+        sender.sendMessage(config.formatRawMessage("&7Наездники по мирам: &f" + (worlds.length() == 0 ? "нет" : worlds)
+                + "&7; в очереди: &f" + capacity.getWaitingCount()));
+
+        Map<String, Integer> areas = plugin.getRidingManager().getRidersByArea();
+        sender.sendMessage(config.formatRawMessage("&7Наездники по областям: &f" + (areas.isEmpty() ? "нет" : "")));
+        for (Map.Entry<String, Integer> area : areas.entrySet()) {
+            sender.sendMessage(config.formatRawMessage("&7• &f" + area.getKey() + "&7: &f" + area.getValue()
+                    + limit(limits.maxPerRegion())));
+        }
+    }
+
+    private void handleRiderStats(CommandSender sender, String name) {
+        RiderStatsStore riderStats = riderStatsFor(sender);
+        if (riderStats == null) {
+            return;
+        }
+        RiderStats stats = riderStats.find(name);
+        if (stats == null) {
+            sender.sendMessage(config.formatMessage("&cНет статистики игрока &f" + name
+                    + "&c. Новые данные появляются после фоновой записи."));
+            return;
+        }
+        sender.sendMessage(config.formatRawMessage("&6&l=== Наездник " + stats.name() + " ==="));
+        for (RiderStats.Metric metric : RiderStats.Metric.values()) {
+            sender.sendMessage(config.formatRawMessage("&7" + metric.getDisplayName() + ": &f"
+                    + formatMetric(metric, stats)));
+        }
+    }
+
+    private void handleTop(CommandSender sender, String[] args) {
+        RiderStatsStore riderStats = riderStatsFor(sender);
+        if (riderStats == null) {
+            return;
+        }
+        RiderStats.Metric metric = args.length > 1 ? RiderStats.Metric.byKey(args[1]) : RiderStats.Metric.DISTANCE;
+        if (metric == null) {
+            sender.sendMessage(config.formatMessage("&cИспользование: /gr top [" + metricKeys() + "]"));
+            return;
+        }
+        List<RiderStats> top = riderStats.getTop(metric);
+        sender.sendMessage(config.formatRawMessage("&6&l=== Топ: " + metric.getDisplayName() + " ==="));
+        if (top.isEmpty()) {
+            sender.sendMessage(config.formatRawMessage("&7Пока пусто"));
+        }
+        for (int i = 0; i < top.size(); i++) {
+            RiderStats stats = top.get(i);
+            sender.sendMessage(config.formatRawMessage("&e" + (i + 1) + ". &f" + stats.name()
+                    + "&7: &f" + formatMetric(metric, stats)));
+        }
+    }
+
+    /**
+     * Хранилище статистики наездников для команды или null (с сообщением), если команда недоступна.
+     */
+    private RiderStatsStore riderStatsFor(CommandSender sender) {
+        if (!sender.hasPermission("goatrider.stats")) {
+            sender.sendMessage(config.formatMessage(config.getNoPermission()));
+            return null;
+        }
+        RiderStatsStore riderStats = plugin.getRiderStats();
+        if (!riderStats.isEnabled()) {
+            sender.sendMessage(config.formatMessage("&cСтатистика наездников выключена."));
+            return null;
+        }
+        return riderStats;
+    }
+
+    private static String formatMetric(RiderStats.Metric metric, RiderStats stats) {
+        return switch (metric) {
+            case DISTANCE -> String.format(Locale.ROOT, "%.0f бл.", stats.distance());
+            case DAMAGE -> String.format(Locale.ROOT, "%.1f", stats.damage());
+            case TOP_SPEED -> String.format(Locale.ROOT, "%.1f бл/с", stats.topSpeed());
+            default -> String.valueOf((long) metric.valueOf(stats));
+        };
+    }
+
+    private static String metricKeys() {
+        StringBuilder keys = new StringBuilder();
+        for (RiderStats.Metric metric : RiderStats.Metric.values()) {
+            if (keys.length() > 0) {
+                keys.append('|');
+            }
+            keys.append(metric.getKey());
+        }
+        return keys.toString();
+    }
+
+    private void handleCaravan(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(config.formatMessage("&cКоманда доступна только игрокам."));
+            return;
+        }
+        if (!player.hasPermission("goatrider.caravan")) {
+            sender.sendMessage(config.formatMessage(config.getNoPermission()));
+            return;
+        }
+        if (!config.isCaravanEnabled()) {
+            sender.sendMessage(config.formatMessage("&cКараваны выключены."));
+            return;
+        }
+        if (!(player.getVehicle() instanceof Goat goat) || !plugin.getRidingManager().isRiding(player)) {
+            sender.sendMessage(config.formatMessage("&cСядьте на козла, чтобы вести караван."));
+            return;
+        }
+
+        boolean disband = args.length > 1 && args[1].equalsIgnoreCase("off");
+        // Караван меняется только в потоке региона козла наездника
+        plugin.getTaskRegistry().runOnEntity(goat, task -> {
+            RidingManager ridingManager = plugin.getRidingManager();
+            RiderSession session = ridingManager.getSession(player.getUniqueId());
+            if (session == null || !session.getGoatId().equals(goat.getUniqueId())) {
+                return;
+            }
+            if (disband) {
+                ridingManager.disbandCaravan(session);
+                player.sendMessage(config.formatMessage("&aКараван распущен."));
+                return;
+            }
+            int followers = ridingManager.formCaravan(player, goat);
+            if (followers == 0) {
+                player.sendMessage(config.formatMessage("&cРядом нет козлов на вашем поводке."));
+            } else {
+                player.sendMessage(config.formatMessage("&aКараван собран: &f" + followers + " &aкозлов."));
+            }
+        });
+    }
+
+    /**
+     * Лимит мест для вывода рядом со счётчиком ("" - без ограничения).
+     */
+    private static String limit(int max) {
+        return max > 0 ? " &7/ " + max : "";
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
     }
 
     private void sendHelp(CommandSender sender) {
         sender.sendMessage(config.formatRawMessage("&6&l=== GoatRider Help ==="));
         sender.sendMessage(config.formatRawMessage("&e/gr reload &7- Перезагрузить конфигурацию"));
         sender.sendMessage(config.formatRawMessage("&e/gr info &7- Информация о плагине"));
+        sender.sendMessage(config.formatRawMessage("&e/gr stats [reset|dump] &7- Статистика производительности"));
+        sender.sendMessage(config.formatRawMessage("&e/gr stats player <игрок> &7- Статистика наездника"));
+        sender.sendMessage(config.formatRawMessage("&e/gr top [показатель] &7- Лучшие наездники"));
+        sender.sendMessage(config.formatRawMessage("&e/gr caravan [off] &7- Повести козлов на поводке караваном"));
         sender.sendMessage(config.formatRawMessage("&e/gr help &7- Показать эту справку"));
         sender.sendMessage(config.formatRawMessage(""));
         sender.sendMessage(config.formatRawMessage("&6Управление:"));
@@ -98,9 +372,53 @@ public class GoatRiderCommand implements CommandExecutor, TabCompleter {
             if ("info".startsWith(input)) {
                 completions.add("info");
             }
+            if ("stats".startsWith(input)
+                    && (sender.hasPermission("goatrider.admin") || sender.hasPermission("goatrider.stats"))) {
+                completions.add("stats");
+            }
+            if ("top".startsWith(input) && sender.hasPermission("goatrider.stats")) {
+                completions.add("top");
+            }
+            if ("caravan".startsWith(input) && sender.hasPermission("goatrider.caravan")) {
+                completions.add("caravan");
+            }
             if ("help".startsWith(input)) {
                 completions.add("help");
             }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            String input = args[1].toLowerCase();
+            
+            if (sender.hasPermission("goatrider.admin")) {
+                for (String option : List.of("reset", "dump")) {
+                    if (option.startsWith(input)) {
+                        completions.add(option);
+                    }
+                }
+            }
+            if ("player".startsWith(input) && sender.hasPermission("goatrider.stats")) {
+                completions.add("player");
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("stats") && args[1].equalsIgnoreCase("player")
+                && sender.hasPermission("goatrider.stats")) {
+            String input = args[2].toLowerCase();
+            
+            for (Player online : plugin.getServer().getOnlinePlayers()) {
+                if (online.getName().toLowerCase().startsWith(input)) {
+                    completions.add(online.getName());
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("top") && sender.hasPermission("goatrider.stats")) {
+            String input = args[1].toLowerCase();
+            
+            for (RiderStats.Metric metric : RiderStats.Metric.values()) {
+                if (metric.getKey().startsWith(input)) {
+                    completions.add(metric.getKey());
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("caravan") && sender.hasPermission("goatrider.caravan")) {
+            if ("off".startsWith(args[1].toLowerCase())) {
+                completions.add("off");
+            }
         }
 
         return completions;
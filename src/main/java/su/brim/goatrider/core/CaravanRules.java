@@ -0,0 +1,49 @@
+package su.brim.goatrider.core;
+
+/**
+ * Правила движения каравана без Bukkit: ведомые козлы идут цепочкой за ведущим.
+ * Движение ведущего считается один раз за тик, ведомые получают ту же скорость плюс
+ * ограниченную поправку к своему месту в строю - без собственного поиска пути.
+ */
+public final class CaravanRules {
+
+    // Доля расстояния до места в строю, которая исправляется за тик
+    public static final double CORRECTION_GAIN = 0.25;
+
+    // Предельная поправка к скорости ведущего за тик (блоков)
+    public static final double MAX_CORRECTION = 0.3;
+
+    // Ведомый прыгает, если его место в строю выше хотя бы на столько
+    public static final double JUMP_HEIGHT = 0.6;
+
+    private CaravanRules() {
+    }
+
+    /**
+     * Координата места в строю: позади ведущего вдоль его направления движения.
+     * @param leader координата ведущего
+     * @param heading компонента нормализованного направления движения ведущего
+     * @param index номер ведомого, начиная с 0
+     * @param spacing расстояние между соседями в цепочке
+     */
+    public static double slot(double leader, double heading, int index, double spacing) {
+        return leader - heading * spacing * (index + 1);
+    }
+
+    /**
+     * Множитель поправки: поправка {@code offset * CORRECTION_GAIN}, ограниченная по длине {@link #MAX_CORRECTION}.
+     * @param offsetX смещение ведомого до места в строю по X
+     * @param offsetZ смещение ведомого до места в строю по Z
+     */
+    public static double correctionFactor(double offsetX, double offsetZ) {
+        double length = Math.sqrt(offsetX * offsetX + offsetZ * offsetZ) * CORRECTION_GAIN;
+        return length > MAX_CORRECTION ? CORRECTION_GAIN * MAX_CORRECTION / length : CORRECTION_GAIN;
+    }
+
+    /**
+     * Прыгает ли ведомый, чтобы подняться к своему месту в строю.
+     */
+    public static boolean shouldJump(boolean onGround, double slotY, double followerY) {
+        return onGround && slotY - followerY > JUMP_HEIGHT;
+    }
+}
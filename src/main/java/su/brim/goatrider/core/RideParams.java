@@ -0,0 +1,64 @@
+package su.brim.goatrider.core;
+
+/**
+ * Параметры езды, от которых зависят правила {@link RidingRules}.
+ * Без типов Bukkit: на сервере входят в снимок конфигурации, в симуляторе задаются напрямую.
+ *
+ * @param speed базовая скорость козла
+ * @param jumpStrength вертикальная скорость прыжка
+ * @param multiJump разрешены ли прыжки в воздухе
+ * @param extraJumps количество прыжков в воздухе
+ * @param sprintMultiplier множитель скорости при спринте
+ * @param doubleTapTime окно double-tap W в миллисекундах (как в конфиге)
+ * @param doubleTapTicks то же окно в тиках
+ * @param staminaTicks запас выносливости: сколько тиков можно спринтовать с полного запаса (0 - без ограничения)
+ * @param staminaRechargeTicks за сколько тиков запас восстанавливается с нуля до полного
+ * @param staminaRechargeDelay через сколько тиков после конца спринта начинается восстановление
+ * @param staminaRestartTicks сколько запаса нужно, чтобы снова начать спринт
+ */
+public record RideParams(
+        double speed,
+        double jumpStrength,
+        boolean multiJump,
+        int extraJumps,
+        double sprintMultiplier,
+        long doubleTapTime,
+        long doubleTapTicks,
+        long staminaTicks,
+        long staminaRechargeTicks,
+        long staminaRechargeDelay,
+        long staminaRestartTicks
+) {
+
+    /**
+     * Создаёт параметры без ограничения спринта, переводя окно double-tap в тики (50мс, с округлением вверх).
+     */
+    public static RideParams of(double speed, double jumpStrength, boolean multiJump, int extraJumps,
+                                double sprintMultiplier, long doubleTapTime) {
+        return new RideParams(speed, jumpStrength, multiJump, extraJumps, sprintMultiplier,
+                doubleTapTime, (doubleTapTime + 49) / 50, 0L, 0L, 0L, 0L);
+    }
+
+    /**
+     * Те же параметры с выносливостью спринта; время задаётся в секундах, как в конфиге.
+     * @param duration сколько секунд длится спринт с полного запаса (0 - без ограничения)
+     * @param rechargeTime за сколько секунд запас восстанавливается полностью
+     * @param rechargeDelay пауза перед восстановлением в секундах
+     * @param restartThreshold доля запаса, с которой можно снова начать спринт
+     */
+    public RideParams withStamina(double duration, double rechargeTime, double rechargeDelay, double restartThreshold) {
+        long stamina = Math.max(0L, Math.round(duration * 20.0));
+        return new RideParams(speed, jumpStrength, multiJump, extraJumps, sprintMultiplier, doubleTapTime, doubleTapTicks,
+                stamina,
+                Math.max(1L, Math.round(rechargeTime * 20.0)),
+                Math.max(0L, Math.round(rechargeDelay * 20.0)),
+                Math.round(stamina * Math.max(0.0, Math.min(1.0, restartThreshold))));
+    }
+
+    /**
+     * Ограничен ли спринт выносливостью.
+     */
+    public boolean hasStamina() {
+        return staminaTicks > 0;
+    }
+}
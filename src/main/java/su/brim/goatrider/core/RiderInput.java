@@ -0,0 +1,98 @@
+package su.brim.goatrider.core;
+
+/**
+ * Ввод наездника за тик, упакованный в битовую маску {@code int}.
+ * На сервере маска собирается из {@code PlayerInputEvent}, в симуляторе - из сценария,
+ * поэтому правила езды не зависят от Bukkit и ничего не создают на каждый тик.
+ */
+public final class RiderInput {
+
+    public static final int NONE = 0;
+    public static final int FORWARD = 1;
+    public static final int BACKWARD = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+    public static final int JUMP = 1 << 4;
+    public static final int SPRINT = 1 << 5;
+    public static final int SNEAK = 1 << 6;
+
+    // Буквы клавиш для сценариев в порядке битов: W S A D, прыжок, Ctrl (спринт), Shift
+    private static final String KEYS = "WSADJCX";
+
+    private RiderInput() {
+    }
+
+    /**
+     * Собирает маску из нажатых клавиш.
+     */
+    public static int of(boolean forward, boolean backward, boolean left, boolean right,
+                         boolean jump, boolean sprint, boolean sneak) {
+        int input = NONE;
+        if (forward) {
+            input |= FORWARD;
+        }
+        if (backward) {
+            input |= BACKWARD;
+        }
+        if (left) {
+            input |= LEFT;
+        }
+        if (right) {
+            input |= RIGHT;
+        }
+        if (jump) {
+            input |= JUMP;
+        }
+        if (sprint) {
+            input |= SPRINT;
+        }
+        if (sneak) {
+            input |= SNEAK;
+        }
+        return input;
+    }
+
+    /**
+     * Нажата ли клавиша (или любая из нескольких).
+     */
+    public static boolean has(int input, int key) {
+        return (input & key) != 0;
+    }
+
+    /**
+     * Разбирает клавиши из строки вида {@code "WJ"}: W S A D - движение, J - прыжок, C - спринт, X - приседание.
+     * {@code "-"} - ничего не нажато.
+     * @throws IllegalArgumentException при неизвестной букве
+     */
+    public static int parse(String keys) {
+        int input = NONE;
+        for (int i = 0; i < keys.length(); i++) {
+            char key = Character.toUpperCase(keys.charAt(i));
+            if (key == '-') {
+                continue;
+            }
+            int bit = KEYS.indexOf(key);
+            if (bit < 0) {
+                throw new IllegalArgumentException("Неизвестная клавиша '" + key + "' в \"" + keys + "\"");
+            }
+            input |= 1 << bit;
+        }
+        return input;
+    }
+
+    /**
+     * Маска в виде строки клавиш, обратная {@link #parse(String)}.
+     */
+    public static String format(int input) {
+        if (input == NONE) {
+            return "-";
+        }
+        StringBuilder keys = new StringBuilder();
+        for (int bit = 0; bit < KEYS.length(); bit++) {
+            if ((input & (1 << bit)) != 0) {
+                keys.append(KEYS.charAt(bit));
+            }
+        }
+        return keys.toString();
+    }
+}
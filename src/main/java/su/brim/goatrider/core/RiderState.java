@@ -0,0 +1,84 @@
+package su.brim.goatrider.core;
+
+/**
+ * Состояние наездника, которое изменяют правила {@link RidingRules}: часы, прыжки, спринт,
+ * кулдауны тарана и рассчитанное горизонтальное движение.
+ * Не зависит от Bukkit: на сервере его расширяет сессия езды, в симуляторе - виртуальный наездник.
+ * Все поля примитивные, изменяются только из потока, который ведёт наездника.
+ */
+public class RiderState {
+
+    // Метка "события не было", далёкая от любого реального тика, но без переполнения при вычитании
+    public static final long NEVER = Long.MIN_VALUE / 2;
+
+    // Часы наездника: на сервере - тики жизни козла, идут вместе с тиками его региона
+    long tick;
+
+    // Оставшиеся дополнительные прыжки в воздухе
+    int jumpsRemaining;
+
+    // Тик последнего прыжка (для кулдауна)
+    long lastJumpTick = NEVER;
+
+    // Отслеживание double-tap W для спринта
+    long lastForwardPressTick = NEVER;
+    boolean wasForwardPressed;
+    boolean sprintActive;
+
+    // Выносливость не уменьшается по тикам: хранится потраченный запас на момент staminaTick, а текущее
+    // значение считается по формуле при чтении. Меняется только при начале и конце спринта
+    double staminaSpent;
+    long staminaTick = NEVER;
+    long staminaEmptyTick = NEVER;
+
+    // Кулдауны тарана по целям этого наездника
+    final TickCooldowns ramCooldowns = new TickCooldowns(RidingRules.RAM_COOLDOWN_TICKS);
+
+    // Горизонтальное движение, рассчитанное в этом тике
+    double motionX;
+    double motionZ;
+
+    public RiderState(int extraJumps) {
+        this.jumpsRemaining = extraJumps;
+    }
+
+    /**
+     * Продвигает часы. Вызывается в начале каждого тика наездника.
+     * @param tick текущий тик (монотонный)
+     */
+    public void advanceTick(long tick) {
+        this.tick = tick;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getJumpsRemaining() {
+        return jumpsRemaining;
+    }
+
+    /**
+     * Ограничивает оставшиеся прыжки новым лимитом (после смены параметров).
+     */
+    public void capJumps(int extraJumps) {
+        jumpsRemaining = Math.min(jumpsRemaining, extraJumps);
+    }
+
+    public boolean isSprinting() {
+        return sprintActive;
+    }
+
+    public void setMotion(double motionX, double motionZ) {
+        this.motionX = motionX;
+        this.motionZ = motionZ;
+    }
+
+    public double getMotionX() {
+        return motionX;
+    }
+
+    public double getMotionZ() {
+        return motionZ;
+    }
+}
@@ -0,0 +1,298 @@
+package su.brim.goatrider.core;
+
+import su.brim.goatrider.util.MovementMath;
+
+import java.util.UUID;
+
+/**
+ * Правила езды на козле без Bukkit: спринт, движение, прыжки и кулдаун тарана.
+ * Работают только с {@link RiderState}, {@link RideParams} и маской {@link RiderInput},
+ * поэтому одинаково выполняются в задаче управления на сервере и в headless-симуляторе.
+ * Физику (гравитацию, трение, столкновения) ведёт сервер; правила только решают, что отправить козлу.
+ */
+public final class RidingRules {
+
+    // Кулдаун урона тарана в тиках (10 тиков = 500мс при 20 TPS)
+    public static final int RAM_COOLDOWN_TICKS = 10;
+
+    // Кулдаун прыжка в тиках (4 тика = 200мс при 20 TPS)
+    public static final int JUMP_COOLDOWN_TICKS = 4;
+
+    // Назад козёл идёт вдвое медленнее, вбок - на 70% скорости
+    public static final double BACKWARD_FACTOR = 0.5;
+    public static final double STRAFE_FACTOR = 0.7;
+
+    // Движение меньше этого (в квадрате) считается стоянием на месте
+    public static final double MIN_MOTION_SQUARED = 0.001;
+
+    // Дальность тарана вперёд от козла и косинус допустимого угла к направлению движения
+    public static final double RAM_REACH = 1.5;
+    public static final double RAM_FACING_COS = 0.5;
+
+    private RidingRules() {
+    }
+
+    /**
+     * Выполняет правила одного тика в том же порядке, что и задача управления:
+     * спринт, движение, прыжок, сброс прыжков на земле.
+     * Часы состояния должны быть уже продвинуты.
+     * @param yaw направление взгляда наездника
+     * @param onGround стоит ли козёл на земле
+     * @return true, если в этом тике козёл прыгнул
+     */
+    public static boolean step(RiderState state, RideParams params, float yaw, int input, boolean onGround) {
+        boolean sprinting = updateSprint(state, params,
+                RiderInput.has(input, RiderInput.FORWARD), RiderInput.has(input, RiderInput.SPRINT));
+        computeMotion(state, params, yaw, input, sprinting);
+
+        boolean jumped = RiderInput.has(input, RiderInput.JUMP) && tryJump(state, params, onGround);
+        if (onGround) {
+            resetJumps(state, params);
+        }
+        return jumped;
+    }
+
+    /**
+     * Обновление спринта для ввода, который читается раз в тик (симулятор):
+     * нажатие W определяется сравнением с прошлым тиком.
+     */
+    public static boolean updateSprint(RiderState state, RideParams params,
+                                       boolean forwardPressed, boolean sprintKeyPressed) {
+        return updateSprint(state, params, forwardPressed, sprintKeyPressed,
+                forwardPressed && !state.wasForwardPressed);
+    }
+
+    /**
+     * Обновляет состояние спринта на основе нажатия W и кнопки спринта.
+     * Реализует логику double-tap W или удержания клавиши спринта.
+     * @param forwardPressed нажата ли клавиша W сейчас
+     * @param sprintKeyPressed нажата ли клавиша спринта (Ctrl)
+     * @param forwardPress была ли W нажата (переход отпущена -> нажата) с прошлого тика;
+     *                     на сервере приходит из событий ввода и ловит нажатия короче тика
+     * @return true если спринт активен
+     */
+    public static boolean updateSprint(RiderState state, RideParams params,
+                                       boolean forwardPressed, boolean sprintKeyPressed, boolean forwardPress) {
+        long now = state.tick;
+        boolean sprinting = state.sprintActive;
+
+        // Спринт активен если:
+        // 1. Нажата кнопка спринта + движение вперёд
+        // 2. Или активирован через double-tap W
+
+        // Проверяем кнопку спринта (как в ваниле - нужно двигаться вперёд)
+        if (sprintKeyPressed && forwardPressed) {
+            sprinting = true;
+        }
+        // Если W только что нажата - проверяем double-tap
+        else if (forwardPress) {
+            if (now - state.lastForwardPressTick <= params.doubleTapTicks()) {
+                // Double-tap обнаружен - активируем спринт
+                sprinting = true;
+            }
+
+            // Запоминаем тик нажатия
+            state.lastForwardPressTick = now;
+        }
+
+        // Если W отпущена - деактивируем спринт
+        if (!forwardPressed) {
+            sprinting = false;
+        }
+
+        if (params.hasStamina()) {
+            sprinting = applyStamina(state, params, sprinting, now);
+        }
+
+        state.sprintActive = sprinting;
+        state.wasForwardPressed = forwardPressed;
+        return sprinting;
+    }
+
+    /**
+     * Выносливость при смене состояния спринта. Во время спринта - одно сравнение с тиком, когда запас
+     * кончится; без спринта и без попытки начать его - ничего. Запас пересчитывается по формуле только
+     * при начале и конце спринта.
+     * @param sprinting решение о спринте по вводу
+     * @return решение с учётом выносливости
+     */
+    private static boolean applyStamina(RiderState state, RideParams params, boolean sprinting, long now) {
+        if (sprinting == state.sprintActive) {
+            if (sprinting && now >= state.staminaEmptyTick) {
+                // Запас кончился - спринт обрывается, восстановление начнётся после паузы
+                state.staminaSpent = params.staminaTicks();
+                state.staminaTick = now;
+                return false;
+            }
+            return sprinting;
+        }
+
+        double spent = staminaSpent(state, params, now);
+        if (sprinting) {
+            double left = params.staminaTicks() - spent;
+            if (left < params.staminaRestartTicks() || left <= 0.0) {
+                return false;
+            }
+            state.staminaEmptyTick = now + (long) Math.ceil(left);
+        }
+        state.staminaSpent = spent;
+        state.staminaTick = now;
+        return sprinting;
+    }
+
+    /**
+     * Переводит выносливость наездника на новые параметры (после перезагрузки конфига).
+     * Только что включённая выносливость начинается с полного запаса; при смене длительности
+     * потраченное сохраняется в пределах нового запаса. Идущий спринт получает тик, когда запас кончится:
+     * без этого он бы оборвался на следующем тике.
+     */
+    public static void syncStamina(RiderState state, RideParams previous, RideParams params) {
+        if (!params.hasStamina()
+                || (previous.hasStamina() && previous.staminaTicks() == params.staminaTicks())) {
+            return;
+        }
+        long now = state.tick;
+        double spent = previous.hasStamina()
+                ? Math.min(params.staminaTicks(), staminaSpent(state, previous, now))
+                : 0.0;
+        state.staminaSpent = spent;
+        state.staminaTick = now;
+        state.staminaEmptyTick = state.sprintActive ? now + (long) Math.ceil(params.staminaTicks() - spent) : RiderState.NEVER;
+    }
+
+    /**
+     * Потраченный запас выносливости на тик в закрытой форме: во время спринта растёт на 1 за тик,
+     * после него, выждав паузу, убывает со скоростью полного восстановления.
+     */
+    private static double staminaSpent(RiderState state, RideParams params, long now) {
+        long elapsed = now - state.staminaTick;
+        if (state.sprintActive) {
+            return Math.min(params.staminaTicks(), state.staminaSpent + elapsed);
+        }
+        long recharging = elapsed - params.staminaRechargeDelay();
+        if (recharging <= 0) {
+            return state.staminaSpent;
+        }
+        double recharged = recharging * (double) params.staminaTicks() / params.staminaRechargeTicks();
+        return Math.max(0.0, state.staminaSpent - recharged);
+    }
+
+    /**
+     * Оставшаяся выносливость от 0 до 1 на текущий тик состояния. Считается только при чтении,
+     * например для отображения наезднику; без ограничения спринта всегда 1.
+     */
+    public static double stamina(RiderState state, RideParams params) {
+        if (!params.hasStamina()) {
+            return 1.0;
+        }
+        return Math.max(0.0, 1.0 - staminaSpent(state, params, state.tick) / params.staminaTicks());
+    }
+
+    /**
+     * Рассчитывает горизонтальное движение на основе ввода и записывает его в состояние.
+     * Работает на примитивах через таблицу sin/cos, ничего не создаёт.
+     */
+    public static void computeMotion(RiderState state, RideParams params, float yaw, int input, boolean sprinting) {
+        double speed = params.speed();
+        if (sprinting) {
+            speed *= params.sprintMultiplier();
+        }
+
+        // W - вперёд, S - назад (медленнее)
+        double forward = 0.0;
+        if (RiderInput.has(input, RiderInput.FORWARD)) {
+            forward += speed;
+        }
+        if (RiderInput.has(input, RiderInput.BACKWARD)) {
+            forward -= speed * BACKWARD_FACTOR;
+        }
+
+        // A - влево, D - вправо
+        double strafe = 0.0;
+        if (RiderInput.has(input, RiderInput.LEFT)) {
+            strafe -= speed * STRAFE_FACTOR;
+        }
+        if (RiderInput.has(input, RiderInput.RIGHT)) {
+            strafe += speed * STRAFE_FACTOR;
+        }
+
+        state.motionX = MovementMath.motionX(yaw, forward, strafe);
+        state.motionZ = MovementMath.motionZ(yaw, forward, strafe);
+    }
+
+    /**
+     * Есть ли заметное горизонтальное движение, которое нужно отправить козлу.
+     */
+    public static boolean hasMotion(RiderState state) {
+        return state.motionX * state.motionX + state.motionZ * state.motionZ > MIN_MOTION_SQUARED;
+    }
+
+    /**
+     * Решает, прыгает ли козёл: с земли всегда, в воздухе - за счёт дополнительного прыжка.
+     * Попытка прыжка ставит кулдаун, даже если прыгнуть не удалось.
+     * @return true, если козлу нужно задать вертикальную скорость {@link RideParams#jumpStrength()}
+     */
+    public static boolean tryJump(RiderState state, RideParams params, boolean onGround) {
+        if (!canJump(state)) {
+            return false;
+        }
+        if (onGround) {
+            return true;
+        }
+        return params.multiJump() && useJump(state);
+    }
+
+    /**
+     * Проверяет и устанавливает кулдаун прыжка.
+     * @return true, если прыжок разрешён (кулдаун прошёл)
+     */
+    public static boolean canJump(RiderState state) {
+        if (state.tick - state.lastJumpTick >= JUMP_COOLDOWN_TICKS) {
+            state.lastJumpTick = state.tick;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Использует один прыжок в воздухе. Возвращает true, если прыжок был доступен.
+     */
+    public static boolean useJump(RiderState state) {
+        if (state.jumpsRemaining > 0) {
+            state.jumpsRemaining--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Сбрасывает счётчик прыжков (козёл на земле).
+     */
+    public static void resetJumps(RiderState state, RideParams params) {
+        state.jumpsRemaining = params.extraJumps();
+    }
+
+    /**
+     * Проверяет, можно ли нанести урон тараном данной цели.
+     * Возвращает true и устанавливает кулдаун, если урон разрешён.
+     * Кулдаун считается в тиках наездника, поэтому не "сгорает" быстрее при лагах региона,
+     * а истёкшие записи удаляются колесом таймеров без отдельной очистки.
+     */
+    public static boolean canRamDamage(RiderState state, UUID target) {
+        return state.ramCooldowns.tryAcquire(target, state.tick, RAM_COOLDOWN_TICKS);
+    }
+
+    /**
+     * Находится ли цель перед козлом: косинус угла между направлением движения и направлением на цель
+     * больше {@link #RAM_FACING_COS}.
+     * @param dirX нормализованное направление движения по X
+     * @param dirZ нормализованное направление движения по Z
+     * @param toX смещение цели от козла по X
+     * @param toY смещение цели от козла по Y
+     * @param toZ смещение цели от козла по Z
+     */
+    public static boolean isInRamCone(double dirX, double dirZ, double toX, double toY, double toZ) {
+        double distanceSquared = toX * toX + toY * toY + toZ * toZ;
+        return distanceSquared > 0 && (toX * dirX + toZ * dirZ) > RAM_FACING_COS * Math.sqrt(distanceSquared);
+    }
+}
@@ -0,0 +1,115 @@
+package su.brim.goatrider.core;
+
+/**
+ * Правила авто-шага без Bukkit: осмотр блоков перед козлом по каждой оси движения.
+ * Невысокое препятствие козёл перепрыгивает сам, стену - не толкает: скорость вдоль этой оси
+ * обнуляется, и сервер не тратит тики физики на упор в блок. Движение вдоль другой оси
+ * сохраняется, поэтому козёл скользит вдоль стены.
+ */
+public final class StepRules {
+
+    // Высота, на которую сущность поднимается ванильной физикой без прыжка
+    public static final double VANILLA_STEP_HEIGHT = 0.6;
+
+    // Половина ширины хитбокса козла
+    public static final double GOAT_HALF_WIDTH = 0.45;
+
+    // Запас по высоте прыжка над препятствием
+    private static final double STEP_MARGIN = 0.1;
+
+    // Гравитация сущности за тик
+    private static final double GRAVITY = 0.08;
+
+    // Высота препятствия, которое нельзя перешагнуть (нет места над ним)
+    private static final double BLOCKED = Double.MAX_VALUE;
+
+    /**
+     * Верх формы столкновения блоков.
+     */
+    @FunctionalInterface
+    public interface BlockHeights {
+
+        /**
+         * Верх формы столкновения блока относительно его нижней грани
+         * (0 - блок проходим, 1 - полный блок, 1.5 - забор).
+         */
+        double collisionTop(int x, int y, int z);
+    }
+
+    private StepRules() {
+    }
+
+    /**
+     * Осматривает блоки перед козлом вдоль рассчитанного движения состояния: обнуляет
+     * составляющие движения, упирающиеся в стену, и определяет прыжок на ступень.
+     * @param x позиция козла
+     * @param y высота ног козла
+     * @param z позиция козла
+     * @param onGround стоит ли козёл на земле (прыгнуть на ступень можно только с земли)
+     * @param maxStepHeight максимальная высота ступени, на которую козёл запрыгивает сам
+     * @return вертикальная скорость прыжка на ступень или 0, если прыгать не нужно
+     */
+    public static double apply(RiderState state, BlockHeights heights, double x, double y, double z,
+                               boolean onGround, double maxStepHeight) {
+        double motionX = state.motionX;
+        double motionZ = state.motionZ;
+        double stepHeight = 0.0;
+
+        if (motionX != 0.0) {
+            int aheadX = floor(x + Math.signum(motionX) * (GOAT_HALF_WIDTH + Math.abs(motionX)));
+            double height = Math.max(obstacleHeight(heights, aheadX, y, floor(z - GOAT_HALF_WIDTH)),
+                    obstacleHeight(heights, aheadX, y, floor(z + GOAT_HALF_WIDTH)));
+            if (height > maxStepHeight) {
+                motionX = 0.0;
+            } else {
+                stepHeight = height;
+            }
+        }
+        if (motionZ != 0.0) {
+            int aheadZ = floor(z + Math.signum(motionZ) * (GOAT_HALF_WIDTH + Math.abs(motionZ)));
+            double height = Math.max(obstacleHeight(heights, floor(x - GOAT_HALF_WIDTH), y, aheadZ),
+                    obstacleHeight(heights, floor(x + GOAT_HALF_WIDTH), y, aheadZ));
+            if (height > maxStepHeight) {
+                motionZ = 0.0;
+            } else {
+                stepHeight = Math.max(stepHeight, height);
+            }
+        }
+
+        state.setMotion(motionX, motionZ);
+        return onGround && stepHeight > VANILLA_STEP_HEIGHT ? stepVelocity(stepHeight) : 0.0;
+    }
+
+    /**
+     * Высота препятствия в столбце блоков над ногами козла: 0 - свободно,
+     * {@link #BLOCKED} - нет места для козла над препятствием.
+     */
+    static double obstacleHeight(BlockHeights heights, int x, double y, int z) {
+        int feetY = floor(y);
+        double top = heights.collisionTop(x, feetY, z);
+        double height = top > 0.0 ? feetY + top - y : 0.0;
+
+        // Блок над уровнем ног - препятствие выше блока, козлу (1.3 блока) нужно и место над ступенью
+        double above = heights.collisionTop(x, feetY + 1, z);
+        if (above > 0.0) {
+            height = Math.max(height, feetY + 1 + above - y);
+        }
+        if (height > VANILLA_STEP_HEIGHT && heights.collisionTop(x, feetY + 2, z) > 0.0) {
+            return BLOCKED;
+        }
+        return Math.max(0.0, height);
+    }
+
+    /**
+     * Вертикальная скорость, которой хватает, чтобы подняться на высоту с запасом.
+     * Непрерывная оценка ниже дискретной ванильной траектории, поэтому высоты хватает всегда.
+     */
+    public static double stepVelocity(double height) {
+        return Math.sqrt(2.0 * GRAVITY * (height + STEP_MARGIN));
+    }
+
+    private static int floor(double value) {
+        int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+}
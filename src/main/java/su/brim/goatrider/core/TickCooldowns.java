@@ -0,0 +1,158 @@
+package su.brim.goatrider.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Кулдауны по ключу, отсчитываемые в тиках и истекающие сами.
+ * Реализовано как хешированное колесо таймеров: запись кладётся в ячейку своего тика истечения,
+ * и при продвижении часов просматриваются только ячейки пройденных тиков.
+ * Проверка стоит O(1), глобальной очистки нет, а память ограничена записями,
+ * поставленными за последний оборот колеса.
+ * <p>
+ * Не потокобезопасен: экземпляр принадлежит одной сессии и используется только из потока региона козла.
+ * Часы должны быть монотонными (например, {@code Entity#getTicksLived()}).
+ */
+public final class TickCooldowns {
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final ArrayList<Entry>[] wheel;
+    private final int mask;
+
+    // Последний тик, до которого колесо уже прокручено
+    private long cursor;
+
+    /**
+     * @param maxCooldownTicks максимальный кулдаун, который будет использоваться с этим экземпляром
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TickCooldowns(int maxCooldownTicks) {
+        if (maxCooldownTicks <= 0) {
+            throw new IllegalArgumentException("maxCooldownTicks должен быть положительным: " + maxCooldownTicks);
+        }
+        // Размер колеса - степень двойки, строго больше максимального кулдауна
+        int size = Integer.highestOneBit(maxCooldownTicks) << 1;
+        this.wheel = new ArrayList[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Проверяет кулдаун ключа и, если он прошёл, ставит новый.
+     * @param key ключ (например, UUID цели тарана)
+     * @param now текущий тик
+     * @param cooldownTicks длительность кулдауна в тиках
+     * @return true, если кулдаун прошёл и был поставлен заново
+     */
+    public boolean tryAcquire(UUID key, long now, int cooldownTicks) {
+        if (cooldownTicks > mask) {
+            throw new IllegalArgumentException("Кулдаун " + cooldownTicks + " больше размера колеса " + mask);
+        }
+        advance(now);
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiry > now) {
+            return false;
+        }
+        if (entry == null) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+        }
+
+        entry.expiry = now + cooldownTicks;
+        int slot = (int) (entry.expiry & mask);
+        // Запись уже лежит в этой ячейке - второй раз не добавляем
+        if (entry.slot != slot) {
+            entry.slot = slot;
+            bucket(slot).add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, действует ли кулдаун ключа, не изменяя его.
+     */
+    public boolean isCoolingDown(UUID key, long now) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.expiry > now;
+    }
+
+    /**
+     * Количество хранимых записей (включая ещё не выметенные истёкшие).
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        for (ArrayList<Entry> bucket : wheel) {
+            if (bucket != null) {
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * Прокручивает колесо до тика now, удаляя истёкшие записи в пройденных ячейках.
+     * За один вызов просматривается не больше одного оборота колеса.
+     */
+    private void advance(long now) {
+        if (entries.isEmpty()) {
+            cursor = now;
+            return;
+        }
+        if (now <= cursor) {
+            return;
+        }
+
+        long steps = Math.min(now - cursor, wheel.length);
+        for (long i = 1; i <= steps; i++) {
+            sweep((int) ((cursor + i) & mask), now);
+        }
+        cursor = now;
+    }
+
+    private void sweep(int slot, long now) {
+        ArrayList<Entry> bucket = wheel[slot];
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+
+        // Удаление перестановкой последнего элемента - без итераторов и лямбд
+        for (int i = bucket.size() - 1; i >= 0; i--) {
+            Entry entry = bucket.get(i);
+            boolean stale = entry.slot != slot;
+            if (!stale && entry.expiry <= now) {
+                entries.remove(entry.key);
+                entry.slot = -1;
+                stale = true;
+            }
+            if (stale) {
+                int last = bucket.size() - 1;
+                bucket.set(i, bucket.get(last));
+                bucket.remove(last);
+            }
+        }
+    }
+
+    private ArrayList<Entry> bucket(int slot) {
+        ArrayList<Entry> bucket = wheel[slot];
+        if (bucket == null) {
+            bucket = new ArrayList<>(4);
+            wheel[slot] = bucket;
+        }
+        return bucket;
+    }
+
+    private static final class Entry {
+        final UUID key;
+        long expiry;
+        int slot = -1;
+
+        Entry(UUID key) {
+            this.key = key;
+        }
+    }
+}
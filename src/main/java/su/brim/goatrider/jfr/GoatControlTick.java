@@ -0,0 +1,50 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Выборочный тик задачи управления козлом: длительность тела задачи и его результат.
+ * Пишется не чаще раза в stats.jfr-tick-sample тиков на наездника.
+ */
+@Name("su.brim.goatrider.ControlTick")
+@Label("Goat Control Tick")
+@Description("Sampled goat control task tick")
+public class GoatControlTick extends GoatRiderEvent {
+
+    @Label("Input")
+    @Description("Rider input bit mask (W=1 S=2 A=4 D=8 jump=16 sprint=32 sneak=64)")
+    int input;
+
+    @Label("Sprinting")
+    boolean sprinting;
+
+    @Label("Speed")
+    @Description("Horizontal speed sent to the goat, blocks per tick")
+    double speed;
+
+    @Label("Load Stage")
+    @Description("Load shedding stage, 0 - full rate")
+    int loadStage;
+
+    @Label("Caravan Followers")
+    int followers;
+
+    /**
+     * Заполняет поля и коммитит событие, если JFR его записывает.
+     */
+    public void commit(RiderSession session, int input, boolean sprinting, double speed, int followers) {
+        if (!shouldCommit()) {
+            return;
+        }
+        setRide(session);
+        this.input = input;
+        this.sprinting = sprinting;
+        this.speed = speed;
+        this.loadStage = session.getLoadStage() != null ? session.getLoadStage().level() : 0;
+        this.followers = followers;
+        commit();
+    }
+}
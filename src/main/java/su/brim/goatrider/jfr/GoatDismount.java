@@ -0,0 +1,36 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Конец сессии езды с её длительностью.
+ */
+@Name("su.brim.goatrider.Dismount")
+@Label("Goat Dismount")
+@Description("Rider session ended")
+public class GoatDismount extends GoatRiderEvent {
+
+    @Label("Session")
+    int session;
+
+    @Label("Ride Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long rideDuration;
+
+    /**
+     * Заполняет поля и коммитит событие, если JFR его записывает.
+     */
+    public void commit(RiderSession session) {
+        if (!shouldCommit()) {
+            return;
+        }
+        setRide(session);
+        this.session = session.getSessionNumber();
+        this.rideDuration = System.nanoTime() - session.getMountNanos();
+        commit();
+    }
+}
@@ -0,0 +1,43 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Прыжок козла: по кнопке наездника или авто-шаг на препятствие.
+ */
+@Name("su.brim.goatrider.Jump")
+@Label("Goat Jump")
+@Description("Goat jump by rider input or auto-step")
+public class GoatJump extends GoatRiderEvent {
+
+    @Label("Air Jump")
+    boolean airJump;
+
+    @Label("Auto-step")
+    boolean autoStep;
+
+    @Label("Velocity")
+    @Description("Vertical velocity sent to the goat")
+    double velocity;
+
+    @Label("Jumps Remaining")
+    int jumpsRemaining;
+
+    /**
+     * Заполняет поля и коммитит событие, если JFR его записывает.
+     */
+    public void commit(RiderSession session, boolean airJump, boolean autoStep, double velocity) {
+        if (!shouldCommit()) {
+            return;
+        }
+        setRide(session);
+        this.airJump = airJump;
+        this.autoStep = autoStep;
+        this.velocity = velocity;
+        this.jumpsRemaining = session.getJumpsRemaining();
+        commit();
+    }
+}
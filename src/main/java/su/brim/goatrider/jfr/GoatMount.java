@@ -0,0 +1,30 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Начало сессии езды.
+ */
+@Name("su.brim.goatrider.Mount")
+@Label("Goat Mount")
+@Description("Rider session started")
+public class GoatMount extends GoatRiderEvent {
+
+    @Label("Session")
+    int session;
+
+    /**
+     * Заполняет поля и коммитит событие, если JFR его записывает.
+     */
+    public void commit(RiderSession session) {
+        if (!shouldCommit()) {
+            return;
+        }
+        setRide(session);
+        this.session = session.getSessionNumber();
+        commit();
+    }
+}
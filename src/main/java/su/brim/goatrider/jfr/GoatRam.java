@@ -0,0 +1,36 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Запрос тарана, который задел хотя бы одну цель: длительность запроса, число кандидатов и ударов.
+ */
+@Name("su.brim.goatrider.Ram")
+@Label("Goat Ram")
+@Description("Goat ram query that damaged at least one target")
+public class GoatRam extends GoatRiderEvent {
+
+    @Label("Candidates")
+    @Description("Entities returned by the sweep query")
+    int candidates;
+
+    @Label("Hits")
+    @Description("Targets damaged by this ram")
+    int hits;
+
+    /**
+     * Заполняет поля и коммитит событие, если JFR его записывает.
+     */
+    public void commit(RiderSession session, int candidates, int hits) {
+        if (!shouldCommit()) {
+            return;
+        }
+        setRide(session);
+        this.candidates = candidates;
+        this.hits = hits;
+        commit();
+    }
+}
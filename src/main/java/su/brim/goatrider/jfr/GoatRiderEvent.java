@@ -0,0 +1,44 @@
+package su.brim.goatrider.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import su.brim.goatrider.manager.RiderSession;
+
+/**
+ * Общие поля событий Java Flight Recorder плагина: наездник, козёл и место.
+ * Folia не раскрывает идентификатор региона, поэтому место записывается миром и чанком козла,
+ * а поток региона JFR пишет в каждое событие сам.
+ * Поля заполняются только после {@link #shouldCommit()}: без записи JFR событие не заполняется и не коммитится.
+ */
+@Category("GoatRider")
+@StackTrace(false)
+abstract class GoatRiderEvent extends Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("Goat")
+    String goat;
+
+    @Label("World")
+    String world;
+
+    @Label("Chunk X")
+    int chunkX;
+
+    @Label("Chunk Z")
+    int chunkZ;
+
+    /**
+     * Заполняет общие поля по сессии езды.
+     */
+    void setRide(RiderSession session) {
+        player = session.getPlayerId().toString();
+        goat = session.getGoatId().toString();
+        world = session.getWorld() != null ? session.getWorld().getName() : null;
+        chunkX = session.getChunkX();
+        chunkZ = session.getChunkZ();
+    }
+}
@@ -1,6 +1,6 @@
 package su.brim.goatrider.listener;
 
-import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Goat;
@@ -10,28 +10,80 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDismountEvent;
+import org.bukkit.event.player.PlayerInputEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.util.BoundingBox;
 import org.bukkit.util.Vector;
 import org.bukkit.event.entity.EntityMountEvent;
 import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.core.CaravanRules;
+import su.brim.goatrider.core.RideParams;
+import su.brim.goatrider.core.RiderInput;
+import su.brim.goatrider.core.RidingRules;
+import su.brim.goatrider.core.StepRules;
+import su.brim.goatrider.jfr.GoatControlTick;
+import su.brim.goatrider.jfr.GoatJump;
+import su.brim.goatrider.jfr.GoatRam;
+import su.brim.goatrider.manager.Caravan;
+import su.brim.goatrider.manager.CollisionCache;
 import su.brim.goatrider.manager.ConfigManager;
+import su.brim.goatrider.manager.LoadStage;
+import su.brim.goatrider.manager.RiderSession;
+import su.brim.goatrider.manager.Settings;
+import su.brim.goatrider.manager.TaskRegistry;
+import su.brim.goatrider.stats.PerformanceStats;
+import su.brim.goatrider.stats.TickPhase;
+import su.brim.goatrider.trace.TraceFormat;
+import su.brim.goatrider.trace.TraceRecorder;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
 import su.brim.goatrider.manager.RidingManager;
 
 /**
  * Слушатель для управления движением козла при езде.
+ * Зарегистрирован, только пока кто-то едет (см. {@link RidingListeners}).
  * Использует EntityScheduler для совместимости с Folia.
- * Использует Player#getCurrentInput() API для получения ввода игрока.
+ * Ввод игрока приходит в PlayerInputEvent и хранится в сессии; задача стоящего козла без ввода
+ * паркуется до следующего ввода.
+ * Сами правила езды живут в {@link RidingRules}; здесь - только чтение состояния сервера
+ * и применение результата к козлу.
  */
 public class GoatControlListener implements Listener {
 
     private final GoatRiderPlugin plugin;
     private final ConfigManager config;
     private final RidingManager ridingManager;
+    private final PerformanceStats stats;
+    private final TaskRegistry taskRegistry;
+    private final TraceRecorder traceRecorder;
+    private final CollisionCache collisionCache;
+
+    // Фильтр кандидатов тарана: только живые сущности не из blacklist, проверяется до векторной математики
+    private final Predicate<Entity> ramFilter;
+
+    // Геометрия запроса тарана: запас по бокам/вертикали от AABB козла, как в прежнем getNearbyEntities(1.5, 1.0, 1.5)
+    // (дальность вперёд - в RidingRules)
+    private static final double RAM_SIDE_MARGIN = 1.5;
+    private static final double RAM_VERTICAL_MARGIN = 1.0;
+
+    // Даже при пустом прошлом запросе перезапрашиваем не реже, чем раз в столько тиков
+    private static final long RAM_REQUERY_MAX_TICKS = 5L;
 
     public GoatControlListener(GoatRiderPlugin plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
         this.ridingManager = plugin.getRidingManager();
+        this.stats = plugin.getStats();
+        this.taskRegistry = plugin.getTaskRegistry();
+        this.traceRecorder = plugin.getTraceRecorder();
+        this.collisionCache = plugin.getCollisionCache();
+        this.ramFilter = entity -> entity instanceof LivingEntity
+                && !config.isInRamBlacklist(entity.getType());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -45,173 +97,546 @@ public class GoatControlListener implements Listener {
         }
 
         // Запускаем задачу управления козлом через EntityScheduler
-        startControlTask(player, goat);
+        startControlTask(player, goat, 1L, 1L);
     }
 
     /**
      * Запускает периодическую задачу управления козлом.
      * Использует EntityScheduler для корректной работы в Folia.
+     * При смене ступени разгрузки задача перезапускается с периодом ступени, поэтому каждый её запуск -
+     * полный тик управления, пропущенные тики не стоят ничего. Новая задача того же владельца снимает текущую.
+     * @param delay задержка первого запуска в тиках
+     * @param period период задачи в тиках: 1 или controlPeriod текущей ступени разгрузки
      */
-    private void startControlTask(Player player, Goat goat) {
-        ScheduledTask task = goat.getScheduler().runAtFixedRate(plugin, scheduledTask -> {
-            // Проверяем валидность
-            if (!goat.isValid() || !player.isOnline() || !goat.getPassengers().contains(player)) {
-                scheduledTask.cancel();
-                ridingManager.cancelControlTask(goat.getUniqueId());
+    private void startControlTask(Player player, Goat goat, long delay, long period) {
+        taskRegistry.runAtFixedRate(goat, player.getUniqueId(), TaskRegistry.Kind.CONTROL, scheduledTask -> {
+            // Проверяем валидность; посадка проверяется сравнением ссылок, без копии списка пассажиров
+            if (!goat.isValid() || !player.isOnline() || player.getVehicle() != goat) {
+                taskRegistry.cancel(scheduledTask);
+                stats.increment(PerformanceStats.Counter.TASKS_CANCELLED);
                 return;
             }
 
-            // Получаем направление взгляда игрока
-            Location playerLoc = player.getLocation();
-            float yaw = playerLoc.getYaw();
+            // Сессия ищется один раз за тик, дальше работаем только с ней
+            RiderSession session = ridingManager.getSession(player);
+            if (session == null) {
+                taskRegistry.cancel(scheduledTask);
+                stats.increment(PerformanceStats.Counter.TASKS_CANCELLED);
+                return;
+            }
+            session.advanceTick(goat.getTicksLived());
+            
+            // Снимок настроек на весь тик; при перезагрузке конфига сессия переходит на новый
+            Settings settings = ridingManager.syncSettings(session, player, goat);
+
+            // Выборочное событие JFR; без записи JFR оно не заполняется и не коммитится
+            GoatControlTick tickEvent = null;
+            if (session.getTick() % settings.stats().jfrTickSample() == 0) {
+                tickEvent = new GoatControlTick();
+                tickEvent.begin();
+            }
+
+            // Одна переиспользуемая Location на сессию: сначала читаем взгляд игрока, затем позицию козла
+            Location scratch = session.getScratchLocation();
+            float yaw = player.getLocation(scratch).getYaw();
+            goat.getLocation(scratch);
+            float goatYaw = scratch.getYaw();
+            float goatPitch = scratch.getPitch();
+            double goatX = scratch.getX();
+            double goatY = scratch.getY();
+            double goatZ = scratch.getZ();
+            ridingManager.updatePosition(session, scratch);
+            session.trackMovement(goatX, goatZ);
+
+            // Разгрузка при перегрузке региона: задача идёт реже, дорогие шаги пропускаются
+            LoadStage stage = updateLoadStage(session, scratch);
+            long stagePeriod = controlPeriod(stage);
+            if (stagePeriod != period) {
+                startControlTask(player, goat, alignedDelay(session, stagePeriod), stagePeriod);
+            }
+
+            // Поворачиваем козла в направлении взгляда игрока, только если поворот заметен
+            if ((stage == null || stage.rotationEnabled()) && shouldRotate(session, goat, player, yaw, goatYaw)) {
+                goat.setRotation(yaw, goatPitch);
+            }
 
-            // Поворачиваем козла в направлении взгляда игрока
-            goat.setRotation(yaw, goat.getLocation().getPitch());
+            // Замер фаз для /gr stats: каждая фаза пишется от конца предыдущей
+            long phaseStart = stats.start();
 
-            // Получаем ввод игрока через Paper API
-            var input = player.getCurrentInput();
+            // Ввод - снимок сессии, который обновляют события PlayerInputEvent
+            int input = session.getInput();
+            RideParams ride = settings.ride();
+            phaseStart = stats.lap(TickPhase.INPUT, phaseStart);
             
-            // Обновляем состояние спринта (double-tap W или кнопка спринта)
-            boolean isSprinting = ridingManager.updateSprintState(player, input.isForward(), input.isSprint());
+            // Обновляем состояние спринта (double-tap W или кнопка спринта); нажатие W - из событий
+            boolean forward = RiderInput.has(input, RiderInput.FORWARD);
+            boolean isSprinting = RidingRules.updateSprint(session, ride, forward,
+                    RiderInput.has(input, RiderInput.SPRINT), session.takeForwardPress());
+            phaseStart = stats.lap(TickPhase.SPRINT, phaseStart);
             
             // Рассчитываем движение на основе ввода
-            Vector movement = calculateMovement(player, goat, input, isSprinting);
+            RidingRules.computeMotion(session, ride, yaw, input, isSprinting);
+            phaseStart = stats.lap(TickPhase.MOVEMENT, phaseStart);
             
-            // Обрабатываем прыжок
-            if (input.isJump()) {
-                handleJump(player, goat);
+            // Обрабатываем прыжок; сбрасываем прыжки, если козёл на земле
+            boolean onGround = goat.isOnGround();
+            boolean jumpPress = session.takeJumpPress();
+            boolean jumped = (jumpPress || RiderInput.has(input, RiderInput.JUMP))
+                    && RidingRules.tryJump(session, ride, onGround);
+            if (jumped) {
+                Vector velocity = goat.getVelocity();
+                velocity.setY(ride.jumpStrength());
+                goat.setVelocity(velocity);
+                stats.increment(PerformanceStats.Counter.JUMPS);
+                new GoatJump().commit(session, !onGround, false, ride.jumpStrength());
+                if (session.getRiderStats() != null) {
+                    session.getRiderStats().addJump(!onGround);
+                }
+            }
+            if (onGround) {
+                RidingRules.resetJumps(session, ride);
             }
+            phaseStart = stats.lap(TickPhase.JUMP, phaseStart);
 
-            // Сбрасываем прыжки, если козёл на земле
-            if (goat.isOnGround()) {
-                ridingManager.resetJumps(player);
+            // Авто-шаг: осматриваем блоки перед козлом через кэш, стену не толкаем, на ступень запрыгиваем
+            double stepVelocity = 0.0;
+            if (settings.autoStep().enabled() && RidingRules.hasMotion(session)) {
+                stepVelocity = StepRules.apply(session,
+                        session.getCollisionReader().of(collisionCache.forWorld(goat.getWorld())), goatX, goatY, goatZ,
+                        onGround && !jumped, settings.autoStep().maxHeight());
+                phaseStart = stats.lap(TickPhase.STEP, phaseStart);
             }
 
             // Применяем движение, если есть ввод
-            if (movement.lengthSquared() > 0.001) {
+            Vector velocity = null;
+            double motionX = 0.0;
+            double motionZ = 0.0;
+            if (RidingRules.hasMotion(session)) {
+                motionX = session.getMotionX();
+                motionZ = session.getMotionZ();
+
                 // Проверяем столкновение для урона тараном
-                if (config.isRamEnabled() && input.isForward() && isSprinting) {
-                    checkRamCollision(goat, player, movement);
+                if (settings.ram().enabled() && forward && isSprinting
+                        && (stage == null || stage.ramEnabled())) {
+                    checkRamCollision(session, goat, player);
+                    phaseStart = stats.lap(TickPhase.RAM, phaseStart);
                 }
                 
-                // Сохраняем вертикальную скорость
-                movement.setY(goat.getVelocity().getY());
-                goat.setVelocity(movement);
+                // При разгрузке скорость выставляется реже, поэтому компенсируем её
+                if (stage != null) {
+                    motionX *= stage.velocityScale();
+                    motionZ *= stage.velocityScale();
+                }
+                
+                // Скорость отправляется, если цель заметно отошла от последней отправленной
+                // или козёл растерял отправленную скорость; вертикальная скорость сохраняется
+                velocity = goat.getVelocity();
+                if (stepVelocity > 0.0 || needsVelocity(session.getLastSentX(), session.getLastSentZ(), velocity,
+                        motionX, motionZ, settings.network().velocityThreshold())) {
+                    velocity.setX(motionX);
+                    velocity.setZ(motionZ);
+                    session.markVelocitySent(motionX, motionZ);
+                    if (stepVelocity > 0.0) {
+                        velocity.setY(stepVelocity);
+                        stats.increment(PerformanceStats.Counter.STEPS);
+                        new GoatJump().commit(session, false, true, stepVelocity);
+                    }
+                    goat.setVelocity(velocity);
+                }
+                stats.lap(TickPhase.VELOCITY, phaseStart);
             }
 
-        }, null, 1L, 1L);
+            // Караван идёт за козлом, используя уже рассчитанное движение
+            Caravan caravan = session.getCaravan();
+            if (caravan != null) {
+                tickCaravan(session, goat, caravan, motionX, motionZ, yaw);
+            }
+
+            // Запись ввода для воспроизведения в симуляторе; выключенная запись - одна проверка снимка
+            if (settings.trace().enabled()) {
+                int flags = (onGround ? TraceFormat.FLAG_ON_GROUND : 0)
+                        | (isSprinting ? TraceFormat.FLAG_SPRINTING : 0)
+                        | (jumped ? TraceFormat.FLAG_JUMPED : 0);
+                traceRecorder.record(session, input, yaw, velocity != null ? velocity : goat.getVelocity(), flags);
+            }
+
+            if (tickEvent != null) {
+                tickEvent.commit(session, input, isSprinting, Math.sqrt(motionX * motionX + motionZ * motionZ),
+                        caravan != null ? caravan.getFollowers().size() : 0);
+            }
+
+            // Козёл стоит на земле, наездник ничего не нажимает - паркуем задачу до ввода
+            if (settings.idleParking().enabled() && input == RiderInput.NONE && onGround && !jumped
+                    && stepVelocity == 0.0 && caravan == null && !RidingRules.hasMotion(session)) {
+                parkControlTask(session, player, goat, settings.idleParking().checkPeriod());
+            }
 
-        ridingManager.setControlTask(goat.getUniqueId(), task);
+        }, delay, period);
     }
 
     /**
-     * Рассчитывает вектор движения на основе ввода игрока.
+     * Период задачи управления на ступени разгрузки (null - полная частота).
      */
-    private Vector calculateMovement(Player player, Goat goat, org.bukkit.Input input, boolean isSprinting) {
-        // Получаем направление взгляда игрока (горизонтальное)
-        Vector direction = player.getLocation().getDirection();
-        direction.setY(0);
-        
-        if (direction.lengthSquared() > 0) {
-            direction.normalize();
-        }
+    private static long controlPeriod(LoadStage stage) {
+        return stage != null ? stage.controlPeriod() : 1L;
+    }
 
-        // Получаем вектор вправо
-        Vector right = direction.clone().crossProduct(new Vector(0, 1, 0)).normalize();
+    /**
+     * Задержка до ближайшего тика сессии, кратного периоду: выборки JFR и поворотов для дальних
+     * наблюдателей считаются по номеру тика и при редкой задаче должны на него попадать.
+     */
+    private static long alignedDelay(RiderSession session, long period) {
+        return period - Math.floorMod(session.getTick(), period);
+    }
 
-        Vector movement = new Vector(0, 0, 0);
-        double speed = config.getSpeed();
+    /**
+     * Паркует задачу управления стоящего козла: вместо тика - проверка раз в check-period тиков.
+     * Проверка поворачивает козла за взглядом наездника и будит задачу, если козёл оторвался от земли,
+     * ввод будит её сразу ({@link #onPlayerInput}). Новая задача того же владельца снимает текущую.
+     */
+    private void parkControlTask(RiderSession session, Player player, Goat goat, long checkPeriod) {
+        session.setParked(true);
+        stats.increment(PerformanceStats.Counter.PARKS);
+        taskRegistry.runAtFixedRate(goat, player.getUniqueId(), TaskRegistry.Kind.CONTROL, scheduledTask -> {
+            if (!goat.isValid() || !player.isOnline() || player.getVehicle() != goat
+                    || ridingManager.getSession(player) != session) {
+                taskRegistry.cancel(scheduledTask);
+                stats.increment(PerformanceStats.Counter.TASKS_CANCELLED);
+                return;
+            }
+            session.advanceTick(goat.getTicksLived());
+            Settings settings = ridingManager.syncSettings(session, player, goat);
+
+            Location scratch = session.getScratchLocation();
+            float yaw = player.getLocation(scratch).getYaw();
+            goat.getLocation(scratch);
+            float goatYaw = scratch.getYaw();
+            float goatPitch = scratch.getPitch();
+            ridingManager.updatePosition(session, scratch);
+            session.trackMovement(scratch.getX(), scratch.getZ());
 
-        // Применяем спринт (double-tap W)
-        if (isSprinting) {
-            speed *= config.getSprintMultiplier();
+            // Козла столкнули или под ним пропал блок: задача управления ведёт его до приземления
+            if (!settings.idleParking().enabled() || !goat.isOnGround()
+                    || session.getInput() != RiderInput.NONE || session.getCaravan() != null) {
+                wakeControlTask(session, player, goat);
+                return;
+            }
+            if (shouldRotate(session, goat, player, yaw, goatYaw)) {
+                goat.setRotation(yaw, goatPitch);
+            }
+        }, checkPeriod, checkPeriod);
+    }
+
+    private void wakeControlTask(RiderSession session, Player player, Goat goat) {
+        session.setParked(false);
+        stats.increment(PerformanceStats.Counter.WAKEUPS);
+        long period = controlPeriod(session.getLoadStage());
+        startControlTask(player, goat, alignedDelay(session, period), period);
+    }
+
+    /**
+     * Ввод наездника: обновляет снимок сессии и будит припаркованную задачу.
+     * Событие приходит в потоке региона игрока - того же, где козёл, на котором он сидит.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerInput(PlayerInputEvent event) {
+        Player player = event.getPlayer();
+        RiderSession session = ridingManager.getSession(player);
+        if (session == null) {
+            return;
         }
+        session.updateInput(event.getInput());
+        if (session.isParked() && player.getVehicle() instanceof Goat goat
+                && goat.getUniqueId().equals(session.getGoatId())) {
+            wakeControlTask(session, player, goat);
+        }
+    }
 
-        // W - вперёд
-        if (input.isForward()) {
-            movement.add(direction.clone().multiply(speed));
+    /**
+     * Нужно ли отправлять горизонтальную скорость (порог velocity-threshold):
+     * цель отошла от последней отправленной скорости, или козёл её растерял - трение, препятствие, толчок.
+     * @param sentX последняя отправленная скорость (NaN - ещё не отправлялась)
+     * @param sentZ последняя отправленная скорость (NaN - ещё не отправлялась)
+     * @param current текущая скорость козла
+     */
+    private static boolean needsVelocity(double sentX, double sentZ, Vector current,
+                                         double motionX, double motionZ, double threshold) {
+        if (Double.isNaN(sentX)) {
+            return true;
         }
-        
-        // S - назад (медленнее)
-        if (input.isBackward()) {
-            movement.add(direction.clone().multiply(-speed * 0.5));
+        double thresholdSquared = threshold * threshold;
+        double targetX = motionX - sentX;
+        double targetZ = motionZ - sentZ;
+        if (targetX * targetX + targetZ * targetZ >= thresholdSquared) {
+            return true;
         }
-        
-        // A - влево
-        if (input.isLeft()) {
-            movement.add(right.clone().multiply(-speed * 0.7));
+        double lostX = sentX - current.getX();
+        double lostZ = sentZ - current.getZ();
+        return lostX * lostX + lostZ * lostZ >= thresholdSquared;
+    }
+
+    /**
+     * Тик каравана в потоке ведущего козла: ведомые получают скорость ведущего плюс поправку
+     * к своему месту в цепочке. Ведомые, которые больше не в этом регионе, удалены или заняты наездником,
+     * выходят из каравана.
+     * @param motionX горизонтальная скорость ведущего, уже отправленная в этом тике
+     * @param motionZ горизонтальная скорость ведущего, уже отправленная в этом тике
+     * @param yaw направление взгляда наездника
+     */
+    private void tickCaravan(RiderSession session, Goat leader, Caravan caravan,
+                             double motionX, double motionZ, float yaw) {
+        Settings settings = session.getSettings();
+        if (!settings.caravan().enabled()) {
+            ridingManager.disbandCaravan(session);
+            return;
         }
-        
-        // D - вправо
-        if (input.isRight()) {
-            movement.add(right.clone().multiply(speed * 0.7));
+        if (motionX != 0.0 || motionZ != 0.0) {
+            caravan.updateHeading(motionX, motionZ);
+        }
+
+        Location scratch = session.getScratchLocation();
+        leader.getLocation(scratch);
+        double leaderX = scratch.getX();
+        double leaderY = scratch.getY();
+        double leaderZ = scratch.getZ();
+        double spacing = settings.caravan().spacing();
+        double threshold = settings.network().velocityThreshold();
+        float rotationThreshold = settings.network().rotationThreshold();
+
+        List<Caravan.Follower> followers = caravan.getFollowers();
+        int index = 0;
+        for (Iterator<Caravan.Follower> iterator = followers.iterator(); iterator.hasNext(); ) {
+            Caravan.Follower slot = iterator.next();
+            Goat follower = slot.getGoat();
+            if (!follower.isValid() || !Bukkit.isOwnedByCurrentRegion(follower)
+                    || ridingManager.getSessionByGoat(follower.getUniqueId()) != null) {
+                iterator.remove();
+                ridingManager.releaseFollower(follower, session.getPlayerId());
+                continue;
+            }
+
+            follower.getLocation(scratch);
+            double offsetX = CaravanRules.slot(leaderX, caravan.getHeadingX(), index, spacing) - scratch.getX();
+            double offsetZ = CaravanRules.slot(leaderZ, caravan.getHeadingZ(), index, spacing) - scratch.getZ();
+            double factor = CaravanRules.correctionFactor(offsetX, offsetZ);
+            double followX = motionX + offsetX * factor;
+            double followZ = motionZ + offsetZ * factor;
+
+            Vector velocity = follower.getVelocity();
+            boolean jump = CaravanRules.shouldJump(follower.isOnGround(), leaderY, scratch.getY());
+            if (jump || needsVelocity(slot.getLastSentX(), slot.getLastSentZ(), velocity, followX, followZ, threshold)) {
+                velocity.setX(followX);
+                velocity.setZ(followZ);
+                slot.markVelocitySent(followX, followZ);
+                if (jump) {
+                    velocity.setY(settings.ride().jumpStrength());
+                }
+                follower.setVelocity(velocity);
+            }
+            if (Math.abs(wrapDegrees(yaw - scratch.getYaw())) >= rotationThreshold) {
+                follower.setRotation(yaw, scratch.getPitch());
+            }
+            index++;
         }
 
-        return movement;
+        if (followers.isEmpty()) {
+            ridingManager.disbandCaravan(session);
+        }
     }
 
     /**
-     * Обрабатывает прыжок козла.
+     * Нужно ли отправлять поворот козла в этом тике.
+     * Поворот пропускается, если козёл уже смотрит почти туда же (разница меньше rotation-threshold),
+     * а если все наблюдающие игроки далеко - отправляется не чаще раза в far-trackers.rotation-period тиков.
      */
-    private void handleJump(Player player, Goat goat) {
-        // Проверяем кулдаун прыжка
-        if (!ridingManager.canJump(player)) {
-            return;
+    private boolean shouldRotate(RiderSession session, Goat goat, Player rider, float yaw, float goatYaw) {
+        Settings.Network network = session.getSettings().network();
+        float delta = Math.abs(wrapDegrees(yaw - goatYaw));
+        if (delta < network.rotationThreshold()) {
+            return false;
         }
         
-        // Проверяем возможность прыжка
-        boolean canJump = goat.isOnGround();
+        if (!network.farTrackersEnabled()) {
+            return true;
+        }
+        if (session.pollTrackerCheck(network.farTrackersCheckInterval())) {
+            session.setFarFromTrackers(allTrackersFar(session, goat, rider));
+        }
+        return !session.isFarFromTrackers() || session.getTick() % network.farTrackersRotationPeriod() == 0;
+    }
+
+    /**
+     * Проверяет, что все игроки, которым виден козёл (кроме наездника), дальше far-trackers.distance.
+     */
+    private boolean allTrackersFar(RiderSession session, Goat goat, Player rider) {
+        Location scratch = session.getScratchLocation();
+        goat.getLocation(scratch);
+        double goatX = scratch.getX();
+        double goatY = scratch.getY();
+        double goatZ = scratch.getZ();
+        double distance = session.getSettings().network().farTrackersDistance();
+        double distanceSquared = distance * distance;
         
-        // Проверяем мульти-прыжок
-        if (!canJump && config.isMultiJump()) {
-            canJump = ridingManager.useJump(player);
+        for (Player tracker : goat.getTrackedBy()) {
+            if (tracker == rider) {
+                continue;
+            }
+            tracker.getLocation(scratch);
+            double dx = scratch.getX() - goatX;
+            double dy = scratch.getY() - goatY;
+            double dz = scratch.getZ() - goatZ;
+            if (dx * dx + dy * dy + dz * dz < distanceSquared) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        if (canJump) {
-            Vector velocity = goat.getVelocity();
-            velocity.setY(config.getJumpStrength());
-            goat.setVelocity(velocity);
+    /**
+     * Приводит угол к диапазону [-180, 180).
+     */
+    private static float wrapDegrees(float degrees) {
+        float wrapped = degrees % 360.0F;
+        if (wrapped >= 180.0F) {
+            wrapped -= 360.0F;
+        }
+        if (wrapped < -180.0F) {
+            wrapped += 360.0F;
         }
+        return wrapped;
+    }
+
+    /**
+     * Раз в check-interval тиков читает TPS региона козла и обновляет ступень разгрузки сессии.
+     * @param goatLocation текущая позиция козла
+     * @return действующая ступень или null, если регион не перегружен
+     */
+    private LoadStage updateLoadStage(RiderSession session, Location goatLocation) {
+        Settings.LoadShedding loadShedding = session.getSettings().loadShedding();
+        if (!loadShedding.enabled()) {
+            if (session.getLoadStage() != null) {
+                ridingManager.updateLoadStage(session, Double.MAX_VALUE);
+            }
+            return null;
+        }
+        if (!session.pollLoadCheck(loadShedding.checkInterval())) {
+            return session.getLoadStage();
+        }
+        
+        // TPS региона за последние 5 секунд
+        double[] tps = Bukkit.getRegionTPS(goatLocation);
+        if (tps == null || tps.length == 0) {
+            return session.getLoadStage();
+        }
+        return ridingManager.updateLoadStage(session, tps[0]);
     }
 
     /**
      * Проверяет столкновение для урона тараном.
+     * Broadphase: запрос по AABB козла, протянутому вдоль движения, с фильтром по типу и blacklist
+     * ещё до сбора кандидатов. Если прошлый запрос был пустым, а козёл почти не сдвинулся,
+     * запрос пропускается целиком.
      */
-    private void checkRamCollision(Goat goat, Player rider, Vector movement) {
-        // Ищем сущности перед козлом
-        Location loc = goat.getLocation();
-        Vector direction = movement.clone().normalize();
+    private void checkRamCollision(RiderSession session, Goat goat, Player rider) {
+        Settings settings = session.getSettings();
+        // Нормализованное горизонтальное направление движения
+        double motionX = session.getMotionX();
+        double motionZ = session.getMotionZ();
+        double motionLength = Math.sqrt(motionX * motionX + motionZ * motionZ);
+        double dirX = motionX / motionLength;
+        double dirZ = motionZ / motionLength;
+
+        // Позиция козла, дальше scratch переиспользуется для целей
+        Location scratch = session.getScratchLocation();
+        goat.getLocation(scratch);
+        double goatX = scratch.getX();
+        double goatY = scratch.getY();
+        double goatZ = scratch.getZ();
+
+        // Пропускаем запрос, если в прошлый раз рядом никого не было и козёл почти стоит на месте
+        double requeryDistance = settings.ram().requeryDistance();
+        if (session.canSkipRamQuery(goatX, goatZ, requeryDistance * requeryDistance, RAM_REQUERY_MAX_TICKS)) {
+            return;
+        }
+
+        // AABB козла, расширенный по бокам и протянутый вперёд по направлению движения
+        BoundingBox sweep = goat.getBoundingBox()
+                .expand(RAM_SIDE_MARGIN, RAM_VERTICAL_MARGIN, RAM_SIDE_MARGIN)
+                .expandDirectional(dirX * RidingRules.RAM_REACH, 0.0, dirZ * RidingRules.RAM_REACH);
+
+        GoatRam ramEvent = new GoatRam();
+        ramEvent.begin();
+        Collection<Entity> candidates = goat.getWorld().getNearbyEntities(sweep, ramFilter);
+        boolean hit = false;
+        int hits = 0;
+        double dealt = 0.0;
         
-        for (Entity entity : goat.getNearbyEntities(1.5, 1.0, 1.5)) {
+        for (Entity entity : candidates) {
             if (entity == rider || entity == goat) {
                 continue;
             }
-            
-            if (!(entity instanceof LivingEntity target)) {
-                continue;
-            }
-            
-            // Проверяем blacklist
-            if (config.isInRamBlacklist(entity.getType())) {
-                continue;
-            }
+            hit = true;
 
             // Проверяем, что сущность перед козлом
-            Vector toEntity = entity.getLocation().toVector().subtract(loc.toVector());
-            if (toEntity.lengthSquared() > 0 && toEntity.normalize().dot(direction) > 0.5) {
+            entity.getLocation(scratch);
+            if (RidingRules.isInRamCone(dirX, dirZ,
+                    scratch.getX() - goatX, scratch.getY() - goatY, scratch.getZ() - goatZ)) {
                 // Проверяем кулдаун урона для этой цели
-                if (!ridingManager.canRamDamage(entity.getUniqueId())) {
+                if (!RidingRules.canRamDamage(session, entity.getUniqueId())) {
                     continue;
                 }
                 
-                // Наносим урон
-                target.damage(config.getRamDamage(), goat);
+                // Наносим урон; в статистику идёт то, что цель действительно потеряла -
+                // после брони, зелий, отмены события другими плагинами и с учётом остатка здоровья
+                LivingEntity target = (LivingEntity) entity;
+                double before = target.getHealth() + target.getAbsorptionAmount();
+                target.damage(settings.ram().damage(), goat);
+                dealt += Math.max(0.0, before - target.getHealth() - target.getAbsorptionAmount());
+                stats.increment(PerformanceStats.Counter.RAMS);
+                hits++;
                 
                 // Отбрасываем
-                Vector knockback = direction.clone().multiply(0.5).setY(0.3);
-                target.setVelocity(target.getVelocity().add(knockback));
+                Vector velocity = target.getVelocity();
+                velocity.setX(velocity.getX() + dirX * 0.5);
+                velocity.setY(velocity.getY() + 0.3);
+                velocity.setZ(velocity.getZ() + dirZ * 0.5);
+                target.setVelocity(velocity);
             }
         }
+
+        session.recordRamQuery(goatX, goatZ, !hit);
+        if (hits > 0) {
+            ramEvent.commit(session, candidates.size(), hits);
+            if (session.getRiderStats() != null) {
+                session.getRiderStats().addRam(hits, dealt);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDismount(EntityDismountEvent event) {
+        Entity dismounted = event.getDismounted();
+        Entity entity = event.getEntity();
+
+        // Проверяем, что игрок слез с козла
+        if (!(dismounted instanceof Goat goat) || !(entity instanceof Player player)) {
+            return;
+        }
+
+        // Проверяем, был ли игрок зарегистрирован как наездник
+        if (ridingManager.isRiding(player)) {
+            ridingManager.removeRider(player);
+            player.sendMessage(config.formatMessage(config.getDismountSuccess()));
+        }
+        
+        // Удаляем модификатор и возвращаем ИИ козлу через его scheduler для Folia-совместимости.
+        // Делаем это и когда сессия уже снята (например, при выходе игрока с сервера)
+        plugin.getTaskRegistry().runOnEntity(goat, task -> {
+            if (goat.isValid()) {
+                ridingManager.cleanupGoat(goat);
+                ridingManager.restoreStaleAi(goat);
+            }
+        });
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -225,14 +650,37 @@ public class GoatControlListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
+        // Событие приходит на любой урон сущности сущностью - без наездников сразу выходим
+        if (!ridingManager.hasRiders()) {
+            return;
+        }
+        
         // Предотвращаем урон козлу от своего наездника
         Entity damager = event.getDamager();
         Entity damaged = event.getEntity();
 
-        if (damaged instanceof Goat goat && damager instanceof Player player) {
-            if (goat.getPassengers().contains(player)) {
-                event.setCancelled(true);
-            }
+        if (damaged instanceof Goat goat && damager instanceof Player player
+                && ridingManager.isRiddenBy(goat.getUniqueId(), player.getUniqueId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onFallDamage(EntityDamageEvent event) {
+        // Защита от падения в режиме event: только наездники и их козлы, остальные события - сразу мимо
+        if (event.getCause() != EntityDamageEvent.DamageCause.FALL || !ridingManager.hasRiders()) {
+            return;
+        }
+        Entity entity = event.getEntity();
+        if (!(entity instanceof Player) && !(entity instanceof Goat)) {
+            return;
+        }
+
+        double damage = ridingManager.reduceFallDamage(entity.getUniqueId(), event.getDamage());
+        if (damage == 0.0) {
+            event.setCancelled(true);
+        } else if (damage > 0.0) {
+            event.setDamage(damage);
         }
     }
 }
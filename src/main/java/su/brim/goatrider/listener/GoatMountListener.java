@@ -1,5 +1,7 @@
 package su.brim.goatrider.listener;
 
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Goat;
@@ -10,24 +12,32 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.event.entity.EntityDismountEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
 import su.brim.goatrider.GoatRiderPlugin;
 import su.brim.goatrider.manager.ConfigManager;
+import su.brim.goatrider.manager.RiderCapacity;
 import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.manager.Settings;
 
 /**
- * Слушатель событий посадки и высадки с козла.
+ * Постоянный слушатель: вход в посадку на козла и восстановление козлов по меткам при загрузке.
+ * Остальные события нужны только во время езды и регистрируются через {@link RidingListeners}.
  */
 public class GoatMountListener implements Listener {
 
+    // Игрок из очереди садится, только если всё ещё стоит рядом с козлом
+    private static final double QUEUE_MOUNT_DISTANCE_SQUARED = 6.0 * 6.0;
+
     private final GoatRiderPlugin plugin;
     private final ConfigManager config;
     private final RidingManager ridingManager;
+    private final RiderCapacity capacity;
 
     public GoatMountListener(GoatRiderPlugin plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
         this.ridingManager = plugin.getRidingManager();
+        this.capacity = ridingManager.getCapacity();
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -79,37 +89,111 @@ public class GoatMountListener implements Listener {
         // Отменяем стандартное взаимодействие
         event.setCancelled(true);
 
-        // Сажаем игрока на козла используя EntityScheduler для Folia
-        goat.getScheduler().run(plugin, task -> {
-            if (goat.isValid() && player.isOnline()) {
-                goat.addPassenger(player);
-                ridingManager.addRider(player, goat);
-                player.sendMessage(config.formatMessage(config.getMountSuccess()));
-            }
-        }, null);
+        // Игрок уже ждёт места - повторное нажатие не ставит его в очередь заново
+        if (capacity.isWaiting(player.getUniqueId())) {
+            player.sendMessage(config.formatMessage(config.getCapacityQueued()));
+            return;
+        }
+
+        mount(player, goat, null);
     }
 
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onEntityDismount(EntityDismountEvent event) {
-        Entity dismounted = event.getDismounted();
-        Entity entity = event.getEntity();
+    /**
+     * Сажает игрока на козла используя EntityScheduler для Folia, если в мире и области козла есть место.
+     * Слушатели езды регистрируются до посадки: событие посадки запускает задачу управления.
+     * @param waiter ожидание, которое очередь пропустила (null - обычная посадка)
+     */
+    private void mount(Player player, Goat goat, RiderCapacity.Waiter waiter) {
+        var scheduled = plugin.getTaskRegistry().runOnEntity(goat, task -> {
+            if (!goat.isValid() || !player.isOnline() || !goat.getPassengers().isEmpty()
+                    || (waiter != null && !isNear(player, goat))) {
+                // Пропущенный игрок сесть не может - место достаётся следующему
+                if (waiter != null) {
+                    capacity.signal();
+                }
+                return;
+            }
+
+            Location location = goat.getLocation();
+            RiderCapacity.Area area = RiderCapacity.Area.of(goat.getWorld(),
+                    location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            if (!capacity.tryAcquire(area, waiter != null)) {
+                refuseOrQueue(player, goat, area, waiter);
+                return;
+            }
+
+            plugin.getRidingListeners().ensureRegistered();
+            if (!goat.addPassenger(player)) {
+                // Посадку отменил другой плагин (EntityMountEvent) - место достаётся следующему в очереди
+                capacity.release(area);
+                if (!ridingManager.hasRiders()) {
+                    plugin.getRidingListeners().scheduleIdleCheck();
+                }
+                return;
+            }
+            ridingManager.addRider(player, goat, area);
+            player.sendMessage(config.formatMessage(config.getMountSuccess()));
+            // Места могло освободиться больше одного (перезагрузка с новыми лимитами) - пропускаем следующего
+            if (waiter != null) {
+                capacity.signal();
+            }
+        });
+        // Козёл удалён до повтора из очереди
+        if (scheduled == null && waiter != null) {
+            capacity.signal();
+        }
+    }
 
-        // Проверяем, что игрок слез с козла
-        if (!(dismounted instanceof Goat goat) || !(entity instanceof Player player)) {
+    /**
+     * Мест нет: отказ или очередь, в зависимости от capacity.mode.
+     */
+    private void refuseOrQueue(Player player, Goat goat, RiderCapacity.Area area, RiderCapacity.Waiter waiter) {
+        if (waiter != null) {
+            // Место перехватил наездник, въехавший в область, - ждём дальше с начала очереди
+            if (!capacity.requeue(waiter)) {
+                player.sendMessage(config.formatMessage(config.getCapacityTimeout()));
+            }
             return;
         }
 
-        // Проверяем, был ли игрок зарегистрирован как наездник
-        if (ridingManager.isRiding(player)) {
-            ridingManager.removeRider(player);
-            player.sendMessage(config.formatMessage(config.getDismountSuccess()));
-            
-            // Удаляем модификатор у козла через его scheduler для Folia-совместимости
-            goat.getScheduler().run(plugin, task -> {
-                if (goat.isValid()) {
-                    ridingManager.cleanupGoat(goat);
-                }
-            }, null);
+        Settings.Capacity limits = config.getSettings().capacity();
+        if (limits.mode() == Settings.CapacityMode.QUEUE) {
+            RiderCapacity.Waiter queued = new RiderCapacity.Waiter(player.getUniqueId(), area,
+                    pass -> mount(player, goat, pass));
+            if (capacity.enqueue(queued)) {
+                player.sendMessage(config.formatMessage(config.getCapacityQueued()));
+                // Таймаут ожидания; сообщения игроку можно отправлять из любого потока
+                plugin.getTaskRegistry().runGlobalDelayed(task -> {
+                    if (capacity.expire(queued)) {
+                        player.sendMessage(config.formatMessage(config.getCapacityTimeout()));
+                    }
+                }, limits.queueTimeout() * 20L);
+                return;
+            }
+        }
+        player.sendMessage(config.formatMessage(config.getCapacityFull()));
+    }
+
+    /**
+     * Игрок в потоке козла и рядом с ним. Позицию игрока из чужого региона читать нельзя.
+     */
+    private static boolean isNear(Player player, Goat goat) {
+        return Bukkit.isOwnedByCurrentRegion(player)
+                && player.getLocation().distanceSquared(goat.getLocation()) <= QUEUE_MOUNT_DISTANCE_SQUARED;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        // Козлы, выгруженные до очистки или пережившие рестарт, хранят метки в PersistentDataContainer -
+        // снимаем устаревший модификатор и возвращаем ИИ при загрузке. Событие приходит в потоке региона этих сущностей
+        for (Entity entity : event.getEntities()) {
+            if (!(entity instanceof Goat goat)) {
+                continue;
+            }
+            if (ridingManager.needsCleanup(goat)) {
+                ridingManager.cleanupGoat(goat);
+            }
+            ridingManager.restoreStaleAi(goat);
         }
     }
 }
@@ -0,0 +1,95 @@
+package su.brim.goatrider.listener;
+
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import su.brim.goatrider.GoatRiderPlugin;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слушатели, которые нужны только во время езды: управление, урон, высадка, кэш столкновений.
+ * Регистрируются при первой посадке и снимаются через {@link HandlerList}, когда последняя сессия
+ * закончилась и никто не садился в течение паузы. Без наездников серверные события
+ * (урон, высадка, изменения блоков) вообще не проходят через плагин.
+ */
+public class RidingListeners {
+
+    // Пауза перед снятием слушателей после конца последней сессии (в тиках). За это время доходят
+    // события, которые идут после снятия сессии (высадка при выходе игрока), и быстрая пересадка
+    // не перерегистрирует слушатели
+    private static final long IDLE_DELAY_TICKS = 100L;
+    private static final long IDLE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_DELAY_TICKS * 50L);
+
+    private final GoatRiderPlugin plugin;
+    private final List<Listener> listeners;
+
+    // Изменяется под блокировкой, читается и без неё (статистика)
+    private volatile boolean registered;
+
+    // Под блокировкой: время последней посадки и запланирована ли проверка простоя
+    private long lastUseNanos;
+    private boolean idleCheckScheduled;
+
+    public RidingListeners(GoatRiderPlugin plugin, Listener... listeners) {
+        this.plugin = plugin;
+        this.listeners = List.of(listeners);
+    }
+
+    /**
+     * Регистрирует слушатели езды, если они сняты. Вызывать перед посадкой: событие посадки
+     * запускает задачу управления.
+     */
+    public synchronized void ensureRegistered() {
+        lastUseNanos = System.nanoTime();
+        if (registered) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+        }
+        registered = true;
+    }
+
+    /**
+     * Планирует снятие слушателей после паузы. Вызывается, когда закончилась последняя сессия.
+     */
+    public void scheduleIdleCheck() {
+        synchronized (this) {
+            if (!registered || idleCheckScheduled) {
+                return;
+            }
+            idleCheckScheduled = true;
+        }
+        plugin.getTaskRegistry().runGlobalDelayed(task -> unregisterIfIdle(), IDLE_DELAY_TICKS);
+    }
+
+    /**
+     * Снимает слушатели, если наездников нет и за паузу никто не начинал посадку.
+     * Посадка, начатая, но ещё не дошедшая до сессии, откладывает снятие на следующую паузу.
+     */
+    private void unregisterIfIdle() {
+        synchronized (this) {
+            idleCheckScheduled = false;
+            if (!registered || plugin.getRidingManager().hasRiders()) {
+                return;
+            }
+            if (System.nanoTime() - lastUseNanos >= IDLE_DELAY_NANOS) {
+                for (Listener listener : listeners) {
+                    HandlerList.unregisterAll(listener);
+                }
+                registered = false;
+                plugin.getCollisionCache().clear();
+                return;
+            }
+        }
+        scheduleIdleCheck();
+    }
+
+    /**
+     * Зарегистрированы ли сейчас слушатели езды.
+     */
+    public boolean isRegistered() {
+        return registered;
+    }
+}
@@ -0,0 +1,65 @@
+package su.brim.goatrider.manager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь фоновых шагов ввода-вывода: шаги выполняются по одному и по порядку в асинхронном планировщике.
+ * Поставить шаг можно из любого потока без блокировок и без ожидания диска - так /gr reload
+ * перезапускает запись файлов, не выполняя её в потоке команды.
+ * При выключении плагина асинхронные задачи уже не запустятся, поэтому оставшиеся шаги
+ * выполняются в вызывающем потоке ({@link #drainNow()}).
+ * Шаги сами обрабатывают свои ошибки ввода-вывода.
+ */
+public final class BackgroundQueue {
+
+    private final TaskRegistry taskRegistry;
+    private final Queue<Runnable> steps = new ConcurrentLinkedQueue<>();
+
+    // Шаги выполняет один поток за раз
+    private final ReentrantLock running = new ReentrantLock();
+
+    public BackgroundQueue(TaskRegistry taskRegistry) {
+        this.taskRegistry = taskRegistry;
+    }
+
+    /**
+     * Ставит шаг в очередь и запускает её разбор в асинхронном планировщике.
+     */
+    public void submit(Runnable step) {
+        steps.add(step);
+        taskRegistry.runAsyncNow(scheduledTask -> drain());
+    }
+
+    /**
+     * Выполняет все шаги в вызывающем потоке, дождавшись шага, который сейчас выполняется в фоне.
+     * Только для выключения плагина.
+     */
+    public void drainNow() {
+        running.lock();
+        try {
+            runSteps();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private void drain() {
+        // Шаг, добавленный, пока другой поток заканчивал разбор, подбирается повторной проверкой
+        while (!steps.isEmpty() && running.tryLock()) {
+            try {
+                runSteps();
+            } finally {
+                running.unlock();
+            }
+        }
+    }
+
+    private void runSteps() {
+        Runnable step;
+        while ((step = steps.poll()) != null) {
+            step.run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package su.brim.goatrider.manager;
+
+import org.bukkit.entity.Goat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Караван: ведомые козлы, которые идут цепочкой за козлом наездника.
+ * Принадлежит сессии ведущего; список изменяется только в потоке региона ведущего козла,
+ * из задачи управления или из задач, поставленных на его EntityScheduler.
+ */
+public final class Caravan {
+
+    /**
+     * Ведомый козёл и горизонтальная скорость, последней отправленная ему.
+     */
+    public static final class Follower {
+
+        private final Goat goat;
+
+        // NaN - скорость ещё не отправлялась
+        private double lastSentX = Double.NaN;
+        private double lastSentZ = Double.NaN;
+
+        Follower(Goat goat) {
+            this.goat = goat;
+        }
+
+        public Goat getGoat() {
+            return goat;
+        }
+
+        public double getLastSentX() {
+            return lastSentX;
+        }
+
+        public double getLastSentZ() {
+            return lastSentZ;
+        }
+
+        public void markVelocitySent(double x, double z) {
+            this.lastSentX = x;
+            this.lastSentZ = z;
+        }
+    }
+
+    // Ведомые в порядке цепочки
+    private final List<Follower> followers;
+
+    // Нормализованное направление движения ведущего; сохраняется, пока он стоит
+    private double headingX;
+    private double headingZ;
+
+    Caravan(List<Goat> followers, double headingX, double headingZ) {
+        this.followers = new ArrayList<>(followers.size());
+        for (Goat follower : followers) {
+            this.followers.add(new Follower(follower));
+        }
+        this.headingX = headingX;
+        this.headingZ = headingZ;
+    }
+
+    /**
+     * Ведомые в порядке цепочки. Задача управления удаляет из списка выбывших.
+     */
+    public List<Follower> getFollowers() {
+        return followers;
+    }
+
+    public double getHeadingX() {
+        return headingX;
+    }
+
+    public double getHeadingZ() {
+        return headingZ;
+    }
+
+    /**
+     * Обновляет направление по горизонтальному движению ведущего.
+     */
+    public void updateHeading(double motionX, double motionZ) {
+        double length = Math.sqrt(motionX * motionX + motionZ * motionZ);
+        if (length > 0) {
+            headingX = motionX / length;
+            headingZ = motionZ / length;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package su.brim.goatrider.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.Openable;
+import org.bukkit.util.BoundingBox;
+import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.core.StepRules;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш верхов форм столкновения блоков для авто-шага.
+ * Хранится по чанкам: секция 16x16x16 - массив высот, заполняемый по мере чтения (NaN - не прочитан).
+ * Чанк в Folia принадлежит одному региону, и события изменения блоков приходят в потоке того же региона,
+ * что и задачи козлов рядом, поэтому массивы чанка читает и меняет только поток его региона, без блокировок.
+ * Карта чанков мира общая (ConcurrentHashMap); при переполнении поток вытесняет только чанки своего региона.
+ * Козлы читают кэш через {@link Reader} своей сессии: он помнит последние чанки под козлом (до 2x2 у угла чанка),
+ * и их блоки читаются без поиска в карте - ключ не упаковывается в Long каждый тик.
+ * Записи сбрасываются событиями изменения блоков и выгрузкой чанка. Изменения без событий
+ * (/setblock, /fill, WorldEdit и другие плагины) кэш не видит - их покрывает срок жизни чанка auto-step.cache-ttl.
+ */
+public class CollisionCache {
+
+    // Предел закэшированных чанков в мире; при превышении поток вытесняет чанки своего региона
+    private static final int MAX_CHUNKS = 4096;
+
+    private final GoatRiderPlugin plugin;
+    private final Map<UUID, WorldCache> worlds = new ConcurrentHashMap<>();
+
+    public CollisionCache(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Кэш мира. Создаётся при первом обращении и дальше переиспользуется.
+     */
+    public WorldCache forWorld(World world) {
+        // get без лямбды: computeIfAbsent с захватом мира аллоцировал бы на каждый тик
+        WorldCache cache = worlds.get(world.getUID());
+        return cache != null ? cache : worlds.computeIfAbsent(world.getUID(), id -> new WorldCache(plugin, world));
+    }
+
+    /**
+     * Сбрасывает закэшированную высоту блока.
+     */
+    public void invalidate(Block block) {
+        invalidate(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Сбрасывает закэшированную высоту блока по координатам.
+     */
+    public void invalidate(World world, int x, int y, int z) {
+        WorldCache cache = worlds.get(world.getUID());
+        if (cache != null) {
+            cache.invalidate(x, y, z);
+        }
+    }
+
+    /**
+     * Забывает выгруженный чанк.
+     */
+    public void invalidateChunk(World world, int chunkX, int chunkZ) {
+        WorldCache cache = worlds.get(world.getUID());
+        if (cache != null) {
+            drop(cache.chunks.remove(chunkKey(chunkX, chunkZ)));
+        }
+    }
+
+    /**
+     * Очищает кэш всех миров.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static void drop(CachedChunk chunk) {
+        if (chunk != null) {
+            chunk.dropped = true;
+        }
+    }
+
+    /**
+     * Кэш одного мира - источник высот блоков для {@link StepRules}.
+     * Вызывать из потока региона, которому принадлежат читаемые блоки.
+     */
+    public static final class WorldCache implements StepRules.BlockHeights {
+
+        private final GoatRiderPlugin plugin;
+        private final World world;
+        private final int minY;
+        private final int maxY;
+        private final int sectionCount;
+
+        // Ключ чанка -> чанк с секциями по высоте
+        private final Map<Long, CachedChunk> chunks = new ConcurrentHashMap<>();
+
+        private WorldCache(GoatRiderPlugin plugin, World world) {
+            this.plugin = plugin;
+            this.world = world;
+            this.minY = world.getMinHeight();
+            this.maxY = world.getMaxHeight();
+            this.sectionCount = (maxY - minY + 15) >> 4;
+        }
+
+        @Override
+        public double collisionTop(int x, int y, int z) {
+            return collisionTop(null, x, y, z);
+        }
+
+        private double collisionTop(Reader last, int x, int y, int z) {
+            if (y < minY || y >= maxY) {
+                return 0.0;
+            }
+            long key = chunkKey(x >> 4, z >> 4);
+            long ttl = plugin.getConfigManager().getSettings().autoStep().cacheTtlNanos();
+            long now = ttl > 0 ? System.nanoTime() : 0L;
+            CachedChunk chunk = last != null ? last.find(key) : null;
+            if (chunk == null || chunk.dropped) {
+                chunk = chunks.get(key);
+            }
+            if (chunk == null || (ttl > 0 && now - chunk.createdAt > ttl)) {
+                // Блок чужого региона или незагруженного чанка не читаем - считаем проходимым
+                if (!Bukkit.isOwnedByCurrentRegion(world, x >> 4, z >> 4) || !world.isChunkLoaded(x >> 4, z >> 4)) {
+                    return 0.0;
+                }
+                if (chunk == null && chunks.size() >= MAX_CHUNKS) {
+                    evict(ttl, now);
+                }
+                // Устаревший чанк заменяется целиком и читается заново
+                chunk = new CachedChunk(new float[sectionCount][], now);
+                drop(chunks.put(key, chunk));
+            }
+            if (last != null) {
+                last.remember(key, chunk);
+            }
+
+            float[][] sections = chunk.sections;
+            int sectionIndex = (y - minY) >> 4;
+            float[] section = sections[sectionIndex];
+            if (section == null) {
+                section = new float[16 * 16 * 16];
+                Arrays.fill(section, Float.NaN);
+                sections[sectionIndex] = section;
+            }
+
+            int index = blockIndex(x, y, z);
+            float top = section[index];
+            if (Float.isNaN(top)) {
+                Block block = world.getBlockAt(x, y, z);
+                top = readCollisionTop(block);
+                // Двери, люки и калитки меняют форму без событий изменения блока - их не кэшируем
+                if (block.getBlockData() instanceof Openable) {
+                    return top;
+                }
+                section[index] = top;
+            }
+            return top;
+        }
+
+        private void invalidate(int x, int y, int z) {
+            if (y < minY || y >= maxY) {
+                return;
+            }
+            CachedChunk chunk = chunks.get(chunkKey(x >> 4, z >> 4));
+            if (chunk == null) {
+                return;
+            }
+            float[] section = chunk.sections[(y - minY) >> 4];
+            if (section != null) {
+                section[blockIndex(x, y, z)] = Float.NaN;
+            }
+        }
+
+        /**
+         * Освобождает место под новый чанк: убирает устаревшие чанки своего региона,
+         * а если таких нет - все чанки своего региона. Чанки других регионов не трогаются:
+         * их массивы читают потоки тех регионов, и вытеснят они их сами.
+         */
+        private void evict(long ttl, long now) {
+            boolean expired = false;
+            if (ttl > 0) {
+                for (Iterator<Map.Entry<Long, CachedChunk>> iterator = chunks.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<Long, CachedChunk> entry = iterator.next();
+                    if (now - entry.getValue().createdAt > ttl && isOwned(entry.getKey())) {
+                        iterator.remove();
+                        drop(entry.getValue());
+                        expired = true;
+                    }
+                }
+            }
+            if (!expired) {
+                chunks.entrySet().removeIf(entry -> {
+                    boolean owned = isOwned(entry.getKey());
+                    if (owned) {
+                        drop(entry.getValue());
+                    }
+                    return owned;
+                });
+            }
+        }
+
+        private boolean isOwned(long key) {
+            return Bukkit.isOwnedByCurrentRegion(world, (int) (key >> 32), (int) key);
+        }
+
+        private static int blockIndex(int x, int y, int z) {
+            return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+        }
+
+        private static float readCollisionTop(Block block) {
+            if (block.isPassable()) {
+                return 0.0F;
+            }
+            double top = 0.0;
+            for (BoundingBox box : block.getCollisionShape().getBoundingBoxes()) {
+                top = Math.max(top, box.getMaxY());
+            }
+            return (float) top;
+        }
+    }
+
+    /**
+     * Закэшированный чанк: секции по высоте (null - секция ещё не читалась) и время создания для срока жизни.
+     * Чанк, убранный из карты, помечается, чтобы запомненная сессией ссылка на него больше не использовалась.
+     */
+    private static final class CachedChunk {
+
+        private final float[][] sections;
+        private final long createdAt;
+        private volatile boolean dropped;
+
+        private CachedChunk(float[][] sections, long createdAt) {
+            this.sections = sections;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Чтение кэша мира для одной сессии: помнит последние прочитанные чанки.
+     * Используется только в потоке региона козла, как и сама сессия.
+     */
+    public static final class Reader implements StepRules.BlockHeights {
+
+        // Авто-шаг осматривает четыре столбца у козла - это не больше 2x2 чанков
+        private static final int SIZE = 4;
+
+        private WorldCache cache;
+        private final long[] keys = new long[SIZE];
+        private final CachedChunk[] chunks = new CachedChunk[SIZE];
+        private int next;
+
+        /**
+         * Переключает чтение на кэш мира; при смене мира запомненные чанки забываются.
+         */
+        public Reader of(WorldCache cache) {
+            if (this.cache != cache) {
+                this.cache = cache;
+                Arrays.fill(chunks, null);
+            }
+            return this;
+        }
+
+        private CachedChunk find(long key) {
+            for (int i = 0; i < SIZE; i++) {
+                CachedChunk chunk = chunks[i];
+                if (chunk != null && keys[i] == key) {
+                    return chunk;
+                }
+            }
+            return null;
+        }
+
+        private void remember(long key, CachedChunk chunk) {
+            for (int i = 0; i < SIZE; i++) {
+                if (keys[i] == key && chunks[i] != null) {
+                    chunks[i] = chunk;
+                    return;
+                }
+            }
+            keys[next] = key;
+            chunks[next] = chunk;
+            next = (next + 1) % SIZE;
+        }
+
+        @Override
+        public double collisionTop(int x, int y, int z) {
+            return cache.collisionTop(this, x, y, z);
+        }
+    }
+}
@@ -5,59 +5,58 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.EntityType;
 import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.core.RideParams;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class ConfigManager {
 
     private final GoatRiderPlugin plugin;
     
-    // Настройки
-    private boolean requireSaddle;
-    private double speed;
-    private double jumpStrength;
-    private boolean multiJump;
-    private int extraJumps;
-    private double ramDamage;
-    private boolean ramEnabled;
-    private double sprintMultiplier;
-    private long doubleTapTime;
-    private Set<EntityType> ramBlacklist;
-    private double fallProtectionDistance;
+    // Текущий снимок настроек; заменяется целиком при перезагрузке
+    private volatile Settings settings;
     
-    // Сообщения
-    private String prefix;
-    private String mountSuccess;
-    private String dismountSuccess;
-    private String noPermission;
-    private String saddleRequired;
-    private String configReloaded;
-    private String noAdminPermission;
+    // Номер версии последнего опубликованного снимка
+    private long version;
 
     public ConfigManager(GoatRiderPlugin plugin) {
         this.plugin = plugin;
         reload();
     }
 
-    public void reload() {
+    /**
+     * Перечитывает конфиг в новый снимок и публикует его одной записью.
+     */
+    public synchronized void reload() {
         FileConfiguration config = plugin.getConfig();
         
-        // Загрузка настроек
-        requireSaddle = config.getBoolean("require-saddle", false);
-        speed = config.getDouble("speed", 0.25);
-        jumpStrength = config.getDouble("jump-strength", 0.8);
-        multiJump = config.getBoolean("multi-jump", true);
-        extraJumps = config.getInt("extra-jumps", 1);
-        ramDamage = config.getDouble("ram-damage", 4.0);
-        ramEnabled = config.getBoolean("ram-enabled", true);
-        sprintMultiplier = config.getDouble("sprint.multiplier", 1.5);
-        doubleTapTime = config.getLong("sprint.double-tap-time", 300);
-        fallProtectionDistance = config.getDouble("fall-protection-distance", 500.0);
+        // Параметры правил езды; окно double-tap переводится в тики
+        RideParams ride = RideParams.of(
+                config.getDouble("speed", 0.25),
+                config.getDouble("jump-strength", 0.8),
+                config.getBoolean("multi-jump", true),
+                config.getInt("extra-jumps", 1),
+                config.getDouble("sprint.multiplier", 1.5),
+                config.getLong("sprint.double-tap-time", 300)
+        );
+        if (config.getBoolean("sprint.stamina.enabled", false)) {
+            ride = ride.withStamina(
+                    config.getDouble("sprint.stamina.duration", 10.0),
+                    config.getDouble("sprint.stamina.recharge-time", 5.0),
+                    config.getDouble("sprint.stamina.recharge-delay", 1.0),
+                    config.getDouble("sprint.stamina.restart-threshold", 0.25)
+            );
+        }
         
         // Загрузка blacklist для тарана
-        ramBlacklist = EnumSet.noneOf(EntityType.class);
+        Set<EntityType> ramBlacklist = EnumSet.noneOf(EntityType.class);
         List<String> blacklistStrings = config.getStringList("ram-blacklist");
         for (String typeName : blacklistStrings) {
             try {
@@ -67,92 +66,326 @@ public class ConfigManager {
                 plugin.getLogger().warning("Неизвестный тип сущности в ram-blacklist: " + typeName);
             }
         }
+        Settings.Ram ram = new Settings.Ram(
+                config.getBoolean("ram-enabled", true),
+                config.getDouble("ram-damage", 4.0),
+                config.getDouble("ram-requery-distance", 0.5),
+                Collections.unmodifiableSet(ramBlacklist)
+        );
+        
+        // Загрузка настроек авто-шага
+        Settings.AutoStep autoStep = new Settings.AutoStep(
+                config.getBoolean("auto-step.enabled", true),
+                Math.max(0.0, Math.min(1.5, config.getDouble("auto-step.max-height", 1.0))),
+                TimeUnit.SECONDS.toNanos(Math.max(0L, config.getLong("auto-step.cache-ttl", 30L)))
+        );
+        
+        // Загрузка настроек каравана
+        Settings.Caravan caravan = new Settings.Caravan(
+                config.getBoolean("caravan.enabled", true),
+                Math.max(1, config.getInt("caravan.max-followers", 8)),
+                Math.max(1.0, config.getDouble("caravan.spacing", 2.0)),
+                Math.max(1.0, config.getDouble("caravan.radius", 10.0))
+        );
+        
+        // Загрузка ступеней разгрузки при перегрузке региона
+        Settings.LoadShedding loadShedding = new Settings.LoadShedding(
+                config.getBoolean("load-shedding.enabled", true),
+                Math.max(1L, config.getLong("load-shedding.check-interval", 20)),
+                config.getDouble("load-shedding.recovery-margin", 1.0),
+                loadStages(config.getMapList("load-shedding.stages"))
+        );
+        
+        // Загрузка порогов отправки поворота и скорости козла
+        Settings.Network network = new Settings.Network(
+                (float) config.getDouble("network.rotation-threshold", 1.0),
+                config.getDouble("network.velocity-threshold", 0.01),
+                config.getBoolean("network.far-trackers.enabled", false),
+                config.getDouble("network.far-trackers.distance", 48.0),
+                Math.max(1L, config.getLong("network.far-trackers.rotation-period", 5)),
+                Math.max(1L, config.getLong("network.far-trackers.check-interval", 20))
+        );
+        
+        // Загрузка настроек статистики
+        Settings.Stats stats = new Settings.Stats(
+                config.getBoolean("stats.timing", true),
+                config.getBoolean("stats.prometheus.enabled", false),
+                config.getString("stats.prometheus.file", "stats.prom"),
+                Math.max(1L, config.getLong("stats.prometheus.interval", 60)),
+                Math.max(1L, config.getLong("stats.jfr-tick-sample", 20))
+        );
+        
+        // Загрузка настроек записи ввода
+        Settings.Trace trace = new Settings.Trace(
+                config.getBoolean("trace.enabled", false),
+                config.getString("trace.directory", "traces"),
+                Math.max(1, config.getInt("trace.segment-size", 16)),
+                Math.max(1, config.getInt("trace.max-segments", 8)),
+                Math.max(1024, config.getInt("trace.buffer-size", 65536)),
+                Math.max(50L, config.getLong("trace.flush-interval", 250))
+        );
+        
+        // Загрузка настроек статистики наездников
+        Settings.RiderStats riderStats = new Settings.RiderStats(
+                config.getBoolean("rider-stats.enabled", false),
+                config.getString("rider-stats.file", "rider-stats.dat"),
+                Math.max(1L, config.getLong("rider-stats.flush-interval", 30)),
+                Math.max(1, config.getInt("rider-stats.top-size", 10))
+        );
+        
+        // Способ защиты от падения
+        Settings.FallProtectionMode fallProtectionMode;
+        String modeName = config.getString("fall-protection-mode", "attribute");
+        try {
+            fallProtectionMode = Settings.FallProtectionMode.valueOf(modeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Неизвестный fall-protection-mode: " + modeName + ", используется attribute");
+            fallProtectionMode = Settings.FallProtectionMode.ATTRIBUTE;
+        }
+        
+        // Лимиты наездников и режим при заполнении
+        Settings.CapacityMode capacityMode;
+        String capacityModeName = config.getString("capacity.mode", "refuse");
+        try {
+            capacityMode = Settings.CapacityMode.valueOf(capacityModeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Неизвестный capacity.mode: " + capacityModeName + ", используется refuse");
+            capacityMode = Settings.CapacityMode.REFUSE;
+        }
+        Settings.Capacity capacity = new Settings.Capacity(
+                Math.max(0, config.getInt("capacity.max-per-world", 0)),
+                Math.max(0, config.getInt("capacity.max-per-region", 0)),
+                capacityMode,
+                Math.max(1L, config.getLong("capacity.queue-timeout", 15)),
+                Math.max(1, config.getInt("capacity.queue-size", 32))
+        );
         
         // Загрузка сообщений
-        prefix = config.getString("messages.prefix", "&8[&6GoatRider&8] ");
-        mountSuccess = config.getString("messages.mount-success", "&aВы сели на козла!");
-        dismountSuccess = config.getString("messages.dismount-success", "&eВы слезли с козла.");
-        noPermission = config.getString("messages.no-permission", "&cУ вас нет прав для езды на козлах!");
-        saddleRequired = config.getString("messages.saddle-required", "&cДля езды на козле необходимо седло!");
-        configReloaded = config.getString("messages.config-reloaded", "&aКонфигурация перезагружена!");
-        noAdminPermission = config.getString("messages.no-admin-permission", "&cУ вас нет прав для этой команды!");
+        Settings.Messages messages = new Settings.Messages(
+                config.getString("messages.prefix", "&8[&6GoatRider&8] "),
+                config.getString("messages.mount-success", "&aВы сели на козла!"),
+                config.getString("messages.dismount-success", "&eВы слезли с козла."),
+                config.getString("messages.no-permission", "&cУ вас нет прав для езды на козлах!"),
+                config.getString("messages.saddle-required", "&cДля езды на козле необходимо седло!"),
+                config.getString("messages.config-reloaded", "&aКонфигурация перезагружена!"),
+                config.getString("messages.no-admin-permission", "&cУ вас нет прав для этой команды!"),
+                config.getString("messages.capacity-full", "&cЗдесь слишком много наездников, попробуйте позже."),
+                config.getString("messages.capacity-queued", "&eЗдесь слишком много наездников. Вы в очереди - посадка начнётся, когда освободится место."),
+                config.getString("messages.capacity-timeout", "&cМесто так и не освободилось, попробуйте позже.")
+        );
+        
+        // Публикуем снимок целиком
+        settings = new Settings(
+                ++version,
+                config.getBoolean("require-saddle", false),
+                ride,
+                config.getDouble("fall-protection-distance", 500.0),
+                fallProtectionMode,
+                config.getBoolean("suspend-ai", false),
+                new Settings.IdleParking(
+                        config.getBoolean("idle-parking.enabled", true),
+                        Math.max(1L, config.getLong("idle-parking.check-period", 10))),
+                Math.max(1L, config.getLong("tasks.sweep-interval", 60)),
+                capacity,
+                ram,
+                autoStep,
+                caravan,
+                loadShedding,
+                network,
+                stats,
+                trace,
+                riderStats,
+                messages
+        );
+    }
+
+    /**
+     * Текущий снимок настроек. Код тика берёт его один раз и дальше читает только из него.
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Читает ступени разгрузки и сортирует их от самой мягкой (высокий порог TPS) к самой жёсткой.
+     */
+    private List<LoadStage> loadStages(List<Map<?, ?>> entries) {
+        List<Map<?, ?>> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingDouble((Map<?, ?> entry) -> number(entry.get("tps-below"), 0.0)).reversed());
+        
+        List<LoadStage> stages = new ArrayList<>(sorted.size());
+        for (Map<?, ?> entry : sorted) {
+            double tpsBelow = number(entry.get("tps-below"), 0.0);
+            if (tpsBelow <= 0.0) {
+                plugin.getLogger().warning("Ступень load-shedding без корректного tps-below пропущена: " + entry);
+                continue;
+            }
+            stages.add(LoadStage.of(
+                    stages.size() + 1,
+                    tpsBelow,
+                    (int) number(entry.get("control-period"), 1),
+                    !Boolean.FALSE.equals(entry.get("ram")),
+                    !Boolean.FALSE.equals(entry.get("rotation"))
+            ));
+        }
+        return List.copyOf(stages);
+    }
+
+    private static double number(Object value, double def) {
+        return value instanceof Number number ? number.doubleValue() : def;
     }
 
     public Component formatMessage(String message) {
-        return LegacyComponentSerializer.legacyAmpersand().deserialize(prefix + message);
+        return LegacyComponentSerializer.legacyAmpersand().deserialize(settings.messages().prefix() + message);
     }
 
     public Component formatRawMessage(String message) {
         return LegacyComponentSerializer.legacyAmpersand().deserialize(message);
     }
 
-    // Геттеры для настроек
+    // Геттеры для настроек (каждый читает актуальный снимок)
     public boolean isRequireSaddle() {
-        return requireSaddle;
+        return settings.requireSaddle();
     }
 
     public double getSpeed() {
-        return speed;
+        return settings.ride().speed();
     }
 
     public double getJumpStrength() {
-        return jumpStrength;
+        return settings.ride().jumpStrength();
     }
 
     public boolean isMultiJump() {
-        return multiJump;
+        return settings.ride().multiJump();
     }
 
     public int getExtraJumps() {
-        return extraJumps;
+        return settings.ride().extraJumps();
     }
 
     public double getRamDamage() {
-        return ramDamage;
+        return settings.ram().damage();
     }
 
     public boolean isRamEnabled() {
-        return ramEnabled;
+        return settings.ram().enabled();
     }
 
     public double getSprintMultiplier() {
-        return sprintMultiplier;
+        return settings.ride().sprintMultiplier();
+    }
+
+    public boolean isSprintStaminaEnabled() {
+        return settings.ride().hasStamina();
+    }
+
+    /**
+     * Длительность спринта с полного запаса выносливости в секундах.
+     */
+    public double getStaminaDuration() {
+        return settings.ride().staminaTicks() / 20.0;
+    }
+
+    /**
+     * Время полного восстановления выносливости в секундах.
+     */
+    public double getStaminaRechargeTime() {
+        return settings.ride().staminaRechargeTicks() / 20.0;
     }
 
-    public long getDoubleTapTime() {
-        return doubleTapTime;
+    /**
+     * Пауза перед восстановлением выносливости в секундах.
+     */
+    public double getStaminaRechargeDelay() {
+        return settings.ride().staminaRechargeDelay() / 20.0;
     }
 
     public boolean isInRamBlacklist(EntityType type) {
-        return ramBlacklist.contains(type);
+        return settings.ram().isBlacklisted(type);
     }
 
     public double getFallProtectionDistance() {
-        return fallProtectionDistance;
+        return settings.fallProtectionDistance();
+    }
+
+    public Settings.FallProtectionMode getFallProtectionMode() {
+        return settings.fallProtectionMode();
+    }
+
+    public boolean isSuspendAi() {
+        return settings.suspendAi();
+    }
+
+    public boolean isIdleParkingEnabled() {
+        return settings.idleParking().enabled();
+    }
+
+    public boolean isCaravanEnabled() {
+        return settings.caravan().enabled();
+    }
+
+    public boolean isLoadSheddingEnabled() {
+        return settings.loadShedding().enabled();
+    }
+
+    /**
+     * Ступени разгрузки от самой мягкой к самой жёсткой.
+     */
+    public List<LoadStage> getLoadStages() {
+        return settings.loadShedding().stages();
+    }
+
+    public boolean isStatsTimingEnabled() {
+        return settings.stats().timing();
+    }
+
+    public boolean isPrometheusEnabled() {
+        return settings.stats().prometheusEnabled();
+    }
+
+    public String getPrometheusFile() {
+        return settings.stats().prometheusFile();
+    }
+
+    public long getPrometheusInterval() {
+        return settings.stats().prometheusInterval();
     }
 
     // Геттеры для сообщений
     public String getMountSuccess() {
-        return mountSuccess;
+        return settings.messages().mountSuccess();
     }
 
     public String getDismountSuccess() {
-        return dismountSuccess;
+        return settings.messages().dismountSuccess();
     }
 
     public String getNoPermission() {
-        return noPermission;
+        return settings.messages().noPermission();
     }
 
     public String getSaddleRequired() {
-        return saddleRequired;
+        return settings.messages().saddleRequired();
+    }
+
+    public String getCapacityFull() {
+        return settings.messages().capacityFull();
+    }
+
+    public String getCapacityQueued() {
+        return settings.messages().capacityQueued();
+    }
+
+    public String getCapacityTimeout() {
+        return settings.messages().capacityTimeout();
     }
 
     public String getConfigReloaded() {
-        return configReloaded;
+        return settings.messages().configReloaded();
     }
 
     public String getNoAdminPermission() {
-        return noAdminPermission;
+        return settings.messages().noAdminPermission();
     }
 }
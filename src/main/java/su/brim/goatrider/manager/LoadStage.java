@@ -0,0 +1,37 @@
+package su.brim.goatrider.manager;
+
+/**
+ * Ступень разгрузки задачи управления при перегрузке региона.
+ * @param level номер ступени (1 - самая мягкая)
+ * @param tpsBelow ступень включается, когда TPS региона ниже этого значения
+ * @param controlPeriod задача управления выполняется раз в столько тиков
+ * @param ramEnabled выполнять ли проверку тарана
+ * @param rotationEnabled поворачивать ли козла за взглядом
+ * @param velocityScale множитель скорости, компенсирующий пропущенные тики управления
+ */
+public record LoadStage(int level, double tpsBelow, int controlPeriod,
+                        boolean ramEnabled, boolean rotationEnabled, double velocityScale) {
+
+    // Затухание горизонтальной скорости на земле за тик (скольжение блока 0.6 * 0.91)
+    private static final double GROUND_DRAG = 0.546;
+
+    public static LoadStage of(int level, double tpsBelow, int controlPeriod,
+                               boolean ramEnabled, boolean rotationEnabled) {
+        int period = Math.max(1, controlPeriod);
+        return new LoadStage(level, tpsBelow, period, ramEnabled, rotationEnabled, velocityScale(period));
+    }
+
+    /**
+     * Во сколько раз увеличить скорость, чтобы при установке раз в period тиков
+     * козёл проходил столько же, сколько при установке каждый тик.
+     */
+    private static double velocityScale(int period) {
+        double travelled = 0.0;
+        double factor = 1.0;
+        for (int i = 0; i < period; i++) {
+            travelled += factor;
+            factor *= GROUND_DRAG;
+        }
+        return period / travelled;
+    }
+}
@@ -0,0 +1,248 @@
+package su.brim.goatrider.manager;
+
+import org.bukkit.World;
+import su.brim.goatrider.GoatRiderPlugin;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Ограничение числа наездников в мире и в области (ячейка 32x32 чанка - приближение региона Folia,
+ * который не раскрывает свои границы).
+ * Место занимается при посадке, переходит за козлом между областями и освобождается при высадке.
+ * Счётчики меняются под блокировкой - это редкие события (посадка, высадка, переход границы области),
+ * а читаются без неё из ConcurrentHashMap (/gr stats). Лимиты проверяются только при посадке:
+ * козёл, въехавший в заполненную область, не высаживается.
+ */
+public class RiderCapacity {
+
+    // Размер области: 2^5 = 32 чанка
+    private static final int AREA_CHUNK_SHIFT = 5;
+
+    /**
+     * Область мира: ячейка 32x32 чанка.
+     */
+    public record Area(String world, int x, int z) {
+
+        public static Area of(World world, int chunkX, int chunkZ) {
+            return new Area(world.getName(), chunkX >> AREA_CHUNK_SHIFT, chunkZ >> AREA_CHUNK_SHIFT);
+        }
+
+        /**
+         * Лежит ли чанк в этой области. Без аллокаций - вызывается каждый тик.
+         */
+        public boolean contains(World world, int chunkX, int chunkZ) {
+            return x == chunkX >> AREA_CHUNK_SHIFT && z == chunkZ >> AREA_CHUNK_SHIFT
+                    && this.world.equals(world.getName());
+        }
+
+        @Override
+        public String toString() {
+            return world + " [" + x + ", " + z + "]";
+        }
+    }
+
+    /**
+     * Игрок в очереди на посадку. Повтор посадки ставит задачу в потоке козла.
+     */
+    public static final class Waiter {
+
+        private final UUID playerId;
+        private final Area area;
+        private final Consumer<Waiter> retry;
+
+        // Время ожидания вышло; повтор, который был в пути, больше не возвращается в очередь
+        private volatile boolean expired;
+
+        public Waiter(UUID playerId, Area area, Consumer<Waiter> retry) {
+            this.playerId = playerId;
+            this.area = area;
+            this.retry = retry;
+        }
+    }
+
+    private final GoatRiderPlugin plugin;
+
+    // Наездники по мирам и по областям; нулевые записи удаляются
+    private final Map<String, Integer> worlds = new ConcurrentHashMap<>();
+    private final Map<Area, Integer> areas = new ConcurrentHashMap<>();
+
+    // Очередь на посадку в порядке прихода (под блокировкой)
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+
+    public RiderCapacity(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Занимает место в мире и области, если лимиты позволяют.
+     * Пока в очереди ждут игроки той же области (или того же мира при лимите на мир),
+     * новые посадки места не получают - очередь идёт по порядку.
+     * @param fromQueue попытка игрока, которого очередь уже пропустила
+     * @return true, если место занято
+     */
+    public synchronized boolean tryAcquire(Area area, boolean fromQueue) {
+        Settings.Capacity limits = plugin.getConfigManager().getSettings().capacity();
+        if (!fits(area, limits) || (!fromQueue && hasWaitersFor(area, limits))) {
+            return false;
+        }
+        add(area, 1);
+        return true;
+    }
+
+    /**
+     * Переносит место сессии в новую область, если козёл пересёк её границу.
+     * Вызывается из потока региона козла.
+     */
+    synchronized void move(RiderSession session, World world, int chunkX, int chunkZ) {
+        Area from = session.area;
+        if (from == null || from.contains(world, chunkX, chunkZ)) {
+            return;
+        }
+        Area to = Area.of(world, chunkX, chunkZ);
+        add(from, -1);
+        add(to, 1);
+        session.area = to;
+        signal();
+    }
+
+    /**
+     * Освобождает место сессии и пропускает следующего игрока из очереди.
+     */
+    synchronized void release(RiderSession session) {
+        Area area = session.area;
+        if (area == null) {
+            return;
+        }
+        session.area = null;
+        release(area);
+    }
+
+    /**
+     * Возвращает место, занятое {@link #tryAcquire}, если посадка не состоялась,
+     * и пропускает следующего игрока из очереди.
+     */
+    public synchronized void release(Area area) {
+        add(area, -1);
+        signal();
+    }
+
+    /**
+     * Ставит игрока в конец очереди.
+     * @return false, если очередь заполнена или игрок уже ждёт
+     */
+    public synchronized boolean enqueue(Waiter waiter) {
+        if (waiting.size() >= plugin.getConfigManager().getSettings().capacity().queueSize()
+                || isWaiting(waiter.playerId)) {
+            return false;
+        }
+        waiting.addLast(waiter);
+        return true;
+    }
+
+    /**
+     * Возвращает игрока в начало очереди после неудачного повтора: место успел занять наездник,
+     * въехавший в область. Ожидание, время которого вышло, не возвращается.
+     * @return false, если время ожидания вышло
+     */
+    public synchronized boolean requeue(Waiter waiter) {
+        if (waiter.expired) {
+            return false;
+        }
+        waiting.addFirst(waiter);
+        return true;
+    }
+
+    /**
+     * Завершает ожидание по таймауту.
+     * @return true, если игрок ещё стоял в очереди (а не повторял посадку в этот момент)
+     */
+    public synchronized boolean expire(Waiter waiter) {
+        waiter.expired = true;
+        return waiting.remove(waiter);
+    }
+
+    public synchronized boolean isWaiting(UUID playerId) {
+        for (Waiter waiter : waiting) {
+            if (waiter.playerId.equals(playerId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пропускает первого игрока очереди, для которого нашлось место. Вызывается при освобождении места
+     * и когда пропущенный игрок не смог сесть (ушёл, козёл пропал).
+     */
+    public synchronized void signal() {
+        Settings.Capacity limits = plugin.getConfigManager().getSettings().capacity();
+        for (Iterator<Waiter> iterator = waiting.iterator(); iterator.hasNext(); ) {
+            Waiter waiter = iterator.next();
+            if (fits(waiter.area, limits)) {
+                iterator.remove();
+                // Повтор только ставит задачу в потоке козла, под блокировкой это безопасно
+                waiter.retry.accept(waiter);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает все счётчики и очередь (высадка всех при выключении).
+     */
+    synchronized void clear() {
+        worlds.clear();
+        areas.clear();
+        waiting.clear();
+    }
+
+    /**
+     * Наездники по мирам. Представление только для чтения, безопасно читать из любого потока.
+     */
+    public Map<String, Integer> getWorldCounts() {
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    /**
+     * Наездники по областям. Представление только для чтения, безопасно читать из любого потока.
+     */
+    public Map<Area, Integer> getAreaCounts() {
+        return Collections.unmodifiableMap(areas);
+    }
+
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private boolean fits(Area area, Settings.Capacity limits) {
+        return (limits.maxPerWorld() <= 0 || worlds.getOrDefault(area.world(), 0) < limits.maxPerWorld())
+                && (limits.maxPerRegion() <= 0 || areas.getOrDefault(area, 0) < limits.maxPerRegion());
+    }
+
+    private boolean hasWaitersFor(Area area, Settings.Capacity limits) {
+        for (Waiter waiter : waiting) {
+            if (waiter.area.equals(area)
+                    || (limits.maxPerWorld() > 0 && waiter.area.world().equals(area.world()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(Area area, int delta) {
+        worlds.compute(area.world(), (world, count) -> nonZero(count, delta));
+        areas.compute(area, (key, count) -> nonZero(count, delta));
+    }
+
+    private static Integer nonZero(Integer count, int delta) {
+        int value = (count != null ? count : 0) + delta;
+        return value > 0 ? value : null;
+    }
+}
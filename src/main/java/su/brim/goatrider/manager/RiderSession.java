@@ -0,0 +1,332 @@
+package su.brim.goatrider.manager;
+
+import org.bukkit.Input;
+import org.bukkit.Location;
+import org.bukkit.World;
+import su.brim.goatrider.core.RiderInput;
+import su.brim.goatrider.core.RiderState;
+import su.brim.goatrider.riderstats.RiderStatsStore;
+
+import java.util.UUID;
+
+/**
+ * Состояние одного наездника на время езды.
+ * Создаётся в {@link RidingManager#addRider} и ищется один раз за тик задачи управления,
+ * поэтому все изменяемые поля примитивные - никаких боксингов и поисков по UUID в горячем пути.
+ * Состояние правил езды (прыжки, спринт, кулдауны) наследуется от {@link RiderState},
+ * здесь - только то, что связано с сервером. Поля изменяются только из потока региона козла.
+ */
+public final class RiderSession extends RiderState {
+
+    // Наибольший путь за тик, который считается ездой, а не телепортом
+    private static final double MAX_STATS_STEP = 5.0;
+
+    private final UUID playerId;
+    private final UUID goatId;
+
+    // Порядковый номер посадки с запуска сервера - анонимный идентификатор сессии в трассе ввода
+    private final int sessionNumber;
+
+    // Время посадки - для длительности сессии в событии JFR
+    private final long mountNanos = System.nanoTime();
+
+    // Снимок настроек, с которым работает сессия, и дистанция в модификаторе атрибута
+    // защиты от падения (NaN - модификатор не ставился, режим event)
+    Settings settings;
+    double appliedFallProtection;
+
+    // ИИ козла выключен на время езды
+    boolean aiSuspended;
+
+    // Снимок ввода из PlayerInputEvent и нажатия W и прыжка, ещё не обработанные задачей управления.
+    // Пишутся событием, читаются задачей - обе в потоке региона игрока и козла
+    private volatile int input;
+    private volatile boolean forwardPress;
+    private volatile boolean jumpPress;
+
+    // Задача управления припаркована: козёл стоит на земле без ввода, вместо тика - редкая проверка
+    private volatile boolean parked;
+
+    // Область, в которой сессия занимает место (null - место освобождено). Меняется под блокировкой RiderCapacity
+    volatile RiderCapacity.Area area;
+
+    // Текущая ступень разгрузки (null - полная частота) и тик последней проверки TPS региона
+    private volatile LoadStage loadStage;
+    private long lastLoadCheckTick = NEVER;
+
+    // Все наблюдающие игроки далеко - поворот можно отправлять реже
+    private boolean farFromTrackers;
+    private long lastTrackerCheckTick = NEVER;
+
+    // Последняя известная позиция козла (мир и чанк) - для статистики по областям
+    private volatile World world;
+    private volatile int chunkX;
+    private volatile int chunkZ;
+
+    // Переиспользуемая Location для чтения позиций внутри тика
+    private final Location scratchLocation = new Location(null, 0, 0, 0);
+
+    // Чтение кэша высот для авто-шага с последним чанком козла
+    private final CollisionCache.Reader collisionReader = new CollisionCache.Reader();
+
+    // Караван за козлом наездника (null - нет)
+    private volatile Caravan caravan;
+
+    // Горизонтальная скорость, последней отправленная козлу (NaN - ещё не отправлялась)
+    private double lastSentX = Double.NaN;
+    private double lastSentZ = Double.NaN;
+
+    // Результат последнего запроса тарана - чтобы пропускать повторные пустые запросы
+    private double ramQueryX;
+    private double ramQueryZ;
+    private long ramQueryTick = NEVER;
+    private boolean ramQueryEmpty;
+
+    // Счётчики статистики игрока (null - статистика выключена) и позиция козла в прошлом тике
+    private RiderStatsStore.Counters riderStats;
+    private double statsX;
+    private double statsZ;
+    private long statsTick = NEVER;
+
+    RiderSession(UUID playerId, UUID goatId, int sessionNumber, Settings settings) {
+        super(settings.ride().extraJumps());
+        this.playerId = playerId;
+        this.goatId = goatId;
+        this.sessionNumber = sessionNumber;
+        this.settings = settings;
+        this.appliedFallProtection = RidingManager.attributeFallProtection(settings);
+    }
+
+    /**
+     * Снимок настроек, действующий для сессии в текущем тике.
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Запоминает позицию козла. Вызывается раз в тик с уже заполненной Location козла.
+     */
+    public void updatePosition(Location goatLocation) {
+        this.world = goatLocation.getWorld();
+        this.chunkX = goatLocation.getBlockX() >> 4;
+        this.chunkZ = goatLocation.getBlockZ() >> 4;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public RiderCapacity.Area getArea() {
+        return area;
+    }
+
+    /**
+     * Запоминает клавиши из события ввода или {@code Player#getCurrentInput()} при посадке.
+     */
+    public void updateInput(Input keys) {
+        updateInput(RiderInput.of(keys.isForward(), keys.isBackward(), keys.isLeft(), keys.isRight(),
+                keys.isJump(), keys.isSprint(), keys.isSneak()));
+    }
+
+    /**
+     * Запоминает ввод из события. Нажатия W и прыжка (переход отпущена -> нажата) сохраняются до тика
+     * управления, даже если клавишу успели отпустить.
+     */
+    public void updateInput(int input) {
+        if (RiderInput.has(input, RiderInput.FORWARD) && !RiderInput.has(this.input, RiderInput.FORWARD)) {
+            forwardPress = true;
+        }
+        if (RiderInput.has(input, RiderInput.JUMP) && !RiderInput.has(this.input, RiderInput.JUMP)) {
+            jumpPress = true;
+        }
+        this.input = input;
+    }
+
+    public int getInput() {
+        return input;
+    }
+
+    /**
+     * Было ли нажатие W с прошлого тика управления. Сбрасывает нажатие.
+     */
+    public boolean takeForwardPress() {
+        if (!forwardPress) {
+            return false;
+        }
+        forwardPress = false;
+        return true;
+    }
+
+    /**
+     * Было ли нажатие прыжка с прошлого тика управления. Сбрасывает нажатие.
+     */
+    public boolean takeJumpPress() {
+        if (!jumpPress) {
+            return false;
+        }
+        jumpPress = false;
+        return true;
+    }
+
+    public boolean isParked() {
+        return parked;
+    }
+
+    public void setParked(boolean parked) {
+        this.parked = parked;
+    }
+
+    public LoadStage getLoadStage() {
+        return loadStage;
+    }
+
+    void setLoadStage(LoadStage loadStage) {
+        this.loadStage = loadStage;
+    }
+
+    /**
+     * Пора ли снова проверить нагрузку региона. Отмечает проверку, если пора.
+     */
+    public boolean pollLoadCheck(long interval) {
+        if (getTick() - lastLoadCheckTick < interval) {
+            return false;
+        }
+        lastLoadCheckTick = getTick();
+        return true;
+    }
+
+    /**
+     * Пора ли снова проверить расстояние до наблюдающих игроков. Отмечает проверку, если пора.
+     */
+    public boolean pollTrackerCheck(long interval) {
+        if (getTick() - lastTrackerCheckTick < interval) {
+            return false;
+        }
+        lastTrackerCheckTick = getTick();
+        return true;
+    }
+
+    public boolean isFarFromTrackers() {
+        return farFromTrackers;
+    }
+
+    public void setFarFromTrackers(boolean farFromTrackers) {
+        this.farFromTrackers = farFromTrackers;
+    }
+
+    /**
+     * Location для повторного использования в {@code Entity#getLocation(Location)} внутри тика.
+     */
+    public Location getScratchLocation() {
+        return scratchLocation;
+    }
+
+    /**
+     * Чтение кэша высот для авто-шага внутри тика.
+     */
+    public CollisionCache.Reader getCollisionReader() {
+        return collisionReader;
+    }
+
+    public double getLastSentX() {
+        return lastSentX;
+    }
+
+    public double getLastSentZ() {
+        return lastSentZ;
+    }
+
+    /**
+     * Запоминает горизонтальную скорость, отправленную козлу в этом тике.
+     */
+    public void markVelocitySent(double x, double z) {
+        this.lastSentX = x;
+        this.lastSentZ = z;
+    }
+
+    /**
+     * Можно ли пропустить запрос сущностей для тарана в этом тике:
+     * прошлый запрос был пустым, был недавно, и козёл сдвинулся меньше заданного расстояния.
+     */
+    public boolean canSkipRamQuery(double x, double z, double minDistanceSquared, long maxTicks) {
+        if (!ramQueryEmpty || getTick() - ramQueryTick >= maxTicks) {
+            return false;
+        }
+        double dx = x - ramQueryX;
+        double dz = z - ramQueryZ;
+        return dx * dx + dz * dz < minDistanceSquared;
+    }
+
+    /**
+     * Запоминает позицию и результат запроса сущностей для тарана.
+     */
+    public void recordRamQuery(double x, double z, boolean empty) {
+        this.ramQueryX = x;
+        this.ramQueryZ = z;
+        this.ramQueryTick = getTick();
+        this.ramQueryEmpty = empty;
+    }
+
+    /**
+     * Добавляет в статистику путь козла с прошлого тика. Скачки больше
+     * {@link #MAX_STATS_STEP} блоков за тик (телепорт) не считаются.
+     */
+    public void trackMovement(double x, double z) {
+        if (riderStats == null) {
+            return;
+        }
+        long elapsed = getTick() - statsTick;
+        if (statsTick != NEVER && elapsed > 0) {
+            double dx = x - statsX;
+            double dz = z - statsZ;
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            if (distance > 0.0 && distance <= MAX_STATS_STEP * elapsed) {
+                riderStats.addDistance(distance, distance * 20.0 / elapsed);
+            }
+        }
+        statsX = x;
+        statsZ = z;
+        statsTick = getTick();
+    }
+
+    public RiderStatsStore.Counters getRiderStats() {
+        return riderStats;
+    }
+
+    void setRiderStats(RiderStatsStore.Counters riderStats) {
+        this.riderStats = riderStats;
+    }
+
+    public Caravan getCaravan() {
+        return caravan;
+    }
+
+    void setCaravan(Caravan caravan) {
+        this.caravan = caravan;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public UUID getGoatId() {
+        return goatId;
+    }
+
+    public long getMountNanos() {
+        return mountNanos;
+    }
+
+    public int getSessionNumber() {
+        return sessionNumber;
+    }
+}
@@ -1,18 +1,36 @@
 package su.brim.goatrider.manager;
 
-import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeInstance;
 import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Goat;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
 import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.core.RidingRules;
+import su.brim.goatrider.jfr.GoatDismount;
+import su.brim.goatrider.jfr.GoatMount;
+import su.brim.goatrider.stats.PerformanceStats;
+import su.brim.goatrider.util.MovementMath;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Менеджер для отслеживания игроков, которые едут на козлах.
@@ -25,56 +43,140 @@ public class RidingManager {
     // NamespacedKey для модификатора атрибута безопасного падения
     private final NamespacedKey safeFallModifierKey;
     
-    // Хранение данных о наездниках: UUID игрока -> UUID козла
-    private final Map<UUID, UUID> riders = new ConcurrentHashMap<>();
+    // Метка в PersistentDataContainer козла: на нём может висеть модификатор, который нужно снять.
+    // Хранится вместе с сущностью, поэтому переживает выгрузку чанка и рестарт сервера
+    private final NamespacedKey cleanupMarkerKey;
     
-    // Хранение количества оставшихся прыжков для каждого игрока
-    private final Map<UUID, Integer> jumpCounts = new ConcurrentHashMap<>();
+    // Метка в PersistentDataContainer козла: плагин выключил его ИИ, при загрузке ИИ нужно вернуть
+    private final NamespacedKey aiSuspendedKey;
     
-    // Хранение задач контроля для каждого козла
-    private final Map<UUID, ScheduledTask> controlTasks = new ConcurrentHashMap<>();
+    // Сессии наездников: UUID игрока -> состояние езды
+    private final Map<UUID, RiderSession> riders = new ConcurrentHashMap<>();
     
-    // Кулдаун на урон тарана для каждой цели (UUID цели -> время последнего урона)
-    private final Map<UUID, Long> ramCooldowns = new ConcurrentHashMap<>();
+    // Обратный индекс: UUID козла -> сессия его наездника. Изменяется вместе с riders
+    private final Map<UUID, RiderSession> ridersByGoat = new ConcurrentHashMap<>();
     
-    // Кулдаун на прыжок для каждого игрока (чтобы избежать спама)
-    private final Map<UUID, Long> jumpCooldowns = new ConcurrentHashMap<>();
+    // UUID козлов, идущих в караванах
+    private final Set<UUID> caravanFollowers = ConcurrentHashMap.newKeySet();
     
-    // Отслеживание double-tap W для спринта
-    private final Map<UUID, Long> lastForwardPress = new ConcurrentHashMap<>();
-    private final Map<UUID, Boolean> wasForwardPressed = new ConcurrentHashMap<>();
-    private final Map<UUID, Boolean> sprintActive = new ConcurrentHashMap<>();
+    // Счётчик посадок для номеров сессий
+    private final AtomicInteger sessionCounter = new AtomicInteger();
     
-    // Козлы, которым нужно снять модификатор (UUID козла -> время добавления)
-    private final Map<UUID, Long> goatsToCleanup = new ConcurrentHashMap<>();
-    
-    // Кулдаун урона в миллисекундах (500мс = 10 тиков)
-    private static final long RAM_COOLDOWN_MS = 500L;
-    
-    // Кулдаун прыжка в миллисекундах (200мс = 4 тика)
-    private static final long JUMP_COOLDOWN_MS = 200L;
+    // Места наездников по мирам и областям, очередь на посадку
+    private final RiderCapacity capacity;
 
     public RidingManager(GoatRiderPlugin plugin) {
         this.plugin = plugin;
         this.safeFallModifierKey = new NamespacedKey(plugin, "goat_rider_safe_fall");
+        this.cleanupMarkerKey = new NamespacedKey(plugin, "goat_rider_cleanup");
+        this.aiSuspendedKey = new NamespacedKey(plugin, "goat_rider_ai_suspended");
+        this.capacity = new RiderCapacity(plugin);
     }
 
     /**
      * Регистрирует игрока как наездника козла.
+     * @param area область, в которой посадка уже заняла место ({@link RiderCapacity#tryAcquire})
      */
-    public void addRider(Player player, Goat goat) {
+    public void addRider(Player player, Goat goat, RiderCapacity.Area area) {
         UUID uuid = player.getUniqueId();
-        riders.put(uuid, goat.getUniqueId());
-        resetJumps(player);
-        // Сбрасываем состояние спринта
-        sprintActive.put(uuid, false);
-        wasForwardPressed.put(uuid, false);
-        lastForwardPress.remove(uuid);
+        // Новая сессия: сброшенные прыжки и состояние спринта
+        RiderSession session = new RiderSession(uuid, goat.getUniqueId(), sessionCounter.incrementAndGet(),
+                plugin.getConfigManager().getSettings());
+        session.updatePosition(goat.getLocation());
+        session.area = area;
+        session.setRiderStats(plugin.getRiderStats().counters(player));
+        // Начальный ввод; дальше его обновляют события PlayerInputEvent
+        session.updateInput(player.getCurrentInput());
+        RiderSession previous = riders.put(uuid, session);
+        if (previous != null) {
+            ridersByGoat.remove(previous.getGoatId(), previous);
+            capacity.release(previous);
+        }
+        ridersByGoat.put(session.getGoatId(), session);
+        plugin.getStats().increment(PerformanceStats.Counter.MOUNTS);
+        new GoatMount().commit(session);
+        
+        // В режиме attribute добавляем модификатор безопасного падения игроку и козлу;
+        // в режиме event защита работает в событии урона и атрибуты не трогаются
+        if (!Double.isNaN(session.appliedFallProtection)) {
+            applySafeFallModifier(player, session.appliedFallProtection);
+            applySafeFallModifier(goat, session.appliedFallProtection);
+            goat.getPersistentDataContainer().set(cleanupMarkerKey, PersistentDataType.BYTE, (byte) 1);
+        }
+        
+        // Ванильный ИИ козла не нужен, пока движением управляет наездник
+        if (session.settings.suspendAi()) {
+            suspendAi(goat);
+            session.aiSuspended = true;
+        }
+    }
+
+    /**
+     * Сверяет версию снимка настроек сессии с актуальной и, если конфиг перезагружен,
+     * переводит сессию на новый снимок: обновляет модификаторы защиты от падения, лимит прыжков и выносливость.
+     * Вызывается раз в тик из потока региона козла; без изменений стоит одно сравнение версий.
+     * @return снимок, который действует для сессии в этом тике
+     */
+    public Settings syncSettings(RiderSession session, Player player, Goat goat) {
+        Settings current = plugin.getConfigManager().getSettings();
+        if (current.version() == session.settings.version()) {
+            return session.settings;
+        }
         
-        // Добавляем модификатор безопасного падения игроку и козлу
-        double fallDistance = plugin.getConfigManager().getFallProtectionDistance();
-        applySafeFallModifier(player, fallDistance);
-        applySafeFallModifier(goat, fallDistance);
+        double fallDistance = attributeFallProtection(current);
+        if (Double.compare(fallDistance, session.appliedFallProtection) != 0) {
+            if (Double.isNaN(fallDistance)) {
+                // Переход на режим event: снимаем модификаторы сразу, козёл в своём потоке
+                removeSafeFallModifier(player);
+                removeSafeFallModifier(goat);
+                goat.getPersistentDataContainer().remove(cleanupMarkerKey);
+            } else {
+                applySafeFallModifier(player, fallDistance);
+                applySafeFallModifier(goat, fallDistance);
+                goat.getPersistentDataContainer().set(cleanupMarkerKey, PersistentDataType.BYTE, (byte) 1);
+            }
+            session.appliedFallProtection = fallDistance;
+        }
+        if (current.suspendAi() != session.aiSuspended) {
+            if (current.suspendAi()) {
+                suspendAi(goat);
+            } else {
+                restoreAi(goat);
+            }
+            session.aiSuspended = current.suspendAi();
+        }
+        session.capJumps(current.ride().extraJumps());
+        RidingRules.syncStamina(session, session.settings.ride(), current.ride());
+        session.settings = current;
+        return current;
+    }
+
+    /**
+     * Дистанция защиты, которую нужно держать в модификаторе атрибута,
+     * или NaN, если защита работает через событие урона.
+     */
+    static double attributeFallProtection(Settings settings) {
+        return settings.fallProtectionMode() == Settings.FallProtectionMode.ATTRIBUTE
+                ? settings.fallProtectionDistance() : Double.NaN;
+    }
+
+    /**
+     * Уменьшает урон от падения наездника или его козла в режиме event.
+     * Урон от падения - примерно блок на единицу здоровья сверх безопасной высоты, поэтому
+     * вычитание fall-protection-distance соответствует такому же увеличению безопасной высоты.
+     * @param entityUuid UUID пострадавшего (игрока или козла)
+     * @param damage исходный урон
+     * @return новый урон (0 - отменить) или отрицательное значение, если сущность не защищается
+     */
+    public double reduceFallDamage(UUID entityUuid, double damage) {
+        RiderSession session = riders.get(entityUuid);
+        if (session == null) {
+            session = ridersByGoat.get(entityUuid);
+        }
+        if (session == null || session.settings.fallProtectionMode() != Settings.FallProtectionMode.EVENT) {
+            return -1.0;
+        }
+        return Math.max(0.0, damage - session.settings.fallProtectionDistance());
     }
 
     /**
@@ -82,22 +184,25 @@ public class RidingManager {
      */
     public void removeRider(Player player) {
         UUID uuid = player.getUniqueId();
-        UUID goatUuid = riders.remove(uuid);
-        jumpCounts.remove(uuid);
-        jumpCooldowns.remove(uuid);
-        lastForwardPress.remove(uuid);
-        wasForwardPressed.remove(uuid);
-        sprintActive.remove(uuid);
-        cancelControlTask(uuid);
+        RiderSession session = riders.remove(uuid);
+        if (session != null) {
+            ridersByGoat.remove(session.getGoatId(), session);
+            capacity.release(session);
+            disbandCaravan(session);
+            new GoatDismount().commit(session);
+        }
+        plugin.getTaskRegistry().cancelControl(uuid);
         
-        // Удаляем модификатор безопасного падения у игрока
-        removeSafeFallModifier(player);
+        // Удаляем модификатор безопасного падения у игрока (в режиме event его не было).
+        // Последний наездник - слушатели езды снимутся после паузы, если никто не сядет
+        if (riders.isEmpty()) {
+            plugin.getRidingListeners().scheduleIdleCheck();
+        }
         
-        // Удаляем модификатор у козла, если найден
-        if (goatUuid != null) {
-            // Сохраняем UUID козла для последующего удаления модификатора
-            // (козёл может быть недоступен сразу, но модификатор снимется при следующей проверке)
-            goatsToCleanup.put(goatUuid, System.currentTimeMillis());
+        // Модификатор и ИИ козла восстанавливаются через cleanupGoat и restoreStaleAi в его потоке, а если козёл
+        // к тому моменту выгружен - при следующей загрузке по меткам в его PersistentDataContainer
+        if (session == null || !Double.isNaN(session.appliedFallProtection)) {
+            removeSafeFallModifier(player);
         }
     }
 
@@ -109,127 +214,280 @@ public class RidingManager {
     }
 
     /**
-     * Получает UUID козла, на котором едет игрок.
+     * Получает сессию езды игрока или null, если игрок не едет.
+     * Задача управления вызывает этот метод один раз за тик.
      */
-    public UUID getGoatUUID(Player player) {
+    public RiderSession getSession(Player player) {
         return riders.get(player.getUniqueId());
     }
 
     /**
-     * Сбрасывает счётчик прыжков игрока.
+     * Получает сессию езды по UUID игрока или null.
      */
-    public void resetJumps(Player player) {
-        jumpCounts.put(player.getUniqueId(), plugin.getConfigManager().getExtraJumps());
+    public RiderSession getSession(UUID playerUuid) {
+        return riders.get(playerUuid);
     }
 
     /**
-     * Использует один прыжок. Возвращает true, если прыжок был доступен.
+     * Получает сессию наездника козла по UUID козла или null, если на нём никто не едет.
      */
-    public boolean useJump(Player player) {
-        int remaining = jumpCounts.getOrDefault(player.getUniqueId(), 0);
-        if (remaining > 0) {
-            jumpCounts.put(player.getUniqueId(), remaining - 1);
-            return true;
-        }
-        return false;
+    public RiderSession getSessionByGoat(UUID goatUuid) {
+        return ridersByGoat.get(goatUuid);
+    }
+
+    /**
+     * Есть ли сейчас хоть один наездник. Позволяет слушателям сразу выходить из событий,
+     * не относящихся к козлам.
+     */
+    public boolean hasRiders() {
+        return !riders.isEmpty();
+    }
+
+    /**
+     * Едет ли игрок на этом козле (по индексу, без копирования списка пассажиров).
+     */
+    public boolean isRiddenBy(UUID goatUuid, UUID playerUuid) {
+        RiderSession session = ridersByGoat.get(goatUuid);
+        return session != null && session.getPlayerId().equals(playerUuid);
+    }
+
+    /**
+     * Получает UUID козла, на котором едет игрок.
+     */
+    public UUID getGoatUUID(Player player) {
+        RiderSession session = riders.get(player.getUniqueId());
+        return session != null ? session.getGoatId() : null;
     }
 
     /**
-     * Проверяет, есть ли у игрока доступные прыжки.
+     * Проверяет, активен ли спринт у игрока.
      */
-    public boolean hasJumpsRemaining(Player player) {
-        return jumpCounts.getOrDefault(player.getUniqueId(), 0) > 0;
+    public boolean isSprinting(Player player) {
+        RiderSession session = riders.get(player.getUniqueId());
+        return session != null && session.isSprinting();
     }
     
     /**
-     * Проверяет и устанавливает кулдаун прыжка.
-     * Возвращает true, если прыжок разрешён (кулдаун прошёл).
+     * Пересчитывает ступень разгрузки сессии по TPS региона.
+     * Вверх (к более жёсткой ступени) переходим сразу, вниз - только когда TPS
+     * поднялся выше порога текущей ступени на recovery-margin, чтобы ступени не дёргались.
+     * @return новая ступень или null, если регион не перегружен
      */
-    public boolean canJump(Player player) {
-        long now = System.currentTimeMillis();
-        Long lastJump = jumpCooldowns.get(player.getUniqueId());
+    public LoadStage updateLoadStage(RiderSession session, double regionTps) {
+        Settings.LoadShedding config = session.settings.loadShedding();
+        LoadStage current = session.getLoadStage();
+        
+        // Самая жёсткая ступень, порог которой не выдержан; по индексу - без итератора каждый тик
+        LoadStage next = null;
+        List<LoadStage> stages = config.stages();
+        for (int i = 0; i < stages.size(); i++) {
+            LoadStage stage = stages.get(i);
+            if (regionTps < stage.tpsBelow()) {
+                next = stage;
+            }
+        }
         
-        if (lastJump == null || now - lastJump >= JUMP_COOLDOWN_MS) {
-            jumpCooldowns.put(player.getUniqueId(), now);
-            return true;
+        // Возврат к более мягкой ступени только с запасом
+        int nextLevel = next != null ? next.level() : 0;
+        if (current != null && nextLevel < current.level()
+                && regionTps < current.tpsBelow() + config.recoveryMargin()) {
+            next = current;
         }
-        return false;
+        
+        session.setLoadStage(next);
+        return next;
     }
-    
+
     /**
-     * Проверяет, можно ли нанести урон тараном данной цели.
-     * Возвращает true и устанавливает кулдаун, если урон разрешён.
+     * Количество наездников на каждой ступени разгрузки (индекс 0 - полная частота).
      */
-    public boolean canRamDamage(UUID targetUUID) {
-        long now = System.currentTimeMillis();
-        Long lastDamage = ramCooldowns.get(targetUUID);
-        
-        if (lastDamage == null || now - lastDamage >= RAM_COOLDOWN_MS) {
-            ramCooldowns.put(targetUUID, now);
-            return true;
+    public int[] getLoadStageCounts() {
+        int[] counts = new int[plugin.getConfigManager().getLoadStages().size() + 1];
+        for (RiderSession session : riders.values()) {
+            LoadStage stage = session.getLoadStage();
+            int level = stage != null ? stage.level() : 0;
+            if (level < counts.length) {
+                counts[level]++;
+            }
         }
-        return false;
+        return counts;
     }
     
     /**
-     * Обновляет состояние спринта на основе нажатия W и кнопки спринта.
-     * Реализует логику double-tap W или удержания клавиши спринта.
-     * @param player игрок
-     * @param isForwardPressed нажата ли клавиша W сейчас
-     * @param isSprintKeyPressed нажата ли клавиша спринта (Ctrl)
-     * @return true если спринт активен
+     * Количество наездников, чьи задачи управления припаркованы (козёл стоит без ввода).
      */
-    public boolean updateSprintState(Player player, boolean isForwardPressed, boolean isSprintKeyPressed) {
-        UUID uuid = player.getUniqueId();
-        long now = System.currentTimeMillis();
-        long doubleTapTime = plugin.getConfigManager().getDoubleTapTime();
-        
-        boolean wasPressed = wasForwardPressed.getOrDefault(uuid, false);
-        boolean isSprinting = sprintActive.getOrDefault(uuid, false);
-        
-        // Спринт активен если:
-        // 1. Нажата кнопка спринта + движение вперёд
-        // 2. Или активирован через double-tap W
-        
-        // Проверяем кнопку спринта (как в ваниле - нужно двигаться вперёд)
-        if (isSprintKeyPressed && isForwardPressed) {
-            isSprinting = true;
-            sprintActive.put(uuid, true);
-        }
-        // Если W только что нажата (переход false -> true) - проверяем double-tap
-        else if (isForwardPressed && !wasPressed) {
-            Long lastPress = lastForwardPress.get(uuid);
-            
-            // Проверяем double-tap
-            if (lastPress != null && (now - lastPress) <= doubleTapTime) {
-                // Double-tap обнаружен - активируем спринт
-                isSprinting = true;
-                sprintActive.put(uuid, true);
+    public int getParkedCount() {
+        int parked = 0;
+        for (RiderSession session : riders.values()) {
+            if (session.isParked()) {
+                parked++;
             }
-            
-            // Запоминаем время нажатия
-            lastForwardPress.put(uuid, now);
         }
-        
-        // Если W отпущена - деактивируем спринт
-        if (!isForwardPressed) {
-            isSprinting = false;
-            sprintActive.put(uuid, false);
+        return parked;
+    }
+    
+    /**
+     * Количество наездников по областям: мир и ячейка 32x32 чанка.
+     * Folia не раскрывает границы своих регионов, поэтому область - приближение региона.
+     * Читается из счётчиков {@link RiderCapacity}, без обхода сессий.
+     */
+    public Map<String, Integer> getRidersByArea() {
+        Map<String, Integer> areas = new TreeMap<>();
+        for (Map.Entry<RiderCapacity.Area, Integer> entry : capacity.getAreaCounts().entrySet()) {
+            areas.put(entry.getKey().toString(), entry.getValue());
         }
-        
-        // Обновляем состояние нажатия
-        wasForwardPressed.put(uuid, isForwardPressed);
-        
-        return isSprinting;
+        return areas;
     }
     
     /**
-     * Проверяет, активен ли спринт у игрока.
+     * Запоминает позицию козла и переносит место сессии, если козёл пересёк границу области.
+     * Вызывается из потока региона козла с уже заполненной Location; без перехода - одно сравнение.
      */
-    public boolean isSprinting(Player player) {
-        return sprintActive.getOrDefault(player.getUniqueId(), false);
+    public void updatePosition(RiderSession session, Location goatLocation) {
+        session.updatePosition(goatLocation);
+        RiderCapacity.Area area = session.area;
+        World world = session.getWorld();
+        if (area != null && world != null && !area.contains(world, session.getChunkX(), session.getChunkZ())) {
+            capacity.move(session, world, session.getChunkX(), session.getChunkZ());
+        }
+    }
+    
+    public RiderCapacity getCapacity() {
+        return capacity;
     }
     
+    /**
+     * Собирает караван из козлов, привязанных поводком к наезднику, вокруг его козла.
+     * Вызывать из потока региона козла наездника. Берутся только козлы этого региона;
+     * поводки снимаются (при роспуске возвращаются наезднику), ИИ ведомых выключается.
+     * @return число ведомых (0 - караван не собран)
+     */
+    public int formCaravan(Player player, Goat leader) {
+        RiderSession session = riders.get(player.getUniqueId());
+        if (session == null || !session.getGoatId().equals(leader.getUniqueId())) {
+            return 0;
+        }
+        Settings.Caravan config = session.settings.caravan();
+        disbandCaravan(session);
+
+        // Кандидаты - козлы в радиусе, привязанные к наезднику, не занятые другим наездником или караваном.
+        // Козлы за границей региона принадлежат другому потоку - их не трогаем
+        Location leaderLocation = leader.getLocation();
+        List<Goat> followers = new ArrayList<>();
+        for (Entity entity : leader.getWorld().getNearbyEntities(leader.getBoundingBox().expand(config.radius()),
+                entity -> entity instanceof Goat && entity != leader && Bukkit.isOwnedByCurrentRegion(entity))) {
+            Goat goat = (Goat) entity;
+            if (goat.isLeashed() && goat.getLeashHolder() == player
+                    && !ridersByGoat.containsKey(goat.getUniqueId()) && !caravanFollowers.contains(goat.getUniqueId())) {
+                followers.add(goat);
+            }
+        }
+        if (followers.isEmpty()) {
+            return 0;
+        }
+
+        // Ближние к ведущему идут первыми
+        followers.sort(Comparator.comparingDouble(goat -> goat.getLocation().distanceSquared(leaderLocation)));
+        if (followers.size() > config.maxFollowers()) {
+            followers = new ArrayList<>(followers.subList(0, config.maxFollowers()));
+        }
+        for (Goat follower : followers) {
+            follower.setLeashHolder(null);
+            suspendAi(follower);
+            caravanFollowers.add(follower.getUniqueId());
+        }
+
+        float yaw = leaderLocation.getYaw();
+        session.setCaravan(new Caravan(followers, MovementMath.directionX(yaw), MovementMath.directionZ(yaw)));
+        return followers.size();
+    }
+
+    /**
+     * Распускает караван сессии: ведомым возвращаются ИИ и поводок наездника в их потоках.
+     */
+    public void disbandCaravan(RiderSession session) {
+        Caravan caravan = session.getCaravan();
+        if (caravan == null) {
+            return;
+        }
+        session.setCaravan(null);
+        for (Caravan.Follower follower : caravan.getFollowers()) {
+            releaseFollower(follower.getGoat(), session.getPlayerId());
+        }
+    }
+
+    /**
+     * Выводит козла из каравана и через его EntityScheduler возвращает ему ИИ и поводок.
+     * @param leashHolderId наездник, с которого при сборке каравана сняли поводок
+     */
+    public void releaseFollower(Goat follower, UUID leashHolderId) {
+        caravanFollowers.remove(follower.getUniqueId());
+        plugin.getTaskRegistry().runOnEntity(follower, task -> {
+            // Ведомого могли оседлать - тогда ИИ остаётся выключенным до высадки
+            if (follower.isValid()) {
+                restoreStaleAi(follower);
+                returnLead(follower, Bukkit.getPlayer(leashHolderId));
+            }
+        });
+    }
+
+    /**
+     * Возвращает ведомому поводок, снятый при сборке каравана: привязывает к наезднику, если тот рядом
+     * в том же регионе, иначе роняет поводок предметом у козла. Вызывать из потока региона козла.
+     */
+    private void returnLead(Goat follower, Player holder) {
+        if (holder != null && holder.isValid() && holder.getWorld().equals(follower.getWorld())
+                && Bukkit.isOwnedByCurrentRegion(holder) && !ridersByGoat.containsKey(follower.getUniqueId())
+                && follower.setLeashHolder(holder)) {
+            return;
+        }
+        follower.getWorld().dropItemNaturally(follower.getLocation(), new ItemStack(Material.LEAD));
+    }
+
+    /**
+     * Идёт ли козёл в каком-либо караване.
+     */
+    public boolean isCaravanFollower(UUID goatUuid) {
+        return caravanFollowers.contains(goatUuid);
+    }
+
+    /**
+     * Выключает ИИ моба и ставит метку, по которой ИИ вернётся даже после рестарта.
+     * Вызывать из потока региона моба.
+     */
+    public void suspendAi(Mob mob) {
+        mob.setAware(false);
+        mob.getPersistentDataContainer().set(aiSuspendedKey, PersistentDataType.BYTE, (byte) 1);
+    }
+
+    /**
+     * Возвращает ИИ мобу, если его выключил плагин. Вызывать из потока региона моба.
+     */
+    public void restoreAi(Mob mob) {
+        if (needsAiRestore(mob)) {
+            mob.setAware(true);
+            mob.getPersistentDataContainer().remove(aiSuspendedKey);
+        }
+    }
+
+    /**
+     * Возвращает ИИ козлу, оставшемуся с меткой от прошлой езды (высадка, выгрузка чанка, рестарт),
+     * если на нём сейчас никто не едет и он не идёт в караване. Вызывать из потока региона козла.
+     */
+    public void restoreStaleAi(Goat goat) {
+        UUID goatUuid = goat.getUniqueId();
+        if (needsAiRestore(goat) && !ridersByGoat.containsKey(goatUuid) && !caravanFollowers.contains(goatUuid)) {
+            restoreAi(goat);
+        }
+    }
+
+    /**
+     * Выключен ли ИИ моба плагином (есть метка в PersistentDataContainer).
+     */
+    public boolean needsAiRestore(Entity entity) {
+        return entity.getPersistentDataContainer().has(aiSuspendedKey, PersistentDataType.BYTE);
+    }
+
     /**
      * Применяет модификатор безопасного падения к сущности.
      * @param entity сущность (игрок или козёл)
@@ -273,72 +531,57 @@ public class RidingManager {
     }
     
     /**
-     * Удаляет модификатор у козла по UUID.
-     * Используется для отложенной очистки через EntityScheduler.
+     * Снимает модификатор с козла, помеченного для очистки, если на нём сейчас никто не едет.
+     * Вызывать из потока региона козла (через его EntityScheduler или из событий загрузки).
      */
     public void cleanupGoat(Goat goat) {
-        UUID goatUuid = goat.getUniqueId();
-        if (goatsToCleanup.remove(goatUuid) != null) {
-            removeSafeFallModifier(goat);
+        if (!needsCleanup(goat) || ridersByGoat.containsKey(goat.getUniqueId())) {
+            return;
         }
+        removeSafeFallModifier(goat);
+        goat.getPersistentDataContainer().remove(cleanupMarkerKey);
     }
     
     /**
-     * Проверяет, нужно ли очистить козла.
+     * Проверяет, помечен ли козёл для очистки.
      */
-    public boolean needsCleanup(UUID goatUuid) {
-        return goatsToCleanup.containsKey(goatUuid);
+    public boolean needsCleanup(Goat goat) {
+        return goat.getPersistentDataContainer().has(cleanupMarkerKey, PersistentDataType.BYTE);
     }
     
-    /**
-     * Очищает устаревшие кулдауны (вызывать периодически).
-     */
-    public void cleanupCooldowns() {
-        long now = System.currentTimeMillis();
-        ramCooldowns.entrySet().removeIf(entry -> now - entry.getValue() > RAM_COOLDOWN_MS * 2);
-    }
-
-    /**
-     * Сохраняет задачу контроля для козла.
-     */
-    public void setControlTask(UUID goatUUID, ScheduledTask task) {
-        ScheduledTask oldTask = controlTasks.put(goatUUID, task);
-        if (oldTask != null && !oldTask.isCancelled()) {
-            oldTask.cancel();
-        }
-    }
-
-    /**
-     * Отменяет задачу контроля для козла.
-     */
-    public void cancelControlTask(UUID goatUUID) {
-        ScheduledTask task = controlTasks.remove(goatUUID);
-        if (task != null && !task.isCancelled()) {
-            task.cancel();
-        }
-    }
-
     /**
      * Высаживает всех игроков с козлов (при отключении плагина).
      */
     public void dismountAll() {
-        // Отменяем все задачи
-        for (ScheduledTask task : controlTasks.values()) {
-            if (task != null && !task.isCancelled()) {
-                task.cancel();
+        // Отменяем все задачи управления
+        plugin.getTaskRegistry().cancelAll(TaskRegistry.Kind.CONTROL);
+        
+        // Возвращаем ИИ козлам наездников и ведомым. Выключенный плагин не может ставить задачи, поэтому сразу -
+        // только там, где этот поток владеет сущностью; остальным ИИ вернётся по метке при следующей загрузке
+        for (RiderSession session : riders.values()) {
+            Player player = Bukkit.getPlayer(session.getPlayerId());
+            if (session.aiSuspended && player != null && player.getVehicle() instanceof Goat goat
+                    && Bukkit.isOwnedByCurrentRegion(goat)) {
+                restoreAi(goat);
+            }
+            Caravan caravan = session.getCaravan();
+            if (caravan == null) {
+                continue;
+            }
+            for (Caravan.Follower follower : caravan.getFollowers()) {
+                Goat goat = follower.getGoat();
+                if (goat.isValid() && Bukkit.isOwnedByCurrentRegion(goat)) {
+                    restoreAi(goat);
+                    returnLead(goat, player);
+                }
             }
         }
-        controlTasks.clear();
         
         // Очищаем данные
         riders.clear();
-        jumpCounts.clear();
-        jumpCooldowns.clear();
-        ramCooldowns.clear();
-        lastForwardPress.clear();
-        wasForwardPressed.clear();
-        sprintActive.clear();
-        goatsToCleanup.clear();
+        ridersByGoat.clear();
+        caravanFollowers.clear();
+        capacity.clear();
     }
 
     /**
@@ -0,0 +1,138 @@
+package su.brim.goatrider.manager;
+
+import org.bukkit.entity.EntityType;
+import su.brim.goatrider.core.RideParams;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок конфигурации.
+ * {@link ConfigManager} публикует его одной volatile-ссылкой, поэтому потоки регионов
+ * всегда видят либо старый, либо новый конфиг целиком, а не наполовину применённую перезагрузку.
+ * Номер версии растёт с каждой перезагрузкой - сессии сравнивают его раз в тик.
+ * Параметры самих правил езды вынесены в {@link RideParams}, который не зависит от Bukkit.
+ */
+public record Settings(
+        long version,
+        boolean requireSaddle,
+        RideParams ride,
+        double fallProtectionDistance,
+        FallProtectionMode fallProtectionMode,
+        boolean suspendAi,
+        IdleParking idleParking,
+        long taskSweepInterval,
+        Capacity capacity,
+        Ram ram,
+        AutoStep autoStep,
+        Caravan caravan,
+        LoadShedding loadShedding,
+        Network network,
+        Stats stats,
+        Trace trace,
+        RiderStats riderStats,
+        Messages messages
+) {
+
+    /**
+     * Способ защиты наездника и козла от урона при падении.
+     */
+    public enum FallProtectionMode {
+        // Модификатор атрибута SAFE_FALL_DISTANCE на время езды
+        ATTRIBUTE,
+        // Уменьшение урона в EntityDamageEvent с причиной FALL, без изменения атрибутов
+        EVENT
+    }
+
+    /**
+     * Что делать с посадкой, когда в мире или области нет мест.
+     */
+    public enum CapacityMode {
+        // Отказать с сообщением
+        REFUSE,
+        // Поставить в очередь до освобождения места
+        QUEUE
+    }
+
+    /**
+     * @param maxPerWorld максимум наездников в мире (0 - без ограничения)
+     * @param maxPerRegion максимум наездников в области 32x32 чанка (0 - без ограничения)
+     * @param queueTimeout сколько ждать в очереди, в секундах
+     * @param queueSize максимум игроков в очереди
+     */
+    public record Capacity(int maxPerWorld, int maxPerRegion, CapacityMode mode, long queueTimeout, int queueSize) {
+    }
+
+    /**
+     * @param requeryDistance сдвиг козла, после которого пустой запрос тарана повторяется
+     * @param blacklist типы сущностей, которым таран не наносит урон (неизменяемое множество)
+     */
+    public record Ram(boolean enabled, double damage, double requeryDistance, Set<EntityType> blacklist) {
+
+        public boolean isBlacklisted(EntityType type) {
+            return blacklist.contains(type);
+        }
+    }
+
+    /**
+     * @param checkPeriod период проверки припаркованного козла в тиках
+     */
+    public record IdleParking(boolean enabled, long checkPeriod) {
+    }
+
+    /**
+     * @param maxHeight максимальная высота препятствия, на которое козёл запрыгивает сам
+     * @param cacheTtlNanos срок жизни чанка в кэше столкновений в наносекундах (0 - без срока)
+     */
+    public record AutoStep(boolean enabled, double maxHeight, long cacheTtlNanos) {
+    }
+
+    /**
+     * @param maxFollowers максимум ведомых козлов в караване
+     * @param spacing расстояние между козлами в цепочке
+     * @param radius радиус поиска привязанных поводком козлов при сборе каравана
+     */
+    public record Caravan(boolean enabled, int maxFollowers, double spacing, double radius) {
+    }
+
+    /**
+     * @param stages ступени от самой мягкой к самой жёсткой
+     */
+    public record LoadShedding(boolean enabled, long checkInterval, double recoveryMargin, List<LoadStage> stages) {
+    }
+
+    public record Network(float rotationThreshold, double velocityThreshold,
+                          boolean farTrackersEnabled, double farTrackersDistance,
+                          long farTrackersRotationPeriod, long farTrackersCheckInterval) {
+    }
+
+    /**
+     * @param jfrTickSample событие JFR тика управления пишется раз в столько тиков наездника
+     */
+    public record Stats(boolean timing, boolean prometheusEnabled, String prometheusFile, long prometheusInterval,
+                        long jfrTickSample) {
+    }
+
+    /**
+     * @param directory папка сегментов внутри папки плагина
+     * @param segmentSize размер сегмента в мегабайтах
+     * @param bufferSize ёмкость кольцевого буфера в записях
+     * @param flushInterval интервал сброса буфера в миллисекундах
+     */
+    public record Trace(boolean enabled, String directory, int segmentSize, int maxSegments,
+                        int bufferSize, long flushInterval) {
+    }
+
+    /**
+     * @param file файл статистики внутри папки плагина
+     * @param flushInterval интервал фоновой записи в секундах
+     * @param topSize сколько игроков показывает /gr top
+     */
+    public record RiderStats(boolean enabled, String file, long flushInterval, int topSize) {
+    }
+
+    public record Messages(String prefix, String mountSuccess, String dismountSuccess, String noPermission,
+                           String saddleRequired, String configReloaded, String noAdminPermission,
+                           String capacityFull, String capacityQueued, String capacityTimeout) {
+    }
+}
@@ -0,0 +1,323 @@
+package su.brim.goatrider.manager;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.entity.Entity;
+import su.brim.goatrider.GoatRiderPlugin;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Реестр всех задач, которые создаёт плагин.
+ * Каждая задача запускается через реестр и записывается вместе с видом и владельцем (UUID игрока-наездника
+ * для задач управления). Реестр обрабатывает retired-колбэки EntityScheduler, а периодическая проверка
+ * находит "утёкшие" задачи: уже завершённые, но не снятые с учёта, и задачи управления без живой сессии.
+ */
+public class TaskRegistry {
+
+    /**
+     * Вид задачи.
+     */
+    public enum Kind {
+        // Периодическая задача управления козлом (EntityScheduler)
+        CONTROL,
+        // Разовая задача на сущности (EntityScheduler)
+        ENTITY,
+        // Задача глобального региона
+        GLOBAL,
+        // Асинхронная задача
+        ASYNC
+    }
+
+    // Задача управления считается осиротевшей, если её сессии нет дольше этого времени подряд:
+    // сессия регистрируется сразу после посадки, но уже после запуска задачи
+    private static final long ORPHAN_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Метка "сессия на месте" для Entry.missingSince
+    private static final long NOT_MISSING = Long.MIN_VALUE;
+
+    private final GoatRiderPlugin plugin;
+
+    // Все живые задачи плагина
+    private final Map<ScheduledTask, Entry> tasks = new ConcurrentHashMap<>();
+
+    // Задачи управления по владельцу (UUID игрока)
+    private final Map<UUID, Entry> controlByOwner = new ConcurrentHashMap<>();
+
+    private final LongAdder leaked = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+
+    private ScheduledTask sweepTask;
+
+    public TaskRegistry(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Запускает периодическую задачу на сущности.
+     * Для {@link Kind#CONTROL} предыдущая задача того же владельца отменяется.
+     * @return задача или null, если сущность уже удалена
+     */
+    public ScheduledTask runAtFixedRate(Entity entity, UUID owner, Kind kind, Consumer<ScheduledTask> body,
+                                        long delay, long period) {
+        Entry entry = new Entry(kind, owner);
+        ScheduledTask task = entity.getScheduler().runAtFixedRate(plugin, body, () -> retire(entry), delay, period);
+        if (task != null) {
+            register(entry, task);
+        }
+        return task;
+    }
+
+    /**
+     * Выполняет разовую задачу в потоке сущности.
+     * @return задача или null, если сущность уже удалена
+     */
+    public ScheduledTask runOnEntity(Entity entity, Consumer<ScheduledTask> body) {
+        Entry entry = new Entry(Kind.ENTITY, null);
+        ScheduledTask task = entity.getScheduler().run(plugin, scheduledTask -> {
+            try {
+                body.accept(scheduledTask);
+            } finally {
+                unregister(entry);
+            }
+        }, () -> retire(entry));
+        if (task != null) {
+            register(entry, task);
+        }
+        return task;
+    }
+
+    /**
+     * Запускает периодическую задачу глобального региона.
+     */
+    public ScheduledTask runGlobalAtFixedRate(Consumer<ScheduledTask> body, long delayTicks, long periodTicks) {
+        Entry entry = new Entry(Kind.GLOBAL, null);
+        ScheduledTask task = plugin.getServer().getGlobalRegionScheduler()
+                .runAtFixedRate(plugin, body, delayTicks, periodTicks);
+        register(entry, task);
+        return task;
+    }
+
+    /**
+     * Выполняет разовую задачу глобального региона с задержкой.
+     */
+    public ScheduledTask runGlobalDelayed(Consumer<ScheduledTask> body, long delayTicks) {
+        Entry entry = new Entry(Kind.GLOBAL, null);
+        ScheduledTask task = plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, scheduledTask -> {
+            try {
+                body.accept(scheduledTask);
+            } finally {
+                unregister(entry);
+            }
+        }, delayTicks);
+        register(entry, task);
+        return task;
+    }
+
+    /**
+     * Запускает периодическую асинхронную задачу.
+     */
+    public ScheduledTask runAsyncAtFixedRate(Consumer<ScheduledTask> body, long delay, long period, TimeUnit unit) {
+        Entry entry = new Entry(Kind.ASYNC, null);
+        ScheduledTask task = plugin.getServer().getAsyncScheduler()
+                .runAtFixedRate(plugin, body, delay, period, unit);
+        register(entry, task);
+        return task;
+    }
+
+    /**
+     * Выполняет разовую асинхронную задачу.
+     */
+    public ScheduledTask runAsyncNow(Consumer<ScheduledTask> body) {
+        Entry entry = new Entry(Kind.ASYNC, null);
+        ScheduledTask task = plugin.getServer().getAsyncScheduler().runNow(plugin, scheduledTask -> {
+            try {
+                body.accept(scheduledTask);
+            } finally {
+                unregister(entry);
+            }
+        });
+        register(entry, task);
+        return task;
+    }
+
+    /**
+     * Отменяет задачу и снимает её с учёта. Безопасно вызывать из самой задачи.
+     */
+    public void cancel(ScheduledTask task) {
+        if (task == null) {
+            return;
+        }
+        task.cancel();
+        Entry entry = tasks.get(task);
+        if (entry != null) {
+            unregister(entry);
+        }
+    }
+
+    /**
+     * Отменяет задачу управления игрока, если она есть.
+     */
+    public void cancelControl(UUID owner) {
+        Entry entry = controlByOwner.get(owner);
+        if (entry != null) {
+            cancel(entry.task);
+        }
+    }
+
+    /**
+     * Отменяет все задачи указанного вида.
+     */
+    public void cancelAll(Kind kind) {
+        for (Entry entry : tasks.values()) {
+            if (entry.kind == kind) {
+                cancel(entry.task);
+            }
+        }
+    }
+
+    /**
+     * Отменяет все задачи плагина (при отключении).
+     */
+    public void cancelAll() {
+        stopSweeper();
+        for (Entry entry : tasks.values()) {
+            cancel(entry.task);
+        }
+    }
+
+    /**
+     * Запускает (или перезапускает) периодический поиск утёкших задач.
+     */
+    public void startSweeper(long intervalSeconds) {
+        stopSweeper();
+        long periodTicks = Math.max(1L, intervalSeconds) * 20L;
+        sweepTask = runGlobalAtFixedRate(scheduledTask -> sweep(), periodTicks, periodTicks);
+    }
+
+    private void stopSweeper() {
+        if (sweepTask != null) {
+            cancel(sweepTask);
+            sweepTask = null;
+        }
+    }
+
+    /**
+     * Находит и убирает утёкшие задачи:
+     * уже отменённые/завершённые, но оставшиеся в реестре, и задачи управления,
+     * у владельца которых больше нет сессии.
+     * @return число найденных утечек
+     */
+    public int sweep() {
+        RidingManager ridingManager = plugin.getRidingManager();
+        long now = System.nanoTime();
+        int found = 0;
+
+        for (Entry entry : tasks.values()) {
+            ScheduledTask task = entry.task;
+            ScheduledTask.ExecutionState state = task.getExecutionState();
+
+            if (state == ScheduledTask.ExecutionState.CANCELLED || state == ScheduledTask.ExecutionState.FINISHED) {
+                unregister(entry);
+                found++;
+            } else if (entry.kind == Kind.CONTROL) {
+                // Отсчёт идёт с первого обхода, на котором сессии не оказалось, а не с создания задачи
+                if (ridingManager.getSession(entry.owner) != null) {
+                    entry.missingSince = NOT_MISSING;
+                } else if (entry.missingSince == NOT_MISSING) {
+                    entry.missingSince = now;
+                } else if (now - entry.missingSince > ORPHAN_GRACE_NANOS) {
+                    cancel(task);
+                    found++;
+                }
+            }
+        }
+
+        if (found > 0) {
+            leaked.add(found);
+            plugin.getLogger().warning("Найдено и снято утёкших задач: " + found);
+        }
+        return found;
+    }
+
+    /**
+     * Количество живых задач по видам.
+     */
+    public Map<Kind, Integer> getLiveCounts() {
+        Map<Kind, Integer> counts = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            counts.put(kind, 0);
+        }
+        for (Entry entry : tasks.values()) {
+            counts.merge(entry.kind, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Всего найдено утечек с момента запуска.
+     */
+    public long getLeakedCount() {
+        return leaked.sum();
+    }
+
+    /**
+     * Всего задач, снятых через retired-колбэк (сущность удалена во время работы задачи).
+     */
+    public long getRetiredCount() {
+        return retired.sum();
+    }
+
+    private void register(Entry entry, ScheduledTask task) {
+        entry.task = task;
+        tasks.put(task, entry);
+
+        if (entry.kind == Kind.CONTROL && entry.owner != null) {
+            Entry previous = controlByOwner.put(entry.owner, entry);
+            if (previous != null && previous != entry) {
+                cancel(previous.task);
+            }
+        }
+
+        // Разовая задача могла успеть выполниться в другом потоке до регистрации
+        if (entry.done) {
+            unregister(entry);
+        }
+    }
+
+    private void unregister(Entry entry) {
+        entry.done = true;
+        ScheduledTask task = entry.task;
+        if (task != null) {
+            tasks.remove(task, entry);
+        }
+        if (entry.owner != null) {
+            controlByOwner.remove(entry.owner, entry);
+        }
+    }
+
+    private void retire(Entry entry) {
+        retired.increment();
+        unregister(entry);
+    }
+
+    private static final class Entry {
+        final Kind kind;
+        final UUID owner;
+        volatile ScheduledTask task;
+        volatile boolean done;
+
+        // Когда обход впервые не нашёл сессию владельца (только для CONTROL, меняется только обходом)
+        long missingSince = NOT_MISSING;
+
+        Entry(Kind kind, UUID owner) {
+            this.kind = kind;
+            this.owner = owner;
+        }
+    }
+}
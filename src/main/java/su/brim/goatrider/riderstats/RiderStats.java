@@ -0,0 +1,69 @@
+package su.brim.goatrider.riderstats;
+
+import java.util.UUID;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Снимок статистики наездника: итоги за всё время, как они хранятся в файле и показываются в командах.
+ *
+ * @param playerId UUID игрока
+ * @param name последний известный ник
+ * @param distance пройденный на козле путь в блоках
+ * @param rams удачные тараны
+ * @param damage урон тараном
+ * @param jumps прыжки, включая прыжки в воздухе
+ * @param airJumps прыжки в воздухе (мульти-прыжок)
+ * @param topSpeed максимальная скорость в блоках в секунду
+ */
+public record RiderStats(UUID playerId, String name, double distance, long rams, double damage,
+                         long jumps, long airJumps, double topSpeed) {
+
+    /**
+     * Показатель, по которому строится /gr top.
+     */
+    public enum Metric {
+        DISTANCE("distance", "Дистанция", RiderStats::distance),
+        RAMS("rams", "Тараны", stats -> stats.rams),
+        DAMAGE("damage", "Урон тараном", RiderStats::damage),
+        JUMPS("jumps", "Прыжки", stats -> stats.jumps),
+        AIR_JUMPS("air-jumps", "Прыжки в воздухе", stats -> stats.airJumps),
+        TOP_SPEED("speed", "Макс. скорость", RiderStats::topSpeed);
+
+        private final String key;
+        private final String displayName;
+        private final ToDoubleFunction<RiderStats> value;
+
+        Metric(String key, String displayName, ToDoubleFunction<RiderStats> value) {
+            this.key = key;
+            this.displayName = displayName;
+            this.value = value;
+        }
+
+        /**
+         * Имя показателя в команде.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public double valueOf(RiderStats stats) {
+            return value.applyAsDouble(stats);
+        }
+
+        /**
+         * Показатель по имени в команде или null.
+         */
+        public static Metric byKey(String key) {
+            for (Metric metric : values()) {
+                if (metric.key.equalsIgnoreCase(key)) {
+                    return metric;
+                }
+            }
+            return null;
+        }
+    }
+}
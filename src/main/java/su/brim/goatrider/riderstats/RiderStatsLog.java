@@ -0,0 +1,166 @@
+package su.brim.goatrider.riderstats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Файл статистики наездников - журнал только на дозапись.
+ * Каждая запись содержит полные итоги игрока, при чтении побеждает последняя, поэтому запись пачки -
+ * одна последовательная дозапись без поиска по файлу. Когда записей становится намного больше,
+ * чем игроков, журнал сжимается: итоги переписываются во временный файл, который атомарно заменяет журнал.
+ * Хвост, обрезанный при падении сервера, при чтении отбрасывается, а журнал сразу сжимается.
+ * Не потокобезопасен: используется одним фоновым потоком записи.
+ */
+final class RiderStatsLog {
+
+    // "GRST" - заголовок файла
+    private static final int MAGIC = 0x47525354;
+    private static final int VERSION = 1;
+
+    // Сжатие, когда записей больше, чем max(COMPACT_MIN_RECORDS, игроков * COMPACT_FACTOR)
+    private static final int COMPACT_MIN_RECORDS = 1024;
+    private static final int COMPACT_FACTOR = 4;
+
+    private final Path file;
+    private DataOutputStream out;
+    private long records;
+    private boolean truncated;
+
+    RiderStatsLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Читает журнал: последние итоги каждого игрока. Отсутствующий файл - пустая статистика.
+     * @throws IOException если файл не читается или это не файл статистики
+     */
+    Map<UUID, RiderStats> load() throws IOException {
+        Map<UUID, RiderStats> result = new HashMap<>();
+        records = 0L;
+        truncated = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неизвестный формат файла статистики: " + file);
+            }
+            while (true) {
+                // Конец файла на границе записи - норма, внутри записи - обрезанный хвост
+                in.mark(1);
+                if (in.read() < 0) {
+                    break;
+                }
+                in.reset();
+                RiderStats stats;
+                try {
+                    stats = read(in);
+                } catch (EOFException e) {
+                    truncated = true;
+                    break;
+                }
+                result.put(stats.playerId(), stats);
+                records++;
+            }
+        } catch (NoSuchFileException e) {
+            return result;
+        } catch (EOFException e) {
+            // Файл короче заголовка
+            truncated = true;
+        }
+        return result;
+    }
+
+    private static RiderStats read(DataInputStream in) throws IOException {
+        UUID playerId = new UUID(in.readLong(), in.readLong());
+        String name = in.readUTF();
+        return new RiderStats(playerId, name, in.readDouble(), in.readLong(), in.readDouble(),
+                in.readLong(), in.readLong(), in.readDouble());
+    }
+
+    private static void write(DataOutputStream out, RiderStats stats) throws IOException {
+        out.writeLong(stats.playerId().getMostSignificantBits());
+        out.writeLong(stats.playerId().getLeastSignificantBits());
+        out.writeUTF(stats.name() != null ? stats.name() : "");
+        out.writeDouble(stats.distance());
+        out.writeLong(stats.rams());
+        out.writeDouble(stats.damage());
+        out.writeLong(stats.jumps());
+        out.writeLong(stats.airJumps());
+        out.writeDouble(stats.topSpeed());
+    }
+
+    /**
+     * Был ли при чтении отброшен обрезанный хвост (журнал нужно сжать до следующей дозаписи).
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Дописывает пачку итогов одной записью на диск.
+     */
+    void append(Collection<RiderStats> batch) throws IOException {
+        if (out == null) {
+            boolean fresh = !Files.exists(file) || Files.size(file) == 0L;
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)));
+            if (fresh) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+        }
+        for (RiderStats stats : batch) {
+            write(out, stats);
+        }
+        out.flush();
+        records += batch.size();
+    }
+
+    /**
+     * Нужно ли сжать журнал при таком числе игроков.
+     */
+    boolean needsCompaction(int players) {
+        return records > Math.max(COMPACT_MIN_RECORDS, (long) players * COMPACT_FACTOR);
+    }
+
+    /**
+     * Переписывает журнал: по одной записи на игрока, с атомарной заменой файла.
+     */
+    void compact(Collection<RiderStats> all) throws IOException {
+        close();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            compacted.writeInt(MAGIC);
+            compacted.writeInt(VERSION);
+            for (RiderStats stats : all) {
+                write(compacted, stats);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = all.size();
+        truncated = false;
+    }
+
+    /**
+     * Закрывает файл; следующая дозапись откроет его снова.
+     */
+    void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
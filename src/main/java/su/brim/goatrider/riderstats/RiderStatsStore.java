@@ -0,0 +1,340 @@
+package su.brim.goatrider.riderstats;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.entity.Player;
+import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.manager.BackgroundQueue;
+import su.brim.goatrider.manager.Settings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Статистика наездников с отложенной записью.
+ * Задача управления обновляет счётчики игрока ({@link Counters}: LongAdder/DoubleAdder без блокировок),
+ * а одна асинхронная задача раз в flush-interval дописывает изменившиеся итоги пачкой в {@link RiderStatsLog},
+ * сжимает журнал и пересобирает кэш для команд. Потоки регионов никогда не ждут диск.
+ * Журнал открывается и закрывается шагами {@link BackgroundQueue}, поэтому /gr reload его тоже не ждёт.
+ */
+public class RiderStatsStore {
+
+    private final GoatRiderPlugin plugin;
+
+    // Счётчики всех известных игроков: загруженные из файла и новые
+    private final Map<UUID, Counters> counters = new ConcurrentHashMap<>();
+
+    // Выдаются ли счётчики новым сессиям
+    private volatile boolean enabled;
+
+    // Кэш для /gr top и /gr stats player <игрок>, пересобирается задачей записи
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Запись, которая должна работать по конфигу (null - статистика выключена)
+    private volatile Writer writer;
+
+    // Открытие и закрытие журналов - по очереди в фоне
+    private final BackgroundQueue io;
+
+    // Запись с открытым журналом; меняется только шагами очереди
+    private Writer active;
+
+    // Файл уже прочитан. Читают и пишут его сбросы записей, которые никогда не идут одновременно
+    private volatile boolean loaded;
+
+    public RiderStatsStore(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+        this.io = new BackgroundQueue(plugin.getTaskRegistry());
+    }
+
+    /**
+     * Запускает (или перезапускает) запись согласно конфигу.
+     * Вызывающий поток только выбирает запись: прежний журнал дописывается и закрывается, а новый открывается
+     * в фоне. Файл читается один раз, первой фоновой записью; до этого счётчики копятся и потом складываются с файлом.
+     */
+    public void start() {
+        Settings.RiderStats config = plugin.getConfigManager().getSettings().riderStats();
+        writer = config.enabled()
+                ? new Writer(plugin.getDataFolder().toPath().resolve(config.file()), config.flushInterval())
+                : null;
+        enabled = config.enabled();
+        io.submit(this::switchWriter);
+    }
+
+    /**
+     * Останавливает запись, дописывая накопленное. Вызывается при выключении плагина:
+     * асинхронные задачи уже не запустятся, поэтому последняя запись идёт в вызывающем потоке.
+     */
+    public void stop() {
+        enabled = false;
+        writer = null;
+        io.submit(this::switchWriter);
+        io.drainNow();
+    }
+
+    /**
+     * Шаг очереди: закрывает открытую запись, если по конфигу нужна другая, и запускает нужную.
+     * Порядок шагов не важен - каждый приводит записи к последнему выбору.
+     */
+    private void switchWriter() {
+        Writer next = writer;
+        if (active == next) {
+            return;
+        }
+        if (active != null) {
+            active.close();
+        }
+        active = next;
+        if (next != null) {
+            next.start();
+        }
+    }
+
+    /**
+     * Счётчики игрока для новой сессии или null, если статистика выключена.
+     */
+    public Counters counters(Player player) {
+        if (!enabled) {
+            return null;
+        }
+        Counters playerCounters = counters.computeIfAbsent(player.getUniqueId(), Counters::new);
+        playerCounters.name = player.getName();
+        return playerCounters;
+    }
+
+    /**
+     * Лучшие игроки по показателю из кэша.
+     */
+    public List<RiderStats> getTop(RiderStats.Metric metric) {
+        return snapshot.top.getOrDefault(metric, List.of());
+    }
+
+    /**
+     * Итоги игрока по нику из кэша или null.
+     */
+    public RiderStats find(String name) {
+        return snapshot.byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Одна запись в журнал: файл и задача сброса. Сброс и закрытие идут под блокировкой записи,
+     * которую ждут только фоновые потоки.
+     */
+    private final class Writer {
+
+        private final RiderStatsLog log;
+        private final long flushInterval;
+        private ScheduledTask flushTask;
+        private boolean closed;
+
+        Writer(Path file, long flushInterval) {
+            this.log = new RiderStatsLog(file);
+            this.flushInterval = flushInterval;
+        }
+
+        synchronized void start() {
+            if (loaded) {
+                // Перезапуск после reload: файл мог смениться, поэтому итоги всех игроков пишутся заново
+                for (Counters playerCounters : counters.values()) {
+                    playerCounters.dirty = true;
+                }
+            }
+            flushTask = plugin.getTaskRegistry().runAsyncAtFixedRate(scheduledTask -> flush(),
+                    0L, flushInterval, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Останавливает сброс, дописывая накопленное, и закрывает журнал.
+         */
+        synchronized void close() {
+            if (flushTask != null) {
+                plugin.getTaskRegistry().cancel(flushTask);
+                flushTask = null;
+            }
+            flush();
+            closed = true;
+            try {
+                log.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Не удалось закрыть файл статистики наездников", e);
+            }
+        }
+
+        /**
+         * Фоновая запись: загрузка файла при первом запуске, дозапись изменившихся итогов,
+         * сжатие журнала и пересборка кэша команд.
+         */
+        synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                if (!loaded) {
+                    for (RiderStats stats : log.load().values()) {
+                        counters.computeIfAbsent(stats.playerId(), Counters::new).merge(stats);
+                    }
+                    loaded = true;
+                }
+
+                List<RiderStats> batch = new ArrayList<>();
+                List<Counters> written = new ArrayList<>();
+                for (Counters playerCounters : counters.values()) {
+                    if (playerCounters.dirty) {
+                        // Сначала сбрасываем признак: обновление во время снимка снова его выставит
+                        playerCounters.dirty = false;
+                        batch.add(playerCounters.snapshot());
+                        written.add(playerCounters);
+                    }
+                }
+                try {
+                    if (log.isTruncated() || log.needsCompaction(counters.size())) {
+                        log.compact(snapshotAll());
+                    } else if (!batch.isEmpty()) {
+                        log.append(batch);
+                    }
+                } catch (IOException e) {
+                    for (Counters playerCounters : written) {
+                        playerCounters.dirty = true;
+                    }
+                    throw e;
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Не удалось записать статистику наездников", e);
+            }
+            snapshot = buildSnapshot(plugin.getConfigManager().getSettings().riderStats().topSize());
+        }
+    }
+
+    private List<RiderStats> snapshotAll() {
+        List<RiderStats> all = new ArrayList<>(counters.size());
+        for (Counters playerCounters : counters.values()) {
+            all.add(playerCounters.snapshot());
+        }
+        return all;
+    }
+
+    private Snapshot buildSnapshot(int topSize) {
+        List<RiderStats> all = snapshotAll();
+        Map<String, RiderStats> byName = new HashMap<>();
+        for (RiderStats stats : all) {
+            if (stats.name() != null && !stats.name().isEmpty()) {
+                byName.put(stats.name().toLowerCase(Locale.ROOT), stats);
+            }
+        }
+        Map<RiderStats.Metric, List<RiderStats>> top = new EnumMap<>(RiderStats.Metric.class);
+        for (RiderStats.Metric metric : RiderStats.Metric.values()) {
+            top.put(metric, all.stream()
+                    .filter(stats -> metric.valueOf(stats) > 0.0)
+                    .sorted(Comparator.comparingDouble((RiderStats stats) -> metric.valueOf(stats)).reversed())
+                    .limit(topSize)
+                    .toList());
+        }
+        return new Snapshot(byName, top);
+    }
+
+    /**
+     * Кэш команд: итоги по нику и топы по показателям.
+     */
+    private record Snapshot(Map<String, RiderStats> byName, Map<RiderStats.Metric, List<RiderStats>> top) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+    }
+
+    /**
+     * Счётчики одного игрока. Обновляются из потоков регионов без блокировок (счётчики разбиты на ячейки
+     * по потокам), читаются задачей записи.
+     */
+    public static final class Counters {
+
+        private final UUID playerId;
+        private volatile String name;
+
+        private final DoubleAdder distance = new DoubleAdder();
+        private final LongAdder rams = new LongAdder();
+        private final DoubleAdder damage = new DoubleAdder();
+        private final LongAdder jumps = new LongAdder();
+        private final LongAdder airJumps = new LongAdder();
+
+        // Биты неотрицательного double упорядочены так же, как сами числа, поэтому максимум считается по long
+        private final LongAccumulator topSpeedBits = new LongAccumulator(Math::max, 0L);
+
+        // Изменились с последней записи
+        private volatile boolean dirty;
+
+        private Counters(UUID playerId) {
+            this.playerId = playerId;
+        }
+
+        /**
+         * Пройденный путь за тик наездника.
+         * @param blocks расстояние в блоках
+         * @param speed скорость в блоках в секунду
+         */
+        public void addDistance(double blocks, double speed) {
+            distance.add(blocks);
+            if (speed > Double.longBitsToDouble(topSpeedBits.get())) {
+                topSpeedBits.accumulate(Double.doubleToLongBits(speed));
+            }
+            markDirty();
+        }
+
+        /**
+         * Удачный таран.
+         * @param hits число задетых целей
+         * @param dealt здоровье, которое потеряли все цели
+         */
+        public void addRam(int hits, double dealt) {
+            rams.add(hits);
+            damage.add(dealt);
+            markDirty();
+        }
+
+        public void addJump(boolean airJump) {
+            jumps.increment();
+            if (airJump) {
+                airJumps.increment();
+            }
+            markDirty();
+        }
+
+        private void markDirty() {
+            if (!dirty) {
+                dirty = true;
+            }
+        }
+
+        private void merge(RiderStats stats) {
+            if (name == null) {
+                name = stats.name();
+            }
+            distance.add(stats.distance());
+            rams.add(stats.rams());
+            damage.add(stats.damage());
+            jumps.add(stats.jumps());
+            airJumps.add(stats.airJumps());
+            topSpeedBits.accumulate(Double.doubleToLongBits(stats.topSpeed()));
+        }
+
+        private RiderStats snapshot() {
+            return new RiderStats(playerId, name, distance.sum(), rams.sum(), damage.sum(),
+                    jumps.sum(), airJumps.sum(), Double.longBitsToDouble(topSpeedBits.get()));
+        }
+    }
+}
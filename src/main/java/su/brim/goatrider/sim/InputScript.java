@@ -0,0 +1,154 @@
+package su.brim.goatrider.sim;
+
+import su.brim.goatrider.core.RiderInput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сценарий ввода виртуального наездника: последовательность шагов, повторяемая по кругу.
+ * Шаг записывается как {@code КЛАВИШИ:тики[:поворот]}, например {@code "W:2 -:2 W:160 WJ:10 W:40:3"}:
+ * клавиши в формате {@link RiderInput#parse(String)}, длительность в тиках и поворот yaw в градусах за тик.
+ * При разборе сценарий разворачивается в массивы по тикам, поэтому чтение ввода в цикле симуляции - индекс в массиве.
+ * Сценарий можно получить и из записанной на сервере трассы ввода ({@link TraceReplay}).
+ */
+public final class InputScript {
+
+    // Встроенные сценарии
+    private static final Map<String, String> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        // Double-tap W, долгий спринт с поворотом, прыжок на бегу и остановка
+        BUILT_IN.put("cruise", "W:2 -:2 W:160 W:40:3 WJ:10 W:80 -:20");
+        // Спринт кнопкой Ctrl с плавным поворотом
+        BUILT_IN.put("sprint-key", "WC:200 WCJ:6 WC:100:-2 -:10");
+        // Диагональное движение зигзагом без спринта
+        BUILT_IN.put("zigzag", "WD:30 WA:30 WD:30 WA:30 S:10 -:5");
+        // Непрерывные прыжки на ходу: мульти-прыжок и кулдаун
+        BUILT_IN.put("hopper", "WJ:40 W:10 J:20 -:10");
+        // Наездник сидит без ввода
+        BUILT_IN.put("idle", "-:200");
+    }
+
+    private final String name;
+    private final int[] inputs;
+    private final float[] yawDeltas;
+    private final float initialYaw;
+
+    private InputScript(String name, int[] inputs, float[] yawDeltas, float initialYaw) {
+        this.name = name;
+        this.inputs = inputs;
+        this.yawDeltas = yawDeltas;
+        this.initialYaw = initialYaw;
+    }
+
+    /**
+     * Сценарий из готовых массивов по тикам (например, из трассы ввода).
+     */
+    static InputScript fromTicks(String name, int[] inputs, float[] yawDeltas, float initialYaw) {
+        if (inputs.length == 0 || inputs.length != yawDeltas.length) {
+            throw new IllegalArgumentException("Пустой сценарий или разная длина массивов: " + name);
+        }
+        return new InputScript(name, inputs, yawDeltas, initialYaw);
+    }
+
+    /**
+     * Встроенный сценарий по имени или сценарий, записанный строкой.
+     * @throws IllegalArgumentException если строка не разбирается
+     */
+    public static InputScript of(String nameOrSteps) {
+        String steps = BUILT_IN.get(nameOrSteps);
+        return steps != null ? parse(nameOrSteps, steps) : parse("custom", nameOrSteps);
+    }
+
+    /**
+     * Все встроенные сценарии, кроме пустого {@code idle}.
+     */
+    public static List<InputScript> builtInActive() {
+        List<InputScript> scripts = new ArrayList<>();
+        for (Map.Entry<String, String> entry : BUILT_IN.entrySet()) {
+            if (!entry.getKey().equals("idle")) {
+                scripts.add(parse(entry.getKey(), entry.getValue()));
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Встроенные сценарии: имя -> шаги.
+     */
+    public static Map<String, String> builtIn() {
+        return Collections.unmodifiableMap(BUILT_IN);
+    }
+
+    private static InputScript parse(String name, String steps) {
+        List<Integer> inputs = new ArrayList<>();
+        List<Float> yawDeltas = new ArrayList<>();
+
+        for (String step : steps.trim().split("\\s+")) {
+            String[] parts = step.split(":");
+            if (parts.length < 2 || parts.length > 3) {
+                throw new IllegalArgumentException("Шаг сценария должен быть КЛАВИШИ:тики[:поворот]: " + step);
+            }
+            int input = RiderInput.parse(parts[0]);
+            int ticks;
+            float yawDelta;
+            try {
+                ticks = Integer.parseInt(parts[1]);
+                yawDelta = parts.length == 3 ? Float.parseFloat(parts[2]) : 0.0F;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверное число в шаге сценария: " + step);
+            }
+            if (ticks <= 0) {
+                throw new IllegalArgumentException("Длительность шага должна быть положительной: " + step);
+            }
+            for (int i = 0; i < ticks; i++) {
+                inputs.add(input);
+                yawDeltas.add(yawDelta);
+            }
+        }
+
+        int[] inputArray = new int[inputs.size()];
+        float[] yawArray = new float[yawDeltas.size()];
+        for (int i = 0; i < inputArray.length; i++) {
+            inputArray[i] = inputs.get(i);
+            yawArray[i] = yawDeltas.get(i);
+        }
+        return new InputScript(name, inputArray, yawArray, 0.0F);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Начальный yaw наездника: для записанной трассы - первый записанный, для встроенных сценариев - 0.
+     */
+    public float getInitialYaw() {
+        return initialYaw;
+    }
+
+    /**
+     * Длина одного круга сценария в тиках.
+     */
+    public int length() {
+        return inputs.length;
+    }
+
+    /**
+     * Маска ввода на тике (сценарий повторяется по кругу).
+     */
+    public int inputAt(long tick) {
+        return inputs[(int) Math.floorMod(tick, (long) inputs.length)];
+    }
+
+    /**
+     * Поворот взгляда в градусах на тике.
+     */
+    public float yawDeltaAt(long tick) {
+        return yawDeltas[(int) Math.floorMod(tick, (long) yawDeltas.length)];
+    }
+}
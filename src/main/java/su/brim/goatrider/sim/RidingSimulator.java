@@ -0,0 +1,352 @@
+package su.brim.goatrider.sim;
+
+import su.brim.goatrider.core.RideParams;
+import su.brim.goatrider.stats.PhaseHistogram;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless-симулятор езды: прогоняет тысячи виртуальных наездников по сценариям ввода
+ * через те же правила {@link su.brim.goatrider.core.RidingRules}, что и сервер, с максимальной скоростью.
+ * Наездники делятся между потоками так же, как между регионами Folia: каждый поток ведёт свою часть
+ * независимо и замеряет время своего тика.
+ * <p>
+ * Запуск без сервера, Bukkit не нужен:
+ * <pre>java -cp GoatRider.jar su.brim.goatrider.sim.RidingSimulator --riders 10000 --ticks 6000 --threads 4</pre>
+ * С {@code --replay} наездники воспроизводят трассу ввода, записанную на сервере (секция trace конфига).
+ * С {@code --scale 10,100,1000,10000} симулятор строит кривую масштабирования: для каждого числа наездников
+ * замеряет время тика и прирост кучи и завершается с кодом 1, если превышен бюджет
+ * ({@code --budget-tick-us} для p99 тика части, {@code --budget-heap-bytes} на наездника).
+ */
+public final class RidingSimulator {
+
+    private final int riders;
+    private final long ticks;
+    private final long warmupTicks;
+    private final int threads;
+    private final String script;
+    private final List<InputScript> replay;
+    private final long seed;
+    private final double targetSpacing;
+    private final RideParams params;
+
+    // Бюджеты для режима --scale, 0 - без проверки
+    private final double tickBudgetMicros;
+    private final long heapBudgetBytes;
+
+    // Потоки-"регионы" создаются заранее, чтобы их создание не попадало в замеры
+    private ThreadPoolExecutor executor;
+
+    private RidingSimulator(Map<String, String> options) throws IOException {
+        this.replay = options.containsKey("replay") ? TraceReplay.load(Path.of(options.get("replay"))) : null;
+        if (replay != null && replay.isEmpty()) {
+            throw new IllegalArgumentException("В трассе нет записей: " + options.get("replay"));
+        }
+        // При воспроизведении по умолчанию - по наезднику на записанную сессию
+        this.riders = Integer.parseInt(options.getOrDefault("riders",
+                replay != null ? String.valueOf(replay.size()) : "1000"));
+        this.ticks = Long.parseLong(options.getOrDefault("ticks", "6000"));
+        this.warmupTicks = Long.parseLong(options.getOrDefault("warmup", "1200"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        this.script = replay != null ? "replay " + options.get("replay") : options.getOrDefault("script", "mixed");
+        this.seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        this.targetSpacing = Double.parseDouble(options.getOrDefault("target-spacing", "8"));
+        // По умолчанию - значения из config.yml; выносливость там выключена, поэтому --stamina 0 (без ограничения)
+        this.params = RideParams.of(
+                Double.parseDouble(options.getOrDefault("speed", "0.25")),
+                Double.parseDouble(options.getOrDefault("jump-strength", "0.8")),
+                Boolean.parseBoolean(options.getOrDefault("multi-jump", "true")),
+                Integer.parseInt(options.getOrDefault("extra-jumps", "1")),
+                Double.parseDouble(options.getOrDefault("sprint-multiplier", "1.3")),
+                Long.parseLong(options.getOrDefault("double-tap-time", "300"))
+        ).withStamina(
+                Double.parseDouble(options.getOrDefault("stamina", "0")),
+                Double.parseDouble(options.getOrDefault("stamina-recharge", "5")),
+                1.0,
+                0.25
+        );
+        this.tickBudgetMicros = Double.parseDouble(options.getOrDefault("budget-tick-us", "0"));
+        this.heapBudgetBytes = Long.parseLong(options.getOrDefault("budget-heap-bytes", "0"));
+        if (riders <= 0 || ticks <= 0 || warmupTicks < 0 || threads <= 0) {
+            throw new IllegalArgumentException("riders, ticks и threads должны быть положительными, warmup - не меньше 0");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+        if (options.containsKey("help")) {
+            printUsage();
+            return;
+        }
+
+        RidingSimulator simulator;
+        int[] scale;
+        try {
+            simulator = new RidingSimulator(options);
+            scale = options.containsKey("scale") ? parseScale(options.get("scale")) : null;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        simulator.executor = new ThreadPoolExecutor(simulator.threads, simulator.threads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        simulator.executor.prestartAllCoreThreads();
+        boolean withinBudget = true;
+        try {
+            if (scale != null) {
+                withinBudget = simulator.runScale(scale);
+            } else {
+                Measurement measurement = simulator.run(simulator.createRiders(simulator.riders), new PhaseHistogram());
+                simulator.report(measurement);
+            }
+        } finally {
+            simulator.executor.shutdownNow();
+        }
+        if (!withinBudget) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+            }
+            String key = arg.substring(2);
+            if (key.equals("help")) {
+                options.put(key, "true");
+            } else if (i + 1 < args.length) {
+                options.put(key, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Нет значения для " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static int[] parseScale(String value) {
+        String[] parts = value.split(",");
+        int[] counts = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Integer.parseInt(parts[i].trim());
+            if (counts[i] <= 0) {
+                throw new IllegalArgumentException("Число наездников в --scale должно быть положительным: " + parts[i]);
+            }
+        }
+        return counts;
+    }
+
+    private static void printUsage() {
+        System.out.println("Использование: RidingSimulator [--riders N] [--ticks N] [--warmup N] [--threads N]");
+        System.out.println("  [--script имя|\"КЛАВИШИ:тики[:поворот] ...\"] [--seed N] [--target-spacing блоки]");
+        System.out.println("  [--speed N] [--sprint-multiplier N] [--double-tap-time мс] [--jump-strength N]");
+        System.out.println("  [--multi-jump true|false] [--extra-jumps N] [--stamina секунды, 0 - без ограничения]");
+        System.out.println("  [--stamina-recharge секунды] [--replay файл|папка трассы]");
+        System.out.println("  [--scale N,N,...] [--budget-tick-us мкс] [--budget-heap-bytes байт на наездника]");
+        System.out.println("Сценарии (mixed - случайный активный для каждого наездника):");
+        for (Map.Entry<String, String> entry : InputScript.builtIn().entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    /**
+     * Создаёт наездников в случайных точках со случайным сдвигом сценария, чтобы они не шли в ногу.
+     */
+    private List<VirtualRider> createRiders(int riders) {
+        Random random = new Random(seed);
+        if (replay != null) {
+            // Записанные сессии воспроизводятся с начала, по кругу, если наездников больше, чем сессий
+            List<VirtualRider> population = new ArrayList<>(riders);
+            for (int i = 0; i < riders; i++) {
+                InputScript recorded = replay.get(i % replay.size());
+                population.add(new VirtualRider(params, recorded, 0L,
+                        (random.nextDouble() - 0.5) * 10_000.0, (random.nextDouble() - 0.5) * 10_000.0,
+                        recorded.getInitialYaw()));
+            }
+            return population;
+        }
+
+        List<InputScript> mixed = script.equals("mixed") ? InputScript.builtInActive() : List.of(InputScript.of(script));
+
+        List<VirtualRider> population = new ArrayList<>(riders);
+        for (int i = 0; i < riders; i++) {
+            InputScript riderScript = mixed.get(random.nextInt(mixed.size()));
+            population.add(new VirtualRider(params, riderScript, random.nextInt(riderScript.length()),
+                    (random.nextDouble() - 0.5) * 10_000.0, (random.nextDouble() - 0.5) * 10_000.0,
+                    random.nextFloat() * 360.0F));
+        }
+        return population;
+    }
+
+    /**
+     * Режим кривой масштабирования: прогон для каждого числа наездников и проверка бюджетов.
+     * @return true, если все прогоны уложились в бюджеты
+     */
+    private boolean runScale(int[] counts) throws InterruptedException {
+        System.out.printf(Locale.ROOT, "Кривая масштабирования: тиков %d (+%d прогрев), потоков %d, сценарий %s%n",
+                ticks, warmupTicks, threads, script);
+        System.out.println("наездников | нс/тик наездника | тик части p50 / p99 / макс (мкс) | куча (байт на наездника)");
+
+        // Короткий прогон до замеров: загрузка классов и статические таблицы не должны попасть в кучу наездников
+        run(createRiders(1), new PhaseHistogram());
+
+        boolean withinBudget = true;
+        for (int count : counts) {
+            // Гистограмма создаётся до замера кучи, чтобы не попасть в прирост
+            PhaseHistogram tickTimes = new PhaseHistogram();
+            long heapBefore = usedHeap();
+            List<VirtualRider> population = createRiders(count);
+            Measurement measurement = run(population, tickTimes);
+            // Прирост кучи при живом населении - память состояния наездников после прогона
+            long heapGrowth = usedHeap() - heapBefore;
+            long heapPerRider = Math.max(0L, heapGrowth) / count;
+
+            double p99Micros = measurement.tickTimes().getPercentile(99) / 1000.0;
+            boolean tickOver = tickBudgetMicros > 0 && p99Micros > tickBudgetMicros;
+            boolean heapOver = heapBudgetBytes > 0 && heapPerRider > heapBudgetBytes;
+            withinBudget &= !tickOver && !heapOver;
+
+            System.out.printf(Locale.ROOT, "%10d | %16.1f | %8.1f / %8.1f / %8.1f | %d%s%s%n",
+                    count, (double) measurement.elapsedNanos() / ((long) count * ticks),
+                    measurement.tickTimes().getPercentile(50) / 1000.0, p99Micros,
+                    measurement.tickTimes().getMax() / 1000.0, heapPerRider,
+                    tickOver ? "  ПРЕВЫШЕН БЮДЖЕТ ТИКА" : "", heapOver ? "  ПРЕВЫШЕН БЮДЖЕТ КУЧИ" : "");
+            population.clear();
+        }
+
+        System.out.println(withinBudget ? "Бюджеты соблюдены" : "Бюджеты превышены");
+        return withinBudget;
+    }
+
+    /**
+     * Занятая куча после сборки мусора (приблизительно, System.gc() - только просьба).
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Прогревает JIT и делает замеренный прогон населения.
+     * @param tickTimes гистограмма для времени тиков; после прогрева сбрасывается
+     */
+    private Measurement run(List<VirtualRider> population, PhaseHistogram tickTimes) throws InterruptedException {
+        int partitions = Math.min(threads, population.size());
+        // Прогрев JIT без замера
+        if (warmupTicks > 0) {
+            runPartitions(population, partitions, 0L, warmupTicks, tickTimes);
+            tickTimes.reset();
+        }
+
+        long started = System.nanoTime();
+        runPartitions(population, partitions, warmupTicks, warmupTicks + ticks, tickTimes);
+        return new Measurement(population, partitions, tickTimes, System.nanoTime() - started);
+    }
+
+    /**
+     * Прогоняет тики [from, to) по частям населения, каждая часть - в своём потоке.
+     * Время тика каждой части пишется в гистограмму.
+     */
+    private void runPartitions(List<VirtualRider> population, int partitions,
+                               long from, long to, PhaseHistogram tickTimes) throws InterruptedException {
+        List<Callable<Void>> jobs = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            List<VirtualRider> part = population.subList(
+                    (int) ((long) population.size() * p / partitions),
+                    (int) ((long) population.size() * (p + 1) / partitions));
+            jobs.add(() -> {
+                VirtualRider[] region = part.toArray(new VirtualRider[0]);
+                for (long tick = from; tick < to; tick++) {
+                    long tickStart = System.nanoTime();
+                    for (VirtualRider rider : region) {
+                        rider.tick(tick, params, targetSpacing);
+                    }
+                    tickTimes.record(System.nanoTime() - tickStart);
+                }
+                return null;
+            });
+        }
+
+        for (Future<Void> future : executor.invokeAll(jobs)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка в потоке симуляции", e.getCause());
+            }
+        }
+    }
+
+    private void report(Measurement measurement) {
+        List<VirtualRider> population = measurement.population();
+        int riders = population.size();
+        long elapsedNanos = measurement.elapsedNanos();
+        PhaseHistogram tickTimes = measurement.tickTimes();
+        System.out.printf(Locale.ROOT, "Наездников: %d, тиков: %d (+%d прогрев), потоков: %d, сценарий: %s%n",
+                riders, ticks, warmupTicks, threads, script);
+
+        long riderTicks = (long) riders * ticks;
+        long sprintTicks = 0L;
+        long jumps = 0L;
+        long airJumps = 0L;
+        long rams = 0L;
+        double distance = 0.0;
+        double maxSpeed = 0.0;
+        for (VirtualRider rider : population) {
+            sprintTicks += rider.sprintTicks;
+            jumps += rider.jumps;
+            airJumps += rider.airJumps;
+            rams += rider.rams;
+            distance += rider.distance;
+            maxSpeed = Math.max(maxSpeed, rider.maxSpeed);
+        }
+        // Счётчики наездников включают прогрев
+        long totalRiderTicks = (long) riders * (ticks + warmupTicks);
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf(Locale.ROOT, "Время: %.3f с, %.0f тиков наездника/с, %.1f нс на тик наездника%n",
+                seconds, riderTicks / seconds, (double) elapsedNanos / riderTicks);
+        System.out.printf(Locale.ROOT, "Тик части (%d наездников): p50 %.1f мкс, p99 %.1f мкс, макс %.1f мкс%n",
+                riders / measurement.partitions(),
+                tickTimes.getPercentile(50) / 1000.0, tickTimes.getPercentile(99) / 1000.0, tickTimes.getMax() / 1000.0);
+        System.out.printf(Locale.ROOT, "Спринт: %.1f%% тиков, прыжков: %d (в воздухе: %d), таранов: %d%n",
+                100.0 * sprintTicks / totalRiderTicks, jumps, airJumps, rams);
+        System.out.printf(Locale.ROOT, "Средняя скорость: %.3f блок/тик, максимальная: %.3f блок/тик%n",
+                distance / totalRiderTicks, maxSpeed);
+    }
+
+    /**
+     * Результат замеренного прогона.
+     */
+    private record Measurement(List<VirtualRider> population, int partitions, PhaseHistogram tickTimes,
+                               long elapsedNanos) {
+    }
+}
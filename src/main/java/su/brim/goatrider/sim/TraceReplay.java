@@ -0,0 +1,85 @@
+package su.brim.goatrider.sim;
+
+import su.brim.goatrider.trace.TraceReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Превращает трассу ввода, записанную на сервере, в сценарии симулятора - по одному на сессию.
+ * Ввод берётся как есть, yaw - разностями между соседними записями, так что виртуальный наездник
+ * поворачивает так же, как настоящий.
+ */
+final class TraceReplay {
+
+    private TraceReplay() {
+    }
+
+    /**
+     * @param path файл сегмента или папка с сегментами
+     * @return сценарии сессий в порядке первого появления в трассе
+     */
+    static List<InputScript> load(Path path) throws IOException {
+        Map<Integer, SessionTrace> sessions = new LinkedHashMap<>();
+        TraceReader.read(path, (session, tick, yaw, velocityX, velocityY, velocityZ, input, flags) ->
+                sessions.computeIfAbsent(session, SessionTrace::new).add(input, yaw));
+
+        List<InputScript> scripts = new ArrayList<>(sessions.size());
+        for (SessionTrace trace : sessions.values()) {
+            scripts.add(trace.toScript());
+        }
+        return scripts;
+    }
+
+    /**
+     * Накопитель одной сессии на растущих примитивных массивах.
+     */
+    private static final class SessionTrace {
+        private final int session;
+        private int[] inputs = new int[256];
+        private float[] yawDeltas = new float[256];
+        private int size;
+        private float firstYaw;
+        private float lastYaw;
+
+        SessionTrace(int session) {
+            this.session = session;
+        }
+
+        void add(int input, float yaw) {
+            if (size == inputs.length) {
+                inputs = Arrays.copyOf(inputs, size * 2);
+                yawDeltas = Arrays.copyOf(yawDeltas, size * 2);
+            }
+            if (size == 0) {
+                firstYaw = yaw;
+            } else {
+                yawDeltas[size] = wrapDegrees(yaw - lastYaw);
+            }
+            inputs[size] = input;
+            lastYaw = yaw;
+            size++;
+        }
+
+        InputScript toScript() {
+            return InputScript.fromTicks("session-" + session,
+                    Arrays.copyOf(inputs, size), Arrays.copyOf(yawDeltas, size), firstYaw);
+        }
+
+        private static float wrapDegrees(float degrees) {
+            float wrapped = degrees % 360.0F;
+            if (wrapped >= 180.0F) {
+                wrapped -= 360.0F;
+            }
+            if (wrapped < -180.0F) {
+                wrapped += 360.0F;
+            }
+            return wrapped;
+        }
+    }
+}
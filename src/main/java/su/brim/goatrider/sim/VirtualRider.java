@@ -0,0 +1,146 @@
+package su.brim.goatrider.sim;
+
+import su.brim.goatrider.core.RideParams;
+import su.brim.goatrider.core.RiderInput;
+import su.brim.goatrider.core.RiderState;
+import su.brim.goatrider.core.RidingRules;
+
+import java.util.UUID;
+
+/**
+ * Виртуальный наездник симулятора: состояние правил езды плюс упрощённая физика козла.
+ * Физика повторяет ванильную для плоского мира на высоте 0: гравитация, сопротивление воздуха
+ * и трение о землю. Цели тарана стоят в узлах бесконечной сетки, поэтому поиск кандидатов - O(1)
+ * и не требует хранить мир.
+ */
+final class VirtualRider extends RiderState {
+
+    // Ванильная физика сущности за тик
+    private static final double GRAVITY = 0.08;
+    private static final double VERTICAL_DRAG = 0.98;
+    private static final double GROUND_FRICTION = 0.546;
+    private static final double AIR_FRICTION = 0.91;
+
+    // Половина ширины хитбокса козла
+    private static final double GOAT_HALF_WIDTH = 0.45;
+
+    private final InputScript script;
+    private final long scriptOffset;
+
+    private double x;
+    private double y;
+    private double z;
+    private double velocityX;
+    private double velocityY;
+    private double velocityZ;
+    private float yaw;
+    private boolean onGround = true;
+
+    // Статистика наездника
+    long sprintTicks;
+    long jumps;
+    long airJumps;
+    long rams;
+    double distance;
+    double maxSpeed;
+
+    VirtualRider(RideParams params, InputScript script, long scriptOffset, double x, double z, float yaw) {
+        super(params.extraJumps());
+        this.script = script;
+        this.scriptOffset = scriptOffset;
+        this.x = x;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    /**
+     * Один тик наездника в том же порядке, что и задача управления на сервере:
+     * ввод, правила езды, таран, скорость козла, затем шаг физики.
+     * @param targetSpacing шаг сетки целей тарана, 0 - без целей
+     */
+    void tick(long tick, RideParams params, double targetSpacing) {
+        advanceTick(tick);
+        long scriptTick = tick + scriptOffset;
+        int input = script.inputAt(scriptTick);
+        yaw += script.yawDeltaAt(scriptTick);
+
+        boolean wasOnGround = onGround;
+        if (RidingRules.step(this, params, yaw, input, onGround)) {
+            velocityY = params.jumpStrength();
+            jumps++;
+            if (!wasOnGround) {
+                airJumps++;
+            }
+        }
+        if (isSprinting()) {
+            sprintTicks++;
+        }
+
+        if (RidingRules.hasMotion(this)) {
+            if (targetSpacing > 0 && isSprinting() && RiderInput.has(input, RiderInput.FORWARD)) {
+                checkRam(targetSpacing);
+            }
+            velocityX = getMotionX();
+            velocityZ = getMotionZ();
+        }
+
+        move();
+    }
+
+    private void move() {
+        x += velocityX;
+        y += velocityY;
+        z += velocityZ;
+
+        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+        distance += speed;
+        maxSpeed = Math.max(maxSpeed, speed);
+
+        if (y <= 0.0) {
+            y = 0.0;
+            velocityY = 0.0;
+            onGround = true;
+        } else {
+            onGround = false;
+        }
+
+        velocityY = (velocityY - GRAVITY) * VERTICAL_DRAG;
+        if (onGround && velocityY < 0.0) {
+            velocityY = 0.0;
+        }
+        double friction = onGround ? GROUND_FRICTION : AIR_FRICTION;
+        velocityX *= friction;
+        velocityZ *= friction;
+    }
+
+    /**
+     * Проверяет цели в узлах сетки вокруг козла: дальность, конус перед козлом и кулдаун.
+     */
+    private void checkRam(double spacing) {
+        double motionX = getMotionX();
+        double motionZ = getMotionZ();
+        double motionLength = Math.sqrt(motionX * motionX + motionZ * motionZ);
+        double dirX = motionX / motionLength;
+        double dirZ = motionZ / motionLength;
+        double reach = GOAT_HALF_WIDTH + RidingRules.RAM_REACH;
+
+        long minCellX = (long) Math.floor((x - reach) / spacing);
+        long maxCellX = (long) Math.floor((x + reach) / spacing);
+        long minCellZ = (long) Math.floor((z - reach) / spacing);
+        long maxCellZ = (long) Math.floor((z + reach) / spacing);
+
+        for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (long cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                double toX = cellX * spacing - x;
+                double toZ = cellZ * spacing - z;
+                if (toX * toX + toZ * toZ > reach * reach) {
+                    continue;
+                }
+                if (RidingRules.isInRamCone(dirX, dirZ, toX, -y, toZ)
+                        && RidingRules.canRamDamage(this, new UUID(cellX, cellZ))) {
+                    rams++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package su.brim.goatrider.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика производительности: гистограммы времени фаз задачи управления
+ * и счётчики событий. Всё lock-free, запись возможна из любого потока региона.
+ */
+public final class PerformanceStats {
+
+    /**
+     * Счётчики событий.
+     */
+    public enum Counter {
+        MOUNTS("mount", "Посадок"),
+        RAMS("ram", "Таранов"),
+        JUMPS("jump", "Прыжков"),
+        STEPS("step", "Авто-шагов"),
+        PARKS("park", "Парковок"),
+        WAKEUPS("wakeup", "Пробуждений"),
+        TASKS_CANCELLED("task_cancelled", "Отменённых задач");
+
+        private final String metricName;
+        private final String displayName;
+
+        Counter(String metricName, String displayName) {
+            this.metricName = metricName;
+            this.displayName = displayName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final PhaseHistogram[] phases = new PhaseHistogram[TickPhase.values().length];
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+    // Замер фаз можно выключить в конфиге - тогда start/lap не вызывают System.nanoTime()
+    private volatile boolean timingEnabled = true;
+
+    public PerformanceStats() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new PhaseHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public void setTimingEnabled(boolean timingEnabled) {
+        this.timingEnabled = timingEnabled;
+    }
+
+    public boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    /**
+     * Начало замера: текущее время или 0, если замер выключен.
+     */
+    public long start() {
+        return timingEnabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Записывает длительность фазы с момента start и возвращает текущее время
+     * как начало следующей фазы.
+     */
+    public long lap(TickPhase phase, long start) {
+        if (!timingEnabled || start == 0L) {
+            return start();
+        }
+        long now = System.nanoTime();
+        phases[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public PhaseHistogram getHistogram(TickPhase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public void reset() {
+        for (PhaseHistogram histogram : phases) {
+            histogram.reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * Пишет статистику в текстовом формате Prometheus.
+     * @param ridersByArea число наездников по областям (мир и ячейка)
+     */
+    public void writePrometheus(Writer out, Map<String, Integer> ridersByArea) throws IOException {
+        out.write("# HELP goatrider_phase_seconds Длительность фаз задачи управления козлом\n");
+        out.write("# TYPE goatrider_phase_seconds summary\n");
+        for (TickPhase phase : TickPhase.values()) {
+            PhaseHistogram histogram = getHistogram(phase);
+            String label = "phase=\"" + phase.getMetricName() + "\"";
+            writeSample(out, "goatrider_phase_seconds{" + label + ",quantile=\"0.5\"}", seconds(histogram.getPercentile(50)));
+            writeSample(out, "goatrider_phase_seconds{" + label + ",quantile=\"0.99\"}", seconds(histogram.getPercentile(99)));
+            writeSample(out, "goatrider_phase_seconds{" + label + ",quantile=\"1\"}", seconds(histogram.getMax()));
+            writeSample(out, "goatrider_phase_seconds_sum{" + label + "}", seconds(histogram.getSum()));
+            out.write("goatrider_phase_seconds_count{" + label + "} " + histogram.getCount() + "\n");
+        }
+
+        out.write("# HELP goatrider_events_total События GoatRider\n");
+        out.write("# TYPE goatrider_events_total counter\n");
+        for (Counter counter : Counter.values()) {
+            out.write("goatrider_events_total{event=\"" + counter.getMetricName() + "\"} " + get(counter) + "\n");
+        }
+
+        out.write("# HELP goatrider_riders Активные наездники по областям\n");
+        out.write("# TYPE goatrider_riders gauge\n");
+        for (Map.Entry<String, Integer> entry : ridersByArea.entrySet()) {
+            out.write("goatrider_riders{area=\"" + entry.getKey().replace("\"", "\\\"") + "\"} " + entry.getValue() + "\n");
+        }
+    }
+
+    private static void writeSample(Writer out, String name, double value) throws IOException {
+        out.write(name + " " + String.format(Locale.ROOT, "%.9f", value) + "\n");
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,74 @@
+package su.brim.goatrider.stats;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import su.brim.goatrider.GoatRiderPlugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Выгрузка статистики в файл в текстовом формате Prometheus (для node_exporter textfile collector).
+ * Запись идёт асинхронно через реестр задач, файл заменяется атомарно.
+ */
+public class PrometheusExporter {
+
+    private final GoatRiderPlugin plugin;
+    private ScheduledTask task;
+
+    public PrometheusExporter(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Запускает (или перезапускает) периодическую выгрузку согласно конфигу.
+     */
+    public void start() {
+        stop();
+        if (!plugin.getConfigManager().isPrometheusEnabled()) {
+            return;
+        }
+        long interval = plugin.getConfigManager().getPrometheusInterval();
+        task = plugin.getTaskRegistry().runAsyncAtFixedRate(scheduledTask -> write(), interval, interval, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (task != null) {
+            plugin.getTaskRegistry().cancel(task);
+            task = null;
+        }
+    }
+
+    /**
+     * Выгружает статистику один раз, асинхронно.
+     */
+    public void dumpAsync() {
+        plugin.getTaskRegistry().runAsyncNow(scheduledTask -> write());
+    }
+
+    /**
+     * Путь к файлу выгрузки в папке плагина.
+     */
+    public Path getFile() {
+        return plugin.getDataFolder().toPath().resolve(plugin.getConfigManager().getPrometheusFile());
+    }
+
+    private void write() {
+        Path file = getFile();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                plugin.getStats().writePrometheus(out, plugin.getRidingManager().getRidersByArea());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось записать статистику в " + file, e);
+        }
+    }
+}
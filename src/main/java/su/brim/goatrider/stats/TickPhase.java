@@ -0,0 +1,30 @@
+package su.brim.goatrider.stats;
+
+/**
+ * Фазы тела задачи управления козлом, которые измеряются отдельно.
+ */
+public enum TickPhase {
+    INPUT("input", "Чтение ввода"),
+    SPRINT("sprint", "Спринт"),
+    MOVEMENT("movement", "Расчёт движения"),
+    JUMP("jump", "Прыжок"),
+    STEP("step", "Авто-шаг"),
+    RAM("ram", "Таран"),
+    VELOCITY("velocity", "setVelocity");
+
+    private final String metricName;
+    private final String displayName;
+
+    TickPhase(String metricName, String displayName) {
+        this.metricName = metricName;
+        this.displayName = displayName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,35 @@
+package su.brim.goatrider.trace;
+
+/**
+ * Формат файлов записи ввода наездников.
+ * <p>
+ * Сегмент - заголовок {@link #HEADER_SIZE} байт и записи фиксированной ширины {@link #RECORD_SIZE} байт,
+ * порядок байт big-endian. Заголовок: magic (int), версия (short), размер записи (short),
+ * время начала сегмента в мс (long), число записей (int), остальное - нули.
+ * Запись: номер сессии (int), тик сессии (int), yaw (float), скорость козла X/Y/Z (3 float),
+ * маска ввода {@link su.brim.goatrider.core.RiderInput} (short), флаги (short).
+ * Номер сессии - порядковый номер посадки с запуска сервера, без UUID игроков.
+ */
+public final class TraceFormat {
+
+    // "GRTR"
+    public static final int MAGIC = 0x47525452;
+    public static final short VERSION = 1;
+
+    public static final int HEADER_SIZE = 32;
+    public static final int HEADER_START_OFFSET = 8;
+    public static final int HEADER_COUNT_OFFSET = 16;
+
+    public static final int RECORD_SIZE = 28;
+
+    public static final String FILE_PREFIX = "trace-";
+    public static final String FILE_EXTENSION = ".gtr";
+
+    // Флаги записи
+    public static final int FLAG_ON_GROUND = 1;
+    public static final int FLAG_SPRINTING = 1 << 1;
+    public static final int FLAG_JUMPED = 1 << 2;
+
+    private TraceFormat() {
+    }
+}
@@ -0,0 +1,86 @@
+package su.brim.goatrider.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Чтение сегментов трассы, записанных {@link TraceSegmentWriter}. Без Bukkit - для симулятора и бенчмарков.
+ */
+public final class TraceReader {
+
+    /**
+     * Получатель записей, поля передаются примитивами.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(int session, int tick, float yaw, float velocityX, float velocityY, float velocityZ,
+                    int input, int flags);
+    }
+
+    private TraceReader() {
+    }
+
+    /**
+     * Сегменты трассы: сам файл или все сегменты папки в порядке создания.
+     */
+    public static List<Path> segments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path,
+                TraceFormat.FILE_PREFIX + "*" + TraceFormat.FILE_EXTENSION)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Читает все записи сегментов по порядку.
+     * @param path файл сегмента или папка с сегментами
+     * @return число прочитанных записей
+     * @throws IOException если файл не читается или не является сегментом трассы
+     */
+    public static long read(Path path, RecordConsumer consumer) throws IOException {
+        long total = 0L;
+        for (Path segment : segments(path)) {
+            total += readSegment(segment, consumer);
+        }
+        return total;
+    }
+
+    private static int readSegment(Path segment, RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < TraceFormat.HEADER_SIZE || buffer.getInt(0) != TraceFormat.MAGIC) {
+                throw new IOException("Не сегмент трассы: " + segment);
+            }
+            short version = buffer.getShort(4);
+            short recordSize = buffer.getShort(6);
+            if (version != TraceFormat.VERSION || recordSize != TraceFormat.RECORD_SIZE) {
+                throw new IOException("Неподдерживаемая версия трассы " + version + " в " + segment);
+            }
+
+            // Число записей ограничено размером файла на случай повреждённого заголовка
+            int count = Math.min(buffer.getInt(TraceFormat.HEADER_COUNT_OFFSET),
+                    (buffer.limit() - TraceFormat.HEADER_SIZE) / TraceFormat.RECORD_SIZE);
+            buffer.position(TraceFormat.HEADER_SIZE);
+            for (int i = 0; i < count; i++) {
+                consumer.accept(buffer.getInt(), buffer.getInt(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getShort() & 0xFFFF, buffer.getShort() & 0xFFFF);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package su.brim.goatrider.trace;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.util.Vector;
+import su.brim.goatrider.GoatRiderPlugin;
+import su.brim.goatrider.manager.BackgroundQueue;
+import su.brim.goatrider.manager.RiderSession;
+import su.brim.goatrider.manager.Settings;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * Запись ввода наездников для воспроизведения в симуляторе и бенчмарках.
+ * Задача управления кладёт запись в {@link TraceRingBuffer} (один CAS, без блокировок и аллокаций),
+ * а одна асинхронная задача периодически сбрасывает буфер в сегменты через {@link TraceSegmentWriter}.
+ * Когда запись выключена в конфиге, задача управления не вызывает рекордер вовсе.
+ * Последний сброс и закрытие сегмента при перезапуске идут шагами {@link BackgroundQueue}, а не в потоке команды.
+ */
+public class TraceRecorder {
+
+    private final GoatRiderPlugin plugin;
+
+    // Текущая запись; null - запись остановлена
+    private final AtomicReference<Recording> recording = new AtomicReference<>();
+
+    // Открытие и закрытие сегментов - по очереди в фоне
+    private final BackgroundQueue io;
+
+    // Запись с запущенным сбросом; меняется только шагами очереди
+    private Recording active;
+
+    public TraceRecorder(GoatRiderPlugin plugin) {
+        this.plugin = plugin;
+        this.io = new BackgroundQueue(plugin.getTaskRegistry());
+    }
+
+    /**
+     * Запускает (или перезапускает) запись согласно конфигу.
+     * Новые тики сразу пишутся в новый буфер; прежний дописывается и закрывается в фоне.
+     */
+    public void start() {
+        Settings.Trace trace = plugin.getConfigManager().getSettings().trace();
+        recording.set(trace.enabled() ? new Recording(trace) : null);
+        io.submit(this::switchRecording);
+    }
+
+    /**
+     * Останавливает запись, дописывая то, что осталось в буфере. Вызывается при выключении плагина:
+     * асинхронные задачи уже не запустятся, поэтому последний сброс идёт в вызывающем потоке.
+     */
+    public void stop() {
+        recording.set(null);
+        io.submit(this::switchRecording);
+        io.drainNow();
+    }
+
+    /**
+     * Шаг очереди: закрывает запись, которую сменила другая, и запускает сброс текущей.
+     * Порядок шагов не важен - каждый приводит сброс к последнему выбору.
+     */
+    private void switchRecording() {
+        Recording next = recording.get();
+        if (active == next) {
+            return;
+        }
+        if (active != null) {
+            active.close();
+        }
+        active = next;
+        if (next != null) {
+            next.start();
+        }
+    }
+
+    /**
+     * Записывает тик сессии. Вызывается из потока региона козла.
+     * @param input маска ввода {@link su.brim.goatrider.core.RiderInput}
+     * @param velocity скорость козла после применения движения
+     * @param flags флаги {@link TraceFormat}
+     */
+    public void record(RiderSession session, int input, float yaw, Vector velocity, int flags) {
+        Recording current = recording.get();
+        if (current == null) {
+            return;
+        }
+        current.ring.offer(session.getSessionNumber(), (int) session.getTick(), yaw,
+                (float) velocity.getX(), (float) velocity.getY(), (float) velocity.getZ(), input, flags);
+    }
+
+    public boolean isRecording() {
+        return recording.get() != null;
+    }
+
+    /**
+     * Записано в файлы с последнего запуска записи.
+     */
+    public long getWrittenCount() {
+        Recording current = recording.get();
+        return current != null ? current.written : 0L;
+    }
+
+    /**
+     * Отброшено из-за переполнения буфера с последнего запуска записи.
+     */
+    public long getDroppedCount() {
+        Recording current = recording.get();
+        return current != null ? current.ring.getDropped() : 0L;
+    }
+
+    /**
+     * Одна запись: буфер, писатель сегментов и задача сброса. Сброс и закрытие идут под блокировкой записи,
+     * которую ждут только фоновые потоки.
+     */
+    private final class Recording {
+
+        private final TraceRingBuffer ring;
+        private final TraceSegmentWriter writer;
+        private final long flushInterval;
+        private ScheduledTask flushTask;
+        private boolean closed;
+
+        // Копия writer.getTotalRecords() после сброса - для /gr stats без блокировки
+        private volatile long written;
+
+        Recording(Settings.Trace trace) {
+            this.ring = new TraceRingBuffer(trace.bufferSize());
+            this.writer = new TraceSegmentWriter(plugin.getDataFolder().toPath().resolve(trace.directory()),
+                    trace.segmentSize() * 1024L * 1024L, trace.maxSegments());
+            this.flushInterval = trace.flushInterval();
+        }
+
+        synchronized void start() {
+            flushTask = plugin.getTaskRegistry().runAsyncAtFixedRate(scheduledTask -> flush(),
+                    flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Останавливает сброс, дописывает буфер и закрывает сегмент.
+         */
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            cancelFlush();
+            closed = true;
+            try {
+                writer.drain(ring);
+                written = writer.getTotalRecords();
+                writer.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Не удалось дописать трассу ввода", e);
+            }
+        }
+
+        synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                writer.drain(ring);
+                written = writer.getTotalRecords();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Не удалось записать трассу ввода, запись остановлена", e);
+                cancelFlush();
+                closed = true;
+                recording.compareAndSet(this, null);
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void cancelFlush() {
+            if (flushTask != null) {
+                plugin.getTaskRegistry().cancel(flushTask);
+                flushTask = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package su.brim.goatrider.trace;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free кольцевой буфер записей трассы: много писателей (потоки регионов), один читатель.
+ * Писатель занимает номер слота CAS-ом, пишет запись в примитивный массив и публикует её
+ * release-записью номера в массив последовательностей. Если буфер полон, запись отбрасывается
+ * и считается потерянной - поток региона никогда не ждёт.
+ * Читатель ({@link TraceSegmentWriter}) забирает опубликованные записи по порядку до первой неготовой.
+ */
+public final class TraceRingBuffer {
+
+    // Запись упакована в 4 long
+    private static final int WORDS = 4;
+
+    private final long[] data;
+    private final AtomicLongArray published;
+    private final int mask;
+
+    // Следующий свободный номер для писателей и следующий номер для читателя
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity ёмкость в записях, округляется вверх до степени двойки
+     */
+    public TraceRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.data = new long[size * WORDS];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+    }
+
+    /**
+     * Кладёт запись в буфер. Вызывается из потока региона.
+     * @return false, если буфер полон и запись отброшена
+     */
+    public boolean offer(int session, int tick, float yaw, float velocityX, float velocityY, float velocityZ,
+                         int input, int flags) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= published.length()) {
+                dropped.increment();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        int base = index * WORDS;
+        data[base] = ((long) session << 32) | (tick & 0xFFFFFFFFL);
+        data[base + 1] = ((long) Float.floatToRawIntBits(yaw) << 32) | (Float.floatToRawIntBits(velocityX) & 0xFFFFFFFFL);
+        data[base + 2] = ((long) Float.floatToRawIntBits(velocityY) << 32) | (Float.floatToRawIntBits(velocityZ) & 0xFFFFFFFFL);
+        data[base + 3] = ((long) (flags & 0xFFFF) << 16) | (input & 0xFFFF);
+        published.setRelease(index, sequence);
+        return true;
+    }
+
+    /**
+     * Переносит опубликованные записи в буфер в формате {@link TraceFormat}, пока в нём есть место.
+     * Вызывается только из одного потока-читателя.
+     * @return число перенесённых записей
+     */
+    public int drainTo(ByteBuffer out) {
+        long sequence = tail;
+        int count = 0;
+        while (out.remaining() >= TraceFormat.RECORD_SIZE) {
+            int index = (int) (sequence & mask);
+            if (published.get(index) != sequence) {
+                break;
+            }
+            int base = index * WORDS;
+            long word0 = data[base];
+            long word1 = data[base + 1];
+            long word2 = data[base + 2];
+            long word3 = data[base + 3];
+            out.putInt((int) (word0 >>> 32));
+            out.putInt((int) word0);
+            out.putInt((int) (word1 >>> 32));
+            out.putInt((int) word1);
+            out.putInt((int) (word2 >>> 32));
+            out.putInt((int) word2);
+            out.putShort((short) word3);
+            out.putShort((short) (word3 >>> 16));
+            sequence++;
+            count++;
+        }
+        // Слоты освобождаются для писателей только после того, как записи прочитаны
+        tail = sequence;
+        return count;
+    }
+
+    /**
+     * Всего отброшено записей из-за переполнения.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int capacity() {
+        return published.length();
+    }
+}
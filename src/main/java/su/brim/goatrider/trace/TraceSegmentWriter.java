@@ -0,0 +1,138 @@
+package su.brim.goatrider.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Единственный писатель трассы: забирает записи из {@link TraceRingBuffer} в memory-mapped сегменты.
+ * Сегмент имеет фиксированный размер; когда он заполнен, файл обрезается до записанного и открывается следующий,
+ * а самые старые сегменты сверх лимита удаляются. Число записей в заголовке обновляется при каждом сбросе,
+ * поэтому сегмент читается даже после аварийной остановки сервера.
+ * Не потокобезопасен - вызывать из одного потока (или под внешней блокировкой).
+ */
+public final class TraceSegmentWriter implements Closeable {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+    private int sequence;
+    private long totalRecords;
+
+    /**
+     * @param segmentBytes размер сегмента в байтах (округляется вниз до целого числа записей)
+     * @param maxSegments сколько последних сегментов хранить
+     */
+    public TraceSegmentWriter(Path directory, long segmentBytes, int maxSegments) {
+        long records = Math.max(1L, (segmentBytes - TraceFormat.HEADER_SIZE) / TraceFormat.RECORD_SIZE);
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE,
+                TraceFormat.HEADER_SIZE + records * TraceFormat.RECORD_SIZE);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Переносит все опубликованные записи буфера в сегменты.
+     * @return число записанных записей
+     */
+    public int drain(TraceRingBuffer ring) throws IOException {
+        int total = 0;
+        while (true) {
+            if (buffer == null) {
+                openSegment();
+            }
+            int drained = ring.drainTo(buffer);
+            recordCount += drained;
+            total += drained;
+            if (buffer.remaining() >= TraceFormat.RECORD_SIZE) {
+                break;
+            }
+            finishSegment();
+        }
+        buffer.putInt(TraceFormat.HEADER_COUNT_OFFSET, recordCount);
+        totalRecords += total;
+        return total;
+    }
+
+    /**
+     * Всего записано записей этим писателем.
+     */
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            finishSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(TraceFormat.FILE_PREFIX + LocalDateTime.now().format(FILE_TIME)
+                + "-" + String.format("%04d", sequence++) + TraceFormat.FILE_EXTENSION);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(TraceFormat.MAGIC);
+        buffer.putShort(TraceFormat.VERSION);
+        buffer.putShort((short) TraceFormat.RECORD_SIZE);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(0);
+        buffer.position(TraceFormat.HEADER_SIZE);
+        recordCount = 0;
+
+        pruneSegments(file);
+    }
+
+    private void finishSegment() throws IOException {
+        int size = buffer.position();
+        buffer.putInt(TraceFormat.HEADER_COUNT_OFFSET, recordCount);
+        buffer.force();
+        buffer = null;
+        try {
+            // Незаполненный хвост не нужен; на системах, где отображённый файл нельзя обрезать, он остаётся
+            channel.truncate(size);
+        } catch (IOException ignored) {
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Удаляет самые старые сегменты, оставляя не больше maxSegments вместе с текущим.
+     */
+    private void pruneSegments(Path current) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                TraceFormat.FILE_PREFIX + "*" + TraceFormat.FILE_EXTENSION)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // Имена начинаются с времени, поэтому лексикографический порядок - порядок создания
+        Collections.sort(segments);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            if (!segments.get(i).equals(current)) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package su.brim.goatrider.util;
+
+/**
+ * Математика движения козла на примитивах, без создания объектов.
+ * Направление берётся из заранее посчитанной таблицы синусов/косинусов по yaw.
+ * <p>
+ * Система координат как у {@code Location#getDirection()}: при yaw = 0 вперёд - это +Z,
+ * вектор "вправо" равен direction × (0, 1, 0).
+ */
+public final class MovementMath {
+
+    // 4096 значений на полный оборот - шаг ~0.088°, этого с запасом хватает для движения
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final double INDEX_PER_DEGREE = TABLE_SIZE / 360.0;
+
+    private static final double[] SIN = new double[TABLE_SIZE];
+    private static final double[] COS = new double[TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double radians = i * (2.0 * Math.PI / TABLE_SIZE);
+            SIN[i] = Math.sin(radians);
+            COS[i] = Math.cos(radians);
+        }
+    }
+
+    private MovementMath() {
+    }
+
+    /**
+     * Индекс в таблице для угла yaw в градусах (любого знака и величины).
+     */
+    public static int yawIndex(float yaw) {
+        return (int) Math.floor(yaw * INDEX_PER_DEGREE + 0.5) & TABLE_MASK;
+    }
+
+    /**
+     * X-компонента горизонтального направления взгляда (единичный вектор).
+     */
+    public static double directionX(float yaw) {
+        return -SIN[yawIndex(yaw)];
+    }
+
+    /**
+     * Z-компонента горизонтального направления взгляда (единичный вектор).
+     */
+    public static double directionZ(float yaw) {
+        return COS[yawIndex(yaw)];
+    }
+
+    /**
+     * X-компонента движения: forward вдоль взгляда и strafe вправо от него.
+     */
+    public static double motionX(float yaw, double forward, double strafe) {
+        int i = yawIndex(yaw);
+        // direction = (-sin, cos), right = (-cos, -sin)
+        return -SIN[i] * forward - COS[i] * strafe;
+    }
+
+    /**
+     * Z-компонента движения: forward вдоль взгляда и strafe вправо от него.
+     */
+    public static double motionZ(float yaw, double forward, double strafe) {
+        int i = yawIndex(yaw);
+        return COS[i] * forward - SIN[i] * strafe;
+    }
+}
@@ -0,0 +1,134 @@
+package su.brim.goatrider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import su.brim.goatrider.core.RidingRules;
+import su.brim.goatrider.manager.RiderSession;
+import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.testserver.TestGoat;
+import su.brim.goatrider.testserver.TestPlayer;
+import su.brim.goatrider.testserver.TestServer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Установившийся тик управления не аллоцирует: ни у едущего наездника, ни у припаркованного.
+ * Аллокации считаются счётчиком потока ({@code getCurrentThreadAllocatedBytes}) за окно тиков
+ * после прогрева JIT; берётся лучшее из нескольких окон, чтобы не ловить деоптимизации.
+ * <p>
+ * Вне замера остаются аллокации, которые плагин делает намеренно и не каждый тик:
+ * событие JFR раз в stats.jfr-tick-sample тиков, пересоздание чанков кэша высот по auto-step.cache-ttl,
+ * переход козла в новый чанк (поиск чанка в карте) или область вместимости,
+ * обход реестра задач раз в tasks.sweep-interval и асинхронная запись rider-stats.
+ * Поэтому козлы кружат в середине своих чанков, а эти периоды выставлены больше окна замера.
+ * <p>
+ * Бюджет - {@code goatrider.budget.tick-alloc-bytes} байт на окно (0).
+ */
+class ControlTickAllocationTest {
+
+    private static final int RIDERS = 100;
+    private static final int WARMUP_TICKS = 20000;
+    private static final int WINDOW_TICKS = 1000;
+    private static final int WINDOWS = 10;
+
+    // Поворот взгляда за тик: козёл описывает круг в пару блоков и не покидает чанк
+    private static final int TURN_DEGREES = 10;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private TestServer server;
+    private final List<TestPlayer> players = new ArrayList<>();
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stopPlugin();
+        }
+    }
+
+    @Test
+    void ridingTickAllocatesNothing() {
+        start();
+        for (TestPlayer player : players) {
+            player.keys(true, false, false);
+        }
+        ride(WARMUP_TICKS);
+
+        long allocated = measure();
+        RidingManager riding = server.plugin().getRidingManager();
+        for (TestPlayer player : players) {
+            RiderSession session = riding.getSession(player.handle());
+            assertTrue(!session.isParked() && RidingRules.hasMotion(session), "наездник должен ехать");
+        }
+        assertWithinBudget("езда", allocated);
+    }
+
+    @Test
+    void parkedTickAllocatesNothing() {
+        start();
+        ride(WARMUP_TICKS);
+
+        long allocated = measure();
+        RidingManager riding = server.plugin().getRidingManager();
+        for (TestPlayer player : players) {
+            assertTrue(riding.getSession(player.handle()).isParked(), "наездник без ввода должен быть припаркован");
+        }
+        assertWithinBudget("парковка", allocated);
+    }
+
+    private void start() {
+        server = TestServer.start(Map.of(
+                "stats.jfr-tick-sample", Integer.MAX_VALUE,
+                "auto-step.cache-ttl", 0,
+                "tasks.sweep-interval", 1_000_000,
+                "rider-stats.flush-interval", 1_000_000));
+        // Один козёл в середине чанка, все в одной области вместимости (256..512 блоков)
+        for (int i = 0; i < RIDERS; i++) {
+            double x = 256 + (i % 10) * 16 + 8.5;
+            double z = 256 + (i / 10) * 16 + 8.5;
+            TestGoat goat = server.spawnGoat(x, z);
+            TestPlayer player = server.join("Rider" + i, x + 1.0, z);
+            server.interact(player, goat);
+            players.add(player);
+        }
+        server.tick();
+        assertEquals(RIDERS, server.plugin().getRidingManager().getRiderCount());
+    }
+
+    /**
+     * Лучшее окно: наименьшее число байт, аллоцированных потоком тиков за {@link #WINDOW_TICKS} тиков.
+     */
+    private long measure() {
+        long best = Long.MAX_VALUE;
+        for (int window = 0; window < WINDOWS && best > 0; window++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            ride(WINDOW_TICKS);
+            best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        return best;
+    }
+
+    private void ride(int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            float yaw = (float) (server.scheduler().currentTick() * TURN_DEGREES % 360);
+            for (int i = 0; i < players.size(); i++) {
+                players.get(i).look(yaw);
+            }
+            server.tick();
+        }
+    }
+
+    private static void assertWithinBudget(String phase, long allocated) {
+        long budget = Long.getLong("goatrider.budget.tick-alloc-bytes", 0L);
+        System.out.printf("%s: %d байт за %d тиков x %d наездников%n", phase, allocated, WINDOW_TICKS, RIDERS);
+        assertTrue(allocated <= budget, String.format(
+                "%s: тик управления аллоцировал %d байт за %d тиков, бюджет %d", phase, allocated, WINDOW_TICKS, budget));
+    }
+}
@@ -0,0 +1,330 @@
+package su.brim.goatrider;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityMountEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import su.brim.goatrider.manager.ConfigManager;
+import su.brim.goatrider.manager.RiderSession;
+import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.manager.TaskRegistry;
+import su.brim.goatrider.riderstats.RiderStatsStore;
+import su.brim.goatrider.trace.TraceReader;
+import su.brim.goatrider.trace.TraceRecorder;
+import su.brim.goatrider.testserver.TestGoat;
+import su.brim.goatrider.testserver.TestPlayer;
+import su.brim.goatrider.testserver.TestServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Путь наездника через весь плагин: клик по козлу (GoatMountListener) -> посадка и сессия (RidingManager.addRider)
+ * -> задача управления (GoatControlListener) -> высадка или выход с сервера, а также /gr reload во время езды.
+ */
+class RidingFlowTest {
+
+    private TestServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stopPlugin();
+        }
+    }
+
+    @Test
+    void mountRideAndDismount() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        RidingManager riding = server.plugin().getRidingManager();
+        ConfigManager config = server.plugin().getConfigManager();
+
+        mount(rider, goat);
+        assertSame(goat.handle(), rider.handle().getVehicle());
+        assertTrue(server.plugin().getRidingListeners().isRegistered());
+        assertEquals(1, liveTasks(TaskRegistry.Kind.CONTROL));
+        assertTrue(rider.messages().contains(config.formatMessage(config.getMountSuccess())));
+
+        // Взгляд на юг (+Z): козёл едет за взглядом наездника
+        rider.look(0.0F);
+        rider.keys(true, false, false);
+        server.tick(40);
+        assertTrue(goat.z() > 5.0, "козёл не поехал: z=" + goat.z());
+        assertTrue(Math.abs(goat.x() - 0.5) < 0.01);
+
+        rider.leaveVehicle();
+        assertFalse(riding.isRiding(rider.handle()));
+        assertTrue(rider.messages().contains(config.formatMessage(config.getDismountSuccess())));
+        server.tick();
+        assertEquals(0, liveTasks(TaskRegistry.Kind.CONTROL));
+        assertTrue(riding.getCapacity().getAreaCounts().isEmpty());
+        assertTrue(riding.getCapacity().getWorldCounts().isEmpty());
+    }
+
+    @Test
+    void idleRiderIsParkedAndWokenByInput() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        RiderSession session = server.plugin().getRidingManager().getSession(rider.handle());
+
+        server.tick(5);
+        assertTrue(session.isParked());
+
+        rider.keys(true, false, false);
+        assertFalse(session.isParked());
+        server.tick(20);
+        assertTrue(goat.speed() > 0.0);
+        assertEquals(1, liveTasks(TaskRegistry.Kind.CONTROL));
+    }
+
+    @Test
+    void jumpTappedBetweenTicksIsNotLost() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        rider.keys(true, false, false);
+        server.tick(5);
+        assertTrue(goat.isOnGround());
+
+        // Пробел нажат и отпущен до тика управления
+        double groundY = goat.y();
+        rider.keys(true, true, false);
+        rider.keys(true, false, false);
+        server.tick();
+        assertFalse(goat.isOnGround(), "нажатие прыжка потерялось");
+        server.tick();
+        assertTrue(goat.y() > groundY);
+    }
+
+    @Test
+    void overloadedRegionRunsControlTaskAtStagePeriod() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        RiderSession session = server.plugin().getRidingManager().getSession(rider.handle());
+        rider.look(0.0F);
+        rider.keys(true, false, false);
+
+        // TPS 10: самая жёсткая ступень, управление раз в 3 тика
+        server.setRegionTps(10.0);
+        server.tick(40);
+        assertEquals(3, session.getLoadStage().level());
+        assertEquals(4, controlRuns(session, 12));
+        assertEquals(1, liveTasks(TaskRegistry.Kind.CONTROL));
+        double z = goat.z();
+        server.tick(20);
+        assertTrue(goat.z() > z + 1.0, "козёл не едет при разгрузке: z=" + goat.z());
+
+        // Регион восстановился: задача снова идёт каждый тик
+        server.setRegionTps(20.0);
+        server.tick(40);
+        assertNull(session.getLoadStage());
+        assertEquals(12, controlRuns(session, 12));
+        assertEquals(1, liveTasks(TaskRegistry.Kind.CONTROL));
+    }
+
+    @Test
+    void reloadMovesRiderStatsInBackground() {
+        server = TestServer.start(Map.of("rider-stats.enabled", true, "rider-stats.flush-interval", 1));
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        rider.keys(true, false, false);
+        server.tick(40);
+        RiderStatsStore riderStats = server.plugin().getRiderStats();
+        assertTrue(riderStats.find("Rider").distance() > 0.0);
+        Path dataFolder = server.plugin().getDataFolder().toPath();
+        assertTrue(Files.exists(dataFolder.resolve("rider-stats.dat")));
+
+        // Прежний файл дописывается и закрывается, новый открывается фоновыми шагами, а не в reload
+        server.reloadPlugin(Map.of("rider-stats.file", "rider-stats-2.dat"));
+        assertTrue(riderStats.isEnabled());
+        assertFalse(Files.exists(dataFolder.resolve("rider-stats-2.dat")));
+        server.tick(3);
+        assertTrue(Files.exists(dataFolder.resolve("rider-stats-2.dat")));
+    }
+
+    @Test
+    void reloadDrainsTraceInBackground() throws IOException {
+        server = TestServer.start(Map.of("trace.enabled", true, "trace.segment-size", 1, "trace.flush-interval", 1000));
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        rider.keys(true, false, false);
+        server.tick(30);
+        TraceRecorder recorder = server.plugin().getTraceRecorder();
+        long flushed = recorder.getWrittenCount();
+        assertTrue(flushed > 0);
+        Path traces = server.plugin().getDataFolder().toPath().resolve("traces");
+
+        // Остаток буфера дописывается фоновым шагом, а не в reload
+        server.reloadPlugin(Map.of("trace.enabled", false));
+        assertFalse(recorder.isRecording());
+        assertEquals(flushed, TraceReader.read(traces, (session, tick, yaw, vx, vy, vz, input, flags) -> { }));
+        server.tick(2);
+        assertTrue(TraceReader.read(traces, (session, tick, yaw, vx, vy, vz, input, flags) -> { }) > flushed);
+    }
+
+    @Test
+    void quitCleansUpSessionTaskAndGoat() {
+        server = TestServer.start(Map.of("suspend-ai", true));
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        RidingManager riding = server.plugin().getRidingManager();
+
+        mount(rider, goat);
+        rider.keys(true, false, false);
+        server.tick(10);
+        assertFalse(goat.isAware());
+        assertTrue(riding.needsAiRestore(goat.handle()));
+
+        server.quit(rider);
+        assertFalse(riding.hasRiders());
+        assertNull(riding.getSessionByGoat(goat.getUniqueId()));
+        assertTrue(goat.getPassengers().isEmpty());
+
+        // Задача управления отменена сразу, ИИ козлу возвращает задача в его потоке
+        server.tick();
+        assertEquals(0, liveTasks(TaskRegistry.Kind.CONTROL));
+        assertTrue(goat.isAware());
+        assertFalse(riding.needsAiRestore(goat.handle()));
+        assertTrue(riding.getCapacity().getWorldCounts().isEmpty());
+    }
+
+    @Test
+    void reloadSwitchesSuspendAiDuringRide() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        rider.keys(true, false, false);
+        server.tick(5);
+        assertTrue(goat.isAware());
+
+        server.reloadPlugin(Map.of("suspend-ai", true));
+        server.tick();
+        assertFalse(goat.isAware());
+
+        server.reloadPlugin(Map.of("suspend-ai", false));
+        server.tick();
+        assertTrue(goat.isAware());
+        assertFalse(server.plugin().getRidingManager().needsAiRestore(goat.handle()));
+    }
+
+    @Test
+    void reloadEnablesStaminaMidSprint() {
+        server = TestServer.start(Map.of());
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        mount(rider, goat);
+        RiderSession session = server.plugin().getRidingManager().getSession(rider.handle());
+
+        rider.keys(true, false, true);
+        server.tick(60);
+        assertTrue(session.isSprinting(), "без выносливости спринт не кончается");
+
+        // Запас на секунду: спринт, идущий во время reload, кончается через секунду после него
+        server.reloadPlugin(Map.of("sprint.stamina.enabled", true, "sprint.stamina.duration", 1.0));
+        server.tick(10);
+        assertTrue(session.isSprinting());
+        server.tick(20);
+        assertFalse(session.isSprinting());
+    }
+
+    @Test
+    void cancelledMountGivesSlotBack() {
+        server = TestServer.start(Map.of("capacity.max-per-world", 1));
+        TestGoat goat = server.spawnGoat(0.5, 0.5);
+        TestPlayer rider = server.join("Rider", 1.5, 0.5);
+        RidingManager riding = server.plugin().getRidingManager();
+
+        // Другой плагин запрещает посадку
+        Listener blocker = new Listener() {
+            @EventHandler
+            public void onMount(EntityMountEvent event) {
+                event.setCancelled(true);
+            }
+        };
+        server.plugin().getServer().getPluginManager().registerEvents(blocker, server.plugin());
+        server.interact(rider, goat);
+        server.tick();
+        assertFalse(riding.isRiding(rider.handle()));
+        assertNull(rider.handle().getVehicle());
+        assertTrue(riding.getCapacity().getWorldCounts().isEmpty());
+        assertEquals(0, liveTasks(TaskRegistry.Kind.CONTROL));
+
+        // Единственное место мира свободно - следующая посадка проходит
+        HandlerList.unregisterAll(blocker);
+        mount(rider, goat);
+        assertEquals(1, liveTasks(TaskRegistry.Kind.CONTROL));
+    }
+
+    @Test
+    void fullWorldRefusesUntilRiderLeaves() {
+        server = TestServer.start(Map.of("capacity.max-per-world", 1));
+        TestGoat first = server.spawnGoat(0.5, 0.5);
+        TestGoat second = server.spawnGoat(4.5, 0.5);
+        TestPlayer firstRider = server.join("First", 1.5, 0.5);
+        TestPlayer secondRider = server.join("Second", 5.5, 0.5);
+        RidingManager riding = server.plugin().getRidingManager();
+        ConfigManager config = server.plugin().getConfigManager();
+
+        mount(firstRider, first);
+        server.interact(secondRider, second);
+        server.tick();
+        assertFalse(riding.isRiding(secondRider.handle()));
+        assertTrue(secondRider.messages().contains(config.formatMessage(config.getCapacityFull())));
+
+        firstRider.leaveVehicle();
+        mount(secondRider, second);
+        assertEquals(1, riding.getRiderCount());
+    }
+
+    /**
+     * Клик по козлу и тик, в котором выполняется задача посадки.
+     */
+    private void mount(TestPlayer rider, TestGoat goat) {
+        server.interact(rider, goat);
+        server.tick();
+        RiderSession session = server.plugin().getRidingManager().getSession(rider.handle());
+        assertNotNull(session, "игрок не сел");
+        assertEquals(goat.getUniqueId(), session.getGoatId());
+    }
+
+    /**
+     * Сколько раз задача управления выполнилась за ticks тиков сервера.
+     */
+    private int controlRuns(RiderSession session, int ticks) {
+        int runs = 0;
+        long last = session.getTick();
+        for (int i = 0; i < ticks; i++) {
+            server.tick();
+            if (session.getTick() != last) {
+                last = session.getTick();
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    private int liveTasks(TaskRegistry.Kind kind) {
+        return server.plugin().getTaskRegistry().getLiveCounts().get(kind);
+    }
+}
@@ -0,0 +1,196 @@
+package su.brim.goatrider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import su.brim.goatrider.manager.RidingManager;
+import su.brim.goatrider.manager.TaskRegistry;
+import su.brim.goatrider.stats.PerformanceStats;
+import su.brim.goatrider.stats.PhaseHistogram;
+import su.brim.goatrider.stats.TickPhase;
+import su.brim.goatrider.testserver.TestGoat;
+import su.brim.goatrider.testserver.TestPlayer;
+import su.brim.goatrider.testserver.TestServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Весь путь наездника на 10/100/1000/10000 наездников: посадка, езда, /gr reload, высадка.
+ * Для каждого шага печатается время на наездника и рост кучи, для тика управления - фазы из /gr stats.
+ * Тест падает, если тик или память на наездника выходят за бюджет.
+ * <p>
+ * Замеры по часам и куче зависят от машины, поэтому тест помечен {@code scale} и в обычный
+ * {@code mvn test} не входит; запуск - {@code mvn test -Pscale}.
+ * <p>
+ * Параметры (системные свойства):
+ * <ul>
+ *     <li>{@code goatrider.scale.riders} - размеры через запятую (10,100,1000,10000)</li>
+ *     <li>{@code goatrider.scale.ticks} - тиков езды в замере (200)</li>
+ *     <li>{@code goatrider.budget.tick-micros-per-rider} - бюджет тика езды на наездника, мкс (25)</li>
+ *     <li>{@code goatrider.budget.heap-bytes-per-rider} - бюджет роста кучи на наездника, байт (16384)</li>
+ *     <li>{@code goatrider.budget.heap-bytes-fixed} - рост кучи, не зависящий от числа наездников, байт (4 МБ)</li>
+ * </ul>
+ */
+@Tag("scale")
+class RidingScaleTest {
+
+    // Прогрев до компиляции JIT: не меньше 40 тиков и 20000 тиков управления в сумме
+    private static final int WARMUP_TICKS = 40;
+    private static final int WARMUP_CONTROL_TICKS = 20000;
+    private static final double SPACING = 4.0;
+
+    private TestServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stopPlugin();
+        }
+    }
+
+    static IntStream riders() {
+        return Arrays.stream(System.getProperty("goatrider.scale.riders", "10,100,1000,10000").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt);
+    }
+
+    @ParameterizedTest(name = "{0} наездников")
+    @MethodSource("riders")
+    void ridersWithinBudget(int count) {
+        int ticks = Integer.getInteger("goatrider.scale.ticks", 200);
+        double tickBudget = Double.parseDouble(System.getProperty("goatrider.budget.tick-micros-per-rider", "25"));
+        long heapBudget = Long.getLong("goatrider.budget.heap-bytes-per-rider", 16384L);
+        long heapFixed = Long.getLong("goatrider.budget.heap-bytes-fixed", 4L << 20);
+
+        server = TestServer.start(Map.of());
+        RidingManager riding = server.plugin().getRidingManager();
+        PerformanceStats stats = server.plugin().getStats();
+
+        // Козлы и игроки по сетке; их память в рост кучи не входит
+        int side = (int) Math.ceil(Math.sqrt(count));
+        List<TestGoat> goats = new ArrayList<>(count);
+        List<TestPlayer> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double x = (i % side) * SPACING;
+            double z = (i / side) * SPACING;
+            goats.add(server.spawnGoat(x + 0.5, z + 0.5));
+            players.add(server.join("Rider" + i, x + 1.5, z + 0.5));
+        }
+        long heapBefore = usedHeap();
+
+        Report report = new Report(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            server.interact(players.get(i), goats.get(i));
+        }
+        server.tick();
+        report.step("посадка", System.nanoTime() - start);
+        assertEquals(count, riding.getRiderCount());
+
+        // Все едут вперёд, поворачивая на градус за тик - козлы кружат на месте
+        for (TestPlayer player : players) {
+            player.keys(true, false, false);
+        }
+        ride(players, Math.max(WARMUP_TICKS, WARMUP_CONTROL_TICKS / count));
+        stats.reset();
+        start = System.nanoTime();
+        ride(players, ticks);
+        long rideNanos = System.nanoTime() - start;
+        report.step("тик езды", rideNanos / ticks);
+        long heapGrowth = usedHeap() - heapBefore;
+        report.heap(heapGrowth);
+        report.phases(stats);
+
+        start = System.nanoTime();
+        server.reloadPlugin(Map.of("suspend-ai", true));
+        server.tick();
+        report.step("reload + тик", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (TestPlayer player : players) {
+            player.leaveVehicle();
+        }
+        server.tick();
+        report.step("высадка", System.nanoTime() - start);
+        report.print();
+
+        // После высадки не остаётся ни сессий, ни задач управления, ни занятых мест
+        assertEquals(0, riding.getRiderCount());
+        assertEquals(0, server.plugin().getTaskRegistry().getLiveCounts().get(TaskRegistry.Kind.CONTROL));
+        assertTrue(riding.getCapacity().getWorldCounts().isEmpty());
+
+        double tickMicros = rideNanos / 1000.0 / ticks / count;
+        assertTrue(tickMicros <= tickBudget, String.format(
+                "тик езды %.2f мкс на наездника, бюджет %.2f", tickMicros, tickBudget));
+        // Кэши, классы и таблицы плагина растут один раз - они идут в постоянную часть бюджета
+        assertTrue(heapGrowth <= heapFixed + heapBudget * count, String.format(
+                "рост кучи %d байт на %d наездников, бюджет %d + %d на наездника",
+                heapGrowth, count, heapFixed, heapBudget));
+    }
+
+    private void ride(List<TestPlayer> players, int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            float yaw = (float) (server.scheduler().currentTick() % 360);
+            for (int i = 0; i < players.size(); i++) {
+                players.get(i).look(yaw);
+            }
+            server.tick();
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Таблица замеров одного размера.
+     */
+    private static final class Report {
+
+        private final int riders;
+        private final StringBuilder text = new StringBuilder();
+
+        Report(int riders) {
+            this.riders = riders;
+            text.append(String.format("%n=== %d наездников ===%n", riders));
+        }
+
+        void step(String name, long nanos) {
+            text.append(String.format("%-14s %10.1f мкс всего  %8.3f мкс на наездника%n",
+                    name, nanos / 1000.0, nanos / 1000.0 / riders));
+        }
+
+        void heap(long bytes) {
+            text.append(String.format("%-14s %10d байт      %8d байт на наездника%n", "рост кучи", bytes, bytes / riders));
+        }
+
+        void phases(PerformanceStats stats) {
+            for (TickPhase phase : TickPhase.values()) {
+                PhaseHistogram histogram = stats.getHistogram(phase);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                text.append(String.format("  фаза %-8s  среднее %6d нс  p99 %6d нс  max %8d нс%n", phase,
+                        histogram.getSum() / histogram.getCount(), histogram.getPercentile(99.0), histogram.getMax()));
+            }
+        }
+
+        void print() {
+            System.out.print(text);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package su.brim.goatrider.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import su.brim.goatrider.core.RidingRules;
+import su.brim.goatrider.riderstats.RiderStatsStore;
+import su.brim.goatrider.testserver.TestPlayer;
+import su.brim.goatrider.testserver.TestServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Память одной сессии езды по JOL: граф объектов сессии без общих с другими сессиями
+ * (снимок настроек) и без UUID игрока и козла, которые живут и без неё.
+ * Печатает раскладку полей RiderSession, размер свежей сессии и сессии после тарана,
+ * а также размер счётчиков rider-stats, которые есть только при включённой статистике.
+ * <p>
+ * Бюджет - {@code goatrider.budget.session-bytes} байт на сессию после тарана (4096).
+ */
+class RiderSessionFootprintTest {
+
+    // Целей тарана за оборот колеса кулдаунов: столько записей сессия держит в худшем обычном случае
+    private static final int RAM_TARGETS = 4;
+
+    private TestServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stopPlugin();
+        }
+    }
+
+    @Test
+    void sessionFitsBudget() {
+        server = TestServer.start(Map.of("rider-stats.enabled", true));
+        Settings settings = server.plugin().getConfigManager().getSettings();
+        UUID playerId = UUID.randomUUID();
+        UUID goatId = UUID.randomUUID();
+
+        RiderSession session = new RiderSession(playerId, goatId, 1, settings);
+        long fresh = ownSize(session, settings, playerId, goatId);
+
+        // Сессия после езды: спринт, прыжки и кулдауны тарана по нескольким целям
+        UUID[] targets = new UUID[RAM_TARGETS];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = UUID.randomUUID();
+        }
+        for (long tick = 1; tick <= 40; tick++) {
+            session.advanceTick(tick);
+            RidingRules.updateSprint(session, settings.ride(), true, true);
+            RidingRules.computeMotion(session, settings.ride(), 0.0F, 0, session.isSprinting());
+            RidingRules.tryJump(session, settings.ride(), tick % 2 == 0);
+            RidingRules.resetJumps(session, settings.ride());
+            RidingRules.canRamDamage(session, targets[(int) (tick % RAM_TARGETS)]);
+        }
+        long ridden = ownSize(session, settings, playerId, goatId, targets);
+
+        TestPlayer player = server.join("Rider", 0.5, 0.5);
+        RiderStatsStore.Counters counters = server.plugin().getRiderStats().counters(player.handle());
+        long countersSize = GraphLayout.parseInstance(counters)
+                .subtract(GraphLayout.parseInstance(player.getUniqueId(), player.getName()))
+                .totalSize();
+
+        System.out.println(ClassLayout.parseClass(RiderSession.class).toPrintable());
+        System.out.printf("RiderSession: свежая %d байт, после езды и тарана %d байт, счётчики rider-stats +%d байт%n",
+                fresh, ridden, countersSize);
+
+        long budget = Long.getLong("goatrider.budget.session-bytes", 4096L);
+        assertTrue(ridden <= budget, String.format("сессия занимает %d байт, бюджет %d", ridden, budget));
+    }
+
+    /**
+     * Размер графа сессии без объектов, которые принадлежат не ей: настроек, UUID игрока, козла и целей.
+     */
+    private static long ownSize(RiderSession session, Settings settings, UUID playerId, UUID goatId,
+                                UUID... targets) {
+        List<Object> shared = new ArrayList<>(List.of(settings, playerId, goatId));
+        shared.addAll(List.of(targets));
+        return GraphLayout.parseInstance(session)
+                .subtract(GraphLayout.parseInstance(shared.toArray()))
+                .totalSize();
+    }
+}
@@ -0,0 +1,106 @@
+package su.brim.goatrider.testserver;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.bytebuddy.matcher.ElementMatchers.isAbstract;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+/**
+ * Реализации интерфейсов Bukkit поверх простых объектов состояния.
+ * ByteBuddy генерирует класс, который передаёт метод интерфейса публичному методу состояния с тем же именем
+ * и теми же параметрами, а остальные абстрактные методы возвращают значения по умолчанию.
+ * Вызов - прямой invokevirtual без аллокаций (в отличие от моков Mockito), поэтому через такие сущности
+ * можно мерить аллокации самого плагина.
+ */
+public final class Fakes {
+
+    private static final String TARGET_FIELD = "target";
+
+    // Сгенерированный класс на пару (интерфейс, класс состояния)
+    private static final Map<List<Class<?>>, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
+    private Fakes() {
+    }
+
+    /**
+     * Объект, реализующий интерфейс через методы состояния.
+     * Публичный метод состояния с именем метода интерфейса, но другой сигнатурой - ошибка:
+     * такая заглушка молча вернула бы значение по умолчанию.
+     */
+    public static <T> T of(Class<T> type, Object target) {
+        Class<?> fake = CLASSES.computeIfAbsent(List.of(type, target.getClass()),
+                key -> generate(type, target.getClass()));
+        try {
+            Object instance = fake.getConstructor().newInstance();
+            fake.getField(TARGET_FIELD).set(instance, target);
+            return type.cast(instance);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось создать " + type.getName(), e);
+        }
+    }
+
+    private static Class<?> generate(Class<?> type, Class<?> targetType) {
+        DynamicType.Builder<Object> builder = new ByteBuddy()
+                .subclass(Object.class)
+                .implement(type)
+                .defineField(TARGET_FIELD, targetType, Visibility.PUBLIC)
+                .method(isAbstract()).intercept(StubMethod.INSTANCE);
+
+        Set<String> names = new HashSet<>();
+        for (Method method : type.getMethods()) {
+            names.add(method.getName());
+        }
+        for (Method method : targetType.getMethods()) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())
+                    || !names.contains(method.getName())) {
+                continue;
+            }
+            if (!implementsApi(type, method)) {
+                throw new IllegalStateException(targetType.getSimpleName() + "." + method.getName()
+                        + Arrays.toString(method.getParameterTypes()) + " не совпадает ни с одним методом "
+                        + type.getName());
+            }
+            // Последнее подходящее правило ByteBuddy побеждает, поэтому делегирование перекрывает заглушку
+            builder = builder.method(named(method.getName()).and(takesArguments(method.getParameterTypes())))
+                    .intercept(MethodCall.invoke(method).onField(TARGET_FIELD).withAllArguments()
+                            .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC));
+        }
+        return builder.make()
+                .load(targetType.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+    }
+
+    private static boolean implementsApi(Class<?> type, Method method) {
+        for (Method api : type.getMethods()) {
+            if (api.getName().equals(method.getName())
+                    && Arrays.equals(api.getParameterTypes(), method.getParameterTypes())
+                    && returnCompatible(api.getReturnType(), method.getReturnType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean returnCompatible(Class<?> api, Class<?> target) {
+        if (api.isPrimitive() || target.isPrimitive()) {
+            return api == target;
+        }
+        return api.isAssignableFrom(target);
+    }
+}
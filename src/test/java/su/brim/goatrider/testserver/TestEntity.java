@@ -0,0 +1,266 @@
+package su.brim.goatrider.testserver;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Состояние сущности тестового сервера. Публичные методы с именами методов {@link Entity}
+ * реализуют его через {@link Fakes}; чтение позиции и скорости не аллоцирует.
+ * Физика упрощённая: движение по скорости, трение и гравитация над ровной землёй мира.
+ */
+public abstract class TestEntity {
+
+    // Трение по горизонтали на земле (0.6 * 0.91) и в воздухе, гравитация и сопротивление по вертикали
+    private static final double GROUND_DRAG = 0.546;
+    private static final double AIR_DRAG = 0.91;
+    private static final double GRAVITY = 0.08;
+    private static final double VERTICAL_DRAG = 0.98;
+
+    final TestServer server;
+    final TestWorld world;
+    private final UUID uniqueId = UUID.randomUUID();
+    private final EntityScheduler scheduler;
+    private final PersistentDataContainer data = Fakes.of(PersistentDataContainer.class, new TestPersistentData());
+    private final double halfWidth;
+    private final double height;
+
+    double x;
+    double y;
+    double z;
+    float yaw;
+    float pitch;
+    private double velocityX;
+    private double velocityY;
+    private double velocityZ;
+    private boolean onGround = true;
+    private boolean valid = true;
+    private int ticksLived;
+
+    // Vector, который отдаёт getVelocity(): сервер создаёт новый, здесь он переиспользуется,
+    // чтобы замер аллокаций видел только аллокации плагина
+    private final Vector velocityView = new Vector();
+
+    TestEntity vehicle;
+    final List<Entity> passengers = new ArrayList<>();
+
+    TestEntity(TestServer server, TestWorld world, double x, double z, double halfWidth, double height) {
+        this.server = server;
+        this.world = world;
+        this.x = x;
+        this.y = world.groundY();
+        this.z = z;
+        this.halfWidth = halfWidth;
+        this.height = height;
+        this.scheduler = server.scheduler().forEntity(this);
+    }
+
+    /**
+     * Объект Bukkit, который видит плагин.
+     */
+    public abstract Entity handle();
+
+    public abstract EntityType getType();
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public World getWorld() {
+        return world.handle();
+    }
+
+    public Location getLocation() {
+        return new Location(world.handle(), x, y, z, yaw, pitch);
+    }
+
+    public Location getLocation(Location location) {
+        if (location == null) {
+            return null;
+        }
+        // setWorld создаёт WeakReference - мир ставится, только если он другой
+        if (location.getWorld() != world.handle()) {
+            location.setWorld(world.handle());
+        }
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        location.setYaw(yaw);
+        location.setPitch(pitch);
+        return location;
+    }
+
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(x - halfWidth, y, z - halfWidth, x + halfWidth, y + height, z + halfWidth);
+    }
+
+    public Vector getVelocity() {
+        velocityView.setX(velocityX);
+        velocityView.setY(velocityY);
+        velocityView.setZ(velocityZ);
+        return velocityView;
+    }
+
+    public void setVelocity(Vector velocity) {
+        velocityX = velocity.getX();
+        velocityY = velocity.getY();
+        velocityZ = velocity.getZ();
+        if (velocityY > 0.0) {
+            onGround = false;
+        }
+    }
+
+    public void setRotation(float yaw, float pitch) {
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean isDead() {
+        return !valid;
+    }
+
+    public void remove() {
+        if (vehicle != null) {
+            leaveVehicle();
+        }
+        for (Entity passenger : new ArrayList<>(passengers)) {
+            removePassenger(passenger);
+        }
+        valid = false;
+    }
+
+    public int getTicksLived() {
+        return ticksLived;
+    }
+
+    public EntityScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public PersistentDataContainer getPersistentDataContainer() {
+        return data;
+    }
+
+    public Set<Player> getTrackedBy() {
+        return Set.of();
+    }
+
+    public List<Entity> getPassengers() {
+        return new ArrayList<>(passengers);
+    }
+
+    public Entity getVehicle() {
+        return vehicle != null ? vehicle.handle() : null;
+    }
+
+    public boolean isInsideVehicle() {
+        return vehicle != null;
+    }
+
+    /**
+     * Сажает пассажира, как сервер: с событием EntityMountEvent, которое может отменить любой слушатель.
+     */
+    public boolean addPassenger(Entity passenger) {
+        TestEntity rider = server.entity(passenger);
+        if (!valid || rider == null || rider == this || rider.vehicle != null) {
+            return false;
+        }
+        if (server.events().mount(passenger, handle())) {
+            return false;
+        }
+        rider.vehicle = this;
+        passengers.add(passenger);
+        return true;
+    }
+
+    /**
+     * Высаживает пассажира с событием EntityDismountEvent.
+     */
+    public boolean removePassenger(Entity passenger) {
+        TestEntity rider = server.entity(passenger);
+        if (rider == null || rider.vehicle != this) {
+            return false;
+        }
+        passengers.remove(passenger);
+        rider.vehicle = null;
+        server.events().dismount(passenger, handle());
+        return true;
+    }
+
+    public boolean leaveVehicle() {
+        return vehicle != null && vehicle.removePassenger(handle());
+    }
+
+    /**
+     * Тик сущности: позиция по скорости, затем трение. Пассажир стоит на своём транспорте.
+     */
+    void tickPhysics() {
+        ticksLived++;
+        if (vehicle != null) {
+            x = vehicle.x;
+            y = vehicle.y + vehicle.height;
+            z = vehicle.z;
+            return;
+        }
+        x += velocityX;
+        z += velocityZ;
+        if (!onGround || velocityY > 0.0) {
+            y += velocityY;
+            velocityY = (velocityY - GRAVITY) * VERTICAL_DRAG;
+            if (y <= world.groundY()) {
+                y = world.groundY();
+                velocityY = 0.0;
+                onGround = true;
+            } else {
+                onGround = false;
+            }
+        }
+        double drag = onGround ? GROUND_DRAG : AIR_DRAG;
+        velocityX *= drag;
+        velocityZ *= drag;
+    }
+
+    /**
+     * Переставляет сущность без событий (для расстановки в тестах).
+     */
+    public void place(double x, double z, float yaw) {
+        this.x = x;
+        this.z = z;
+        this.yaw = yaw;
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double z() {
+        return z;
+    }
+
+    public double speed() {
+        return Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+    }
+}
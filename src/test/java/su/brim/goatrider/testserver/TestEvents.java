@@ -0,0 +1,161 @@
+package su.brim.goatrider.testserver;
+
+import org.bukkit.Input;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDismountEvent;
+import org.bukkit.event.entity.EntityMountEvent;
+import org.bukkit.event.player.PlayerInputEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Регистрация слушателей и вызов событий, как в PluginManager сервера.
+ * Слушатели попадают в настоящие {@link HandlerList} классов событий, поэтому
+ * {@code HandlerList.unregisterAll} работает как на сервере. События - моки Mockito с заполненными геттерами.
+ */
+public final class TestEvents {
+
+    private final PluginManager handle = Fakes.of(PluginManager.class, this);
+
+    PluginManager handle() {
+        return handle;
+    }
+
+    public void registerEvents(Listener listener, Plugin plugin) {
+        for (Class<?> type = listener.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                EventHandler handler = method.getAnnotation(EventHandler.class);
+                if (handler == null || method.getParameterCount() != 1
+                        || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                    continue;
+                }
+                Class<? extends Event> eventType = method.getParameterTypes()[0].asSubclass(Event.class);
+                method.setAccessible(true);
+                EventExecutor executor = (target, event) -> {
+                    if (!eventType.isInstance(event)) {
+                        return;
+                    }
+                    try {
+                        method.invoke(target, event);
+                    } catch (InvocationTargetException e) {
+                        throw new EventException(e.getCause());
+                    } catch (IllegalAccessException e) {
+                        throw new EventException(e);
+                    }
+                };
+                handlerList(eventType).register(new RegisteredListener(listener, executor, handler.priority(),
+                        plugin, handler.ignoreCancelled()));
+            }
+        }
+    }
+
+    public void callEvent(Event event) {
+        for (RegisteredListener listener : handlerList(event.getClass()).getRegisteredListeners()) {
+            try {
+                listener.callEvent(event);
+            } catch (EventException e) {
+                // Сервер пишет исключение слушателя в лог, тест должен упасть
+                throw new AssertionError("Слушатель упал на " + event.getClass().getSimpleName(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Клик по козлу основной рукой.
+     * @return true, если событие отменено
+     */
+    public boolean interact(Player player, Entity clicked) {
+        PlayerInteractEntityEvent event = cancellable(mock(PlayerInteractEntityEvent.class, withSettings().stubOnly()));
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getRightClicked()).thenReturn(clicked);
+        when(event.getHand()).thenReturn(EquipmentSlot.HAND);
+        callEvent(event);
+        return event.isCancelled();
+    }
+
+    /**
+     * @return true, если посадку отменили
+     */
+    boolean mount(Entity entity, Entity mount) {
+        EntityMountEvent event = cancellable(mock(EntityMountEvent.class, withSettings().stubOnly()));
+        when(event.getEntity()).thenReturn(entity);
+        when(event.getMount()).thenReturn(mount);
+        callEvent(event);
+        return event.isCancelled();
+    }
+
+    void dismount(Entity entity, Entity dismounted) {
+        EntityDismountEvent event = mock(EntityDismountEvent.class, withSettings().stubOnly());
+        when(event.getEntity()).thenReturn(entity);
+        when(event.getDismounted()).thenReturn(dismounted);
+        callEvent(event);
+    }
+
+    void input(Player player, Input input) {
+        PlayerInputEvent event = mock(PlayerInputEvent.class, withSettings().stubOnly());
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getInput()).thenReturn(input);
+        callEvent(event);
+    }
+
+    void quit(Player player) {
+        PlayerQuitEvent event = mock(PlayerQuitEvent.class, withSettings().stubOnly());
+        when(event.getPlayer()).thenReturn(player);
+        callEvent(event);
+    }
+
+    /**
+     * Отмена события хранится в моке, как в настоящем событии.
+     */
+    private static <E extends Cancellable> E cancellable(E event) {
+        boolean[] cancelled = new boolean[1];
+        doAnswer(invocation -> {
+            cancelled[0] = invocation.getArgument(0);
+            return null;
+        }).when(event).setCancelled(anyBoolean());
+        doAnswer(invocation -> cancelled[0]).when(event).isCancelled();
+        return event;
+    }
+
+    /**
+     * Статический список обработчиков класса события или ближайшего предка, который его объявляет.
+     */
+    private static HandlerList handlerList(Class<?> eventType) {
+        for (Class<?> type = eventType; type != null && Event.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            try {
+                Method method = type.getDeclaredMethod("getHandlerList");
+                if (Modifier.isStatic(method.getModifiers())) {
+                    method.setAccessible(true);
+                    return (HandlerList) method.invoke(null);
+                }
+            } catch (NoSuchMethodException e) {
+                // Список объявлен выше по иерархии
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalStateException("Нет getHandlerList у " + eventType.getName());
+    }
+}
@@ -0,0 +1,35 @@
+package su.brim.goatrider.testserver;
+
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Goat;
+
+/**
+ * Козёл тестового сервера.
+ */
+public final class TestGoat extends TestEntity {
+
+    private final Goat handle = Fakes.of(Goat.class, this);
+    private boolean aware = true;
+
+    TestGoat(TestServer server, TestWorld world, double x, double z) {
+        super(server, world, x, z, 0.45, 1.3);
+    }
+
+    @Override
+    public Goat handle() {
+        return handle;
+    }
+
+    @Override
+    public EntityType getType() {
+        return EntityType.GOAT;
+    }
+
+    public boolean isAware() {
+        return aware;
+    }
+
+    public void setAware(boolean aware) {
+        this.aware = aware;
+    }
+}
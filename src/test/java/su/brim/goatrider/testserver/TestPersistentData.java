@@ -0,0 +1,45 @@
+package su.brim.goatrider.testserver;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние {@link org.bukkit.persistence.PersistentDataContainer}: значения по ключу без сериализации.
+ */
+public final class TestPersistentData {
+
+    private final Map<NamespacedKey, Object> values = new HashMap<>();
+
+    public <P, C> void set(NamespacedKey key, PersistentDataType<P, C> type, C value) {
+        values.put(key, value);
+    }
+
+    public <P, C> boolean has(NamespacedKey key, PersistentDataType<P, C> type) {
+        return type.getComplexType().isInstance(values.get(key));
+    }
+
+    public boolean has(NamespacedKey key) {
+        return values.containsKey(key);
+    }
+
+    public <P, C> C get(NamespacedKey key, PersistentDataType<P, C> type) {
+        Object value = values.get(key);
+        return type.getComplexType().isInstance(value) ? type.getComplexType().cast(value) : null;
+    }
+
+    public void remove(NamespacedKey key) {
+        values.remove(key);
+    }
+
+    public Set<NamespacedKey> getKeys() {
+        return Set.copyOf(values.keySet());
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
@@ -0,0 +1,133 @@
+package su.brim.goatrider.testserver;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Input;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Игрок тестового сервера: ввод, взгляд и полученные сообщения.
+ */
+public final class TestPlayer extends TestEntity {
+
+    private final Player handle = Fakes.of(Player.class, this);
+    private final String name;
+    private final List<Component> messages = new ArrayList<>();
+    private Keys input = Keys.NONE;
+    private boolean online = true;
+
+    TestPlayer(TestServer server, TestWorld world, String name, double x, double z) {
+        super(server, world, x, z, 0.3, 1.8);
+        this.name = name;
+    }
+
+    @Override
+    public Player handle() {
+        return handle;
+    }
+
+    @Override
+    public EntityType getType() {
+        return EntityType.PLAYER;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isSneaking() {
+        return input.sneak;
+    }
+
+    public boolean hasPermission(String permission) {
+        return true;
+    }
+
+    public Input getCurrentInput() {
+        return input.handle;
+    }
+
+    public void sendMessage(Component message) {
+        messages.add(message);
+    }
+
+    /**
+     * Нажимает клавиши: сервер шлёт PlayerInputEvent.
+     */
+    public void keys(boolean forward, boolean jump, boolean sprint) {
+        input = new Keys(forward, jump, sprint, false);
+        server.events().input(handle, input.handle);
+    }
+
+    /**
+     * Поворачивает взгляд игрока.
+     */
+    public void look(float yaw) {
+        this.yaw = yaw;
+    }
+
+    public List<Component> messages() {
+        return messages;
+    }
+
+    void disconnect() {
+        online = false;
+    }
+
+    /**
+     * Состояние {@link Input}.
+     */
+    public static final class Keys {
+
+        static final Keys NONE = new Keys(false, false, false, false);
+
+        private final boolean forward;
+        private final boolean jump;
+        private final boolean sprint;
+        private final boolean sneak;
+        private final Input handle;
+
+        Keys(boolean forward, boolean jump, boolean sprint, boolean sneak) {
+            this.forward = forward;
+            this.jump = jump;
+            this.sprint = sprint;
+            this.sneak = sneak;
+            this.handle = Fakes.of(Input.class, this);
+        }
+
+        public boolean isForward() {
+            return forward;
+        }
+
+        public boolean isBackward() {
+            return false;
+        }
+
+        public boolean isLeft() {
+            return false;
+        }
+
+        public boolean isRight() {
+            return false;
+        }
+
+        public boolean isJump() {
+            return jump;
+        }
+
+        public boolean isSneak() {
+            return sneak;
+        }
+
+        public boolean isSprint() {
+            return sprint;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package su.brim.goatrider.testserver;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Планировщики Folia на детерминированном цикле тиков в одном потоке.
+ * Задачи сущностей, глобального региона и асинхронные выполняются в {@link #tick()};
+ * задержки асинхронных задач переводятся в тики (50 мс). Цикл не аллоцирует, пока задачи не меняются.
+ */
+public final class TestScheduler {
+
+    private static final long MILLIS_PER_TICK = 50L;
+
+    // Живые задачи и задачи, поставленные во время тика (попадают в цикл со следующего тика)
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<Task> added = new ArrayList<>();
+
+    private final GlobalRegionScheduler global = Fakes.of(GlobalRegionScheduler.class, new Global());
+    private final AsyncScheduler async = Fakes.of(AsyncScheduler.class, new Async());
+
+    private long currentTick;
+
+    public GlobalRegionScheduler global() {
+        return global;
+    }
+
+    public AsyncScheduler async() {
+        return async;
+    }
+
+    EntityScheduler forEntity(TestEntity entity) {
+        return Fakes.of(EntityScheduler.class, new ForEntity(entity));
+    }
+
+    public long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Выполняет задачи, срок которых наступил. Задачи удалённой сущности снимаются через retired-колбэк.
+     */
+    public void tick() {
+        currentTick++;
+        for (int i = 0; i < added.size(); i++) {
+            tasks.add(added.get(i));
+        }
+        added.clear();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task.state != ScheduledTask.ExecutionState.IDLE || task.nextRun > currentTick) {
+                continue;
+            }
+            if (task.entity != null && !task.entity.isValid()) {
+                task.state = ScheduledTask.ExecutionState.CANCELLED;
+                if (task.retired != null) {
+                    task.retired.run();
+                }
+                continue;
+            }
+            task.state = ScheduledTask.ExecutionState.RUNNING;
+            task.body.accept(task.handle);
+            if (task.state == ScheduledTask.ExecutionState.CANCELLED_RUNNING) {
+                task.state = ScheduledTask.ExecutionState.CANCELLED;
+            } else if (task.period > 0) {
+                task.state = ScheduledTask.ExecutionState.IDLE;
+                task.nextRun = currentTick + task.period;
+            } else {
+                task.state = ScheduledTask.ExecutionState.FINISHED;
+            }
+        }
+
+        // Завершённые задачи убираются без аллокаций
+        int live = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task.state == ScheduledTask.ExecutionState.IDLE) {
+                tasks.set(live++, task);
+            }
+        }
+        for (int i = tasks.size() - 1; i >= live; i--) {
+            tasks.remove(i);
+        }
+    }
+
+    /**
+     * Число задач, которые ещё будут выполняться.
+     */
+    public int liveTasks() {
+        int live = 0;
+        for (Task task : tasks) {
+            live += task.state == ScheduledTask.ExecutionState.IDLE ? 1 : 0;
+        }
+        for (Task task : added) {
+            live += task.state == ScheduledTask.ExecutionState.IDLE ? 1 : 0;
+        }
+        return live;
+    }
+
+    /**
+     * Отменяет все задачи плагина, как сервер при его выключении.
+     */
+    public void cancelAll(Plugin plugin) {
+        for (Task task : tasks) {
+            if (task.plugin == plugin) {
+                task.cancel();
+            }
+        }
+        for (Task task : added) {
+            if (task.plugin == plugin) {
+                task.cancel();
+            }
+        }
+    }
+
+    private ScheduledTask schedule(Plugin plugin, TestEntity entity, Consumer<ScheduledTask> body, Runnable retired,
+                                   long delay, long period) {
+        Task task = new Task(plugin, entity, body, retired, currentTick + Math.max(1L, delay), period);
+        added.add(task);
+        return task.handle;
+    }
+
+    private static long toTicks(long time, TimeUnit unit) {
+        return unit.toMillis(time) / MILLIS_PER_TICK;
+    }
+
+    /**
+     * Состояние задачи ({@link ScheduledTask}).
+     */
+    public static final class Task {
+
+        private final Plugin plugin;
+        private final TestEntity entity;
+        private final Consumer<ScheduledTask> body;
+        private final Runnable retired;
+        private final long period;
+        private final ScheduledTask handle;
+
+        private long nextRun;
+        private ScheduledTask.ExecutionState state = ScheduledTask.ExecutionState.IDLE;
+
+        Task(Plugin plugin, TestEntity entity, Consumer<ScheduledTask> body, Runnable retired, long nextRun,
+             long period) {
+            this.plugin = plugin;
+            this.entity = entity;
+            this.body = body;
+            this.retired = retired;
+            this.nextRun = nextRun;
+            this.period = period;
+            this.handle = Fakes.of(ScheduledTask.class, this);
+        }
+
+        public Plugin getOwningPlugin() {
+            return plugin;
+        }
+
+        public boolean isRepeatingTask() {
+            return period > 0;
+        }
+
+        public ScheduledTask.ExecutionState getExecutionState() {
+            return state;
+        }
+
+        public ScheduledTask.CancelledState cancel() {
+            switch (state) {
+                case IDLE -> {
+                    state = ScheduledTask.ExecutionState.CANCELLED;
+                    return ScheduledTask.CancelledState.CANCELLED_BY_CALLER;
+                }
+                case RUNNING -> {
+                    state = ScheduledTask.ExecutionState.CANCELLED_RUNNING;
+                    return period > 0 ? ScheduledTask.CancelledState.NEXT_RUNS_CANCELLED
+                            : ScheduledTask.CancelledState.RUNNING;
+                }
+                case FINISHED -> {
+                    return ScheduledTask.CancelledState.ALREADY_EXECUTED;
+                }
+                default -> {
+                    return ScheduledTask.CancelledState.CANCELLED_ALREADY;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link EntityScheduler} одной сущности: пока сущность удалена, задачи не ставятся.
+     */
+    public final class ForEntity {
+
+        private final TestEntity entity;
+
+        ForEntity(TestEntity entity) {
+            this.entity = entity;
+        }
+
+        public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired) {
+            return runDelayed(plugin, task, retired, 1L);
+        }
+
+        public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired, long delayTicks) {
+            return entity.isValid() ? schedule(plugin, entity, task, retired, delayTicks, 0L) : null;
+        }
+
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, Runnable retired,
+                                            long initialDelayTicks, long periodTicks) {
+            return entity.isValid()
+                    ? schedule(plugin, entity, task, retired, initialDelayTicks, Math.max(1L, periodTicks)) : null;
+        }
+
+        public boolean execute(Plugin plugin, Runnable run, Runnable retired, long delay) {
+            return runDelayed(plugin, scheduledTask -> run.run(), retired, delay) != null;
+        }
+    }
+
+    /**
+     * {@link GlobalRegionScheduler}.
+     */
+    public final class Global {
+
+        public void execute(Plugin plugin, Runnable run) {
+            run(plugin, scheduledTask -> run.run());
+        }
+
+        public ScheduledTask run(Plugin plugin, Consumer<ScheduledTask> task) {
+            return schedule(plugin, null, task, null, 1L, 0L);
+        }
+
+        public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delayTicks) {
+            return schedule(plugin, null, task, null, delayTicks, 0L);
+        }
+
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelayTicks,
+                                            long periodTicks) {
+            return schedule(plugin, null, task, null, initialDelayTicks, Math.max(1L, periodTicks));
+        }
+
+        public void cancelTasks(Plugin plugin) {
+            cancelAll(plugin);
+        }
+    }
+
+    /**
+     * {@link AsyncScheduler}: задачи выполняются в потоке цикла, время переводится в тики.
+     */
+    public final class Async {
+
+        public ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task) {
+            return schedule(plugin, null, task, null, 1L, 0L);
+        }
+
+        public ScheduledTask runDelayed(Plugin plugin, Consumer<ScheduledTask> task, long delay, TimeUnit unit) {
+            return schedule(plugin, null, task, null, toTicks(delay, unit), 0L);
+        }
+
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelay,
+                                            long period, TimeUnit unit) {
+            return schedule(plugin, null, task, null, toTicks(initialDelay, unit),
+                    Math.max(1L, toTicks(period, unit)));
+        }
+
+        public void cancelTasks(Plugin plugin) {
+            cancelAll(plugin);
+        }
+    }
+}
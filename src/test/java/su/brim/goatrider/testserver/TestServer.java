@@ -0,0 +1,322 @@
+package su.brim.goatrider.testserver;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.objenesis.ObjenesisStd;
+import su.brim.goatrider.GoatRiderPlugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Сервер Folia для тестов плагина в одном потоке: один регион, мир с ровной землёй,
+ * детерминированный цикл тиков ({@link TestScheduler}). Плагин загружается целиком - onEnable с config.yml
+ * из ресурсов, слушатели, команды и задачи, - и работает через тот же API, что на сервере.
+ * Фейки сущностей не аллоцируют в горячем пути, поэтому замеры времени и аллокаций относятся к плагину.
+ */
+public final class TestServer {
+
+    private static final int GROUND_Y = 64;
+
+    private final Server handle = Fakes.of(Server.class, new Api());
+    private final TestScheduler scheduler = new TestScheduler();
+    private final TestEvents events = new TestEvents();
+    private final TestWorld world = new TestWorld(this, "world", GROUND_Y);
+    private final Logger logger = Logger.getLogger("GoatRider");
+
+    // Все сущности и их состояния по объекту Bukkit
+    private final List<TestEntity> entities = new ArrayList<>();
+    private final Map<Entity, TestEntity> byHandle = new IdentityHashMap<>();
+    private final Map<UUID, TestPlayer> players = new HashMap<>();
+
+    // TPS региона для разгрузки; массив переиспользуется
+    private final double[] regionTps = {20.0, 20.0, 20.0, 20.0, 20.0};
+
+    private final Path dataFolder;
+    private final Map<String, Object> config = new LinkedHashMap<>();
+    private GoatRiderPlugin plugin;
+    private PluginCommand command;
+
+    private TestServer() {
+        try {
+            dataFolder = Files.createTempDirectory("goatrider-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Модификаторы атрибутов требуют реестров настоящего сервера - защита от падения через событие урона
+        config.put("fall-protection-mode", "event");
+    }
+
+    /**
+     * Запускает сервер и включает плагин.
+     * @param overrides значения config.yml поверх ресурса плагина (путь через точку)
+     */
+    public static TestServer start(Map<String, Object> overrides) {
+        TestServer server = new TestServer();
+        server.config.putAll(overrides);
+        server.enable();
+        return server;
+    }
+
+    private void enable() {
+        writeConfig();
+        setBukkitServer(handle);
+        plugin = new ObjenesisStd().newInstance(GoatRiderPlugin.class);
+        PluginDescriptionFile description = new PluginDescriptionFile("GoatRider", "test",
+                GoatRiderPlugin.class.getName());
+        setField(plugin, "server", handle);
+        setField(plugin, "description", description);
+        // PluginMeta - отдельное поле в Paper, из него берётся имя плагина
+        setFieldIfPresent(plugin, "pluginMeta", description);
+        setField(plugin, "dataFolder", dataFolder.toFile());
+        setField(plugin, "configFile", dataFolder.resolve("config.yml").toFile());
+        setField(plugin, "classLoader", GoatRiderPlugin.class.getClassLoader());
+        setField(plugin, "logger", logger);
+        command = mock(PluginCommand.class, withSettings().stubOnly());
+        when(command.getPlugin()).thenReturn(plugin);
+        plugin.onEnable();
+    }
+
+    /**
+     * Меняет config.yml и выполняет /gr reload.
+     */
+    public void reloadPlugin(Map<String, Object> overrides) {
+        config.putAll(overrides);
+        writeConfig();
+        plugin.reload();
+    }
+
+    /**
+     * Выключает плагин, как сервер при остановке: onDisable, отмена задач, снятие слушателей.
+     */
+    public void stopPlugin() {
+        try {
+            plugin.onDisable();
+            scheduler.cancelAll(plugin);
+            HandlerList.unregisterAll(plugin);
+        } finally {
+            setBukkitServer(null);
+            try (Stream<Path> files = Files.walk(dataFolder)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                // Временная папка - не важно
+            }
+        }
+    }
+
+    public GoatRiderPlugin plugin() {
+        return plugin;
+    }
+
+    public TestScheduler scheduler() {
+        return scheduler;
+    }
+
+    public TestEvents events() {
+        return events;
+    }
+
+    public TestWorld world() {
+        return world;
+    }
+
+    public List<TestEntity> entities() {
+        return entities;
+    }
+
+    /**
+     * Один тик региона: задачи, затем движение сущностей.
+     */
+    public void tick() {
+        scheduler.tick();
+        for (int i = 0; i < entities.size(); i++) {
+            entities.get(i).tickPhysics();
+        }
+    }
+
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    public TestGoat spawnGoat(double x, double z) {
+        TestGoat goat = new TestGoat(this, world, x, z);
+        add(goat);
+        return goat;
+    }
+
+    public TestPlayer join(String name, double x, double z) {
+        TestPlayer player = new TestPlayer(this, world, name, x, z);
+        add(player);
+        players.put(player.getUniqueId(), player);
+        return player;
+    }
+
+    /**
+     * Правый клик игрока по козлу.
+     */
+    public void interact(TestPlayer player, TestGoat goat) {
+        events.interact(player.handle(), goat.handle());
+    }
+
+    /**
+     * Выход игрока: PlayerQuitEvent, затем сервер снимает его с козла.
+     */
+    public void quit(TestPlayer player) {
+        events.quit(player.handle());
+        player.disconnect();
+        player.leaveVehicle();
+        players.remove(player.getUniqueId());
+    }
+
+    /**
+     * Выставляет TPS региона (для разгрузки).
+     */
+    public void setRegionTps(double tps) {
+        Arrays.fill(regionTps, tps);
+    }
+
+    TestEntity entity(Entity handle) {
+        return byHandle.get(handle);
+    }
+
+    private void add(TestEntity entity) {
+        entities.add(entity);
+        byHandle.put(entity.handle(), entity);
+    }
+
+    /**
+     * Методы {@link Server}, которыми пользуется плагин.
+     */
+    public final class Api {
+
+        public PluginManager getPluginManager() {
+            return events.handle();
+        }
+
+        public GlobalRegionScheduler getGlobalRegionScheduler() {
+            return scheduler.global();
+        }
+
+        public AsyncScheduler getAsyncScheduler() {
+            return scheduler.async();
+        }
+
+        public Player getPlayer(UUID id) {
+            TestPlayer player = players.get(id);
+            return player != null ? player.handle() : null;
+        }
+
+        public Collection<? extends Player> getOnlinePlayers() {
+            List<Player> online = new ArrayList<>();
+            for (TestPlayer player : players.values()) {
+                online.add(player.handle());
+            }
+            return online;
+        }
+
+        public PluginCommand getPluginCommand(String name) {
+            return command;
+        }
+
+        public boolean isOwnedByCurrentRegion(Entity entity) {
+            return true;
+        }
+
+        public boolean isOwnedByCurrentRegion(Location location) {
+            return true;
+        }
+
+        public boolean isOwnedByCurrentRegion(World world, int chunkX, int chunkZ) {
+            return true;
+        }
+
+        public double[] getRegionTPS(Location location) {
+            return regionTps;
+        }
+
+        public Logger getLogger() {
+            return logger;
+        }
+
+        public String getName() {
+            return "TestServer";
+        }
+    }
+
+    private void writeConfig() {
+        try (InputStream resource = GoatRiderPlugin.class.getResourceAsStream("/config.yml")) {
+            YamlConfiguration yaml = YamlConfiguration.loadConfiguration(
+                    new InputStreamReader(resource, StandardCharsets.UTF_8));
+            config.forEach(yaml::set);
+            yaml.save(dataFolder.resolve("config.yml").toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ставит сервер в Bukkit без Bukkit.setServer: тот разрешает только один сервер на JVM.
+     */
+    private static void setBukkitServer(Server server) {
+        setField(null, Bukkit.class, "server", server);
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        setField(target, JavaPlugin.class, name, value);
+    }
+
+    private static void setFieldIfPresent(Object target, String name, Object value) {
+        try {
+            JavaPlugin.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            return;
+        }
+        setField(target, name, value);
+    }
+
+    private static void setField(Object target, Class<?> owner, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Нет поля " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package su.brim.goatrider.testserver;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.VoxelShape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Мир тестового сервера: ровная каменная земля, все чанки загружены.
+ */
+public final class TestWorld {
+
+    private final TestServer server;
+    private final String name;
+    private final UUID uid = UUID.randomUUID();
+    private final World handle = Fakes.of(World.class, this);
+    private final int groundY;
+
+    // Блоки без координат: кэш столкновений читает только форму
+    private final Block air = Fakes.of(Block.class, new TestBlock(Material.AIR, List.of()));
+    private final Block stone = Fakes.of(Block.class, new TestBlock(Material.STONE, List.of(new BoundingBox(0, 0, 0, 1, 1, 1))));
+
+    private int droppedItems;
+
+    TestWorld(TestServer server, String name, int groundY) {
+        this.server = server;
+        this.name = name;
+        this.groundY = groundY;
+    }
+
+    public World handle() {
+        return handle;
+    }
+
+    public int groundY() {
+        return groundY;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUID() {
+        return uid;
+    }
+
+    public int getMinHeight() {
+        return -64;
+    }
+
+    public int getMaxHeight() {
+        return 320;
+    }
+
+    public boolean isChunkLoaded(int chunkX, int chunkZ) {
+        return true;
+    }
+
+    public Block getBlockAt(int x, int y, int z) {
+        return y < groundY ? stone : air;
+    }
+
+    public Collection<Entity> getNearbyEntities(BoundingBox box, Predicate<? super Entity> filter) {
+        List<Entity> found = new ArrayList<>();
+        for (TestEntity entity : server.entities()) {
+            if (entity.world == this && entity.isValid() && box.overlaps(entity.getBoundingBox())
+                    && (filter == null || filter.test(entity.handle()))) {
+                found.add(entity.handle());
+            }
+        }
+        return found;
+    }
+
+    public Item dropItemNaturally(Location location, ItemStack item) {
+        droppedItems++;
+        return null;
+    }
+
+    public int droppedItems() {
+        return droppedItems;
+    }
+
+    /**
+     * Состояние {@link Block}: проходимость и форма столкновения.
+     */
+    public static final class TestBlock {
+
+        private final Material type;
+        private final VoxelShape shape;
+
+        TestBlock(Material type, List<BoundingBox> boxes) {
+            this.type = type;
+            this.shape = Fakes.of(VoxelShape.class, new Shape(boxes));
+        }
+
+        public Material getType() {
+            return type;
+        }
+
+        public boolean isPassable() {
+            return type == Material.AIR;
+        }
+
+        public boolean isSolid() {
+            return type != Material.AIR;
+        }
+
+        public VoxelShape getCollisionShape() {
+            return shape;
+        }
+    }
+
+    /**
+     * Состояние {@link VoxelShape}.
+     */
+    public static final class Shape {
+
+        private final List<BoundingBox> boxes;
+
+        Shape(List<BoundingBox> boxes) {
+            this.boxes = boxes;
+        }
+
+        public Collection<BoundingBox> getBoundingBoxes() {
+            return boxes;
+        }
+
+        public boolean overlaps(BoundingBox other) {
+            for (BoundingBox box : boxes) {
+                if (box.overlaps(other)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}